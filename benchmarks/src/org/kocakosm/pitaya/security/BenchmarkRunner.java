@@ -0,0 +1,47 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+package org.kocakosm.pitaya.security;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs Pitaya's benchmarks with JMH's GC profiler enabled, so that both the
+ * throughput (or average time) and the allocation rate of each benchmark are
+ * reported. Accepts JMH's usual command line options, for instance:
+ * {@code java -jar target/benchmarks.jar DigestBenchmark -p size=1024}.
+ *
+ * @author Osman KOCAK
+ */
+public final class BenchmarkRunner
+{
+	public static void main(String... args) throws Exception
+	{
+		Options options = new OptionsBuilder()
+			.parent(new CommandLineOptions(args))
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+
+	private BenchmarkRunner()
+	{
+		/* ... */
+	}
+}
@@ -0,0 +1,65 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+package org.kocakosm.pitaya.security;
+
+import java.util.Random;
+
+/**
+ * Benchmarks' utility functions.
+ *
+ * @author Osman KOCAK
+ */
+final class Benchmarks
+{
+	/**
+	 * Returns the {@link Algorithm} constant having the given name.
+	 *
+	 * @param name the name of one of {@link Algorithm}'s constants.
+	 *
+	 * @return the corresponding {@link Algorithm}.
+	 *
+	 * @throws IllegalArgumentException if there's no such constant.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> Algorithm<T> algorithm(String name)
+	{
+		try {
+			return (Algorithm<T>) Algorithm.class.getField(name).get(null);
+		} catch (ReflectiveOperationException ex) {
+			throw new IllegalArgumentException(name, ex);
+		}
+	}
+
+	/**
+	 * Returns an array of the given length filled with pseudo-random bytes.
+	 * The same length always gives the same content.
+	 *
+	 * @param length the array's length.
+	 *
+	 * @return an array of pseudo-random bytes.
+	 */
+	static byte[] randomBytes(int length)
+	{
+		byte[] bytes = new byte[length];
+		new Random(length).nextBytes(bytes);
+		return bytes;
+	}
+
+	private Benchmarks()
+	{
+		/* ... */
+	}
+}
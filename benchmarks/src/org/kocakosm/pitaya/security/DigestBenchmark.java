@@ -0,0 +1,75 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+package org.kocakosm.pitaya.security;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link Digest} benchmarks: every digest {@link Algorithm}, from 16 bytes to
+ * 16 MB inputs.
+ *
+ * @author Osman KOCAK
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DigestBenchmark
+{
+	@Param({
+		"MD2", "MD4", "MD5", "SHA1", "SHA256", "SHA512",
+		"KECCAK224", "KECCAK256", "KECCAK384", "KECCAK512",
+		"SHA3_224", "SHA3_256", "SHA3_384", "SHA3_512",
+		"BLAKE2B", "BLAKE2S"
+	})
+	public String algorithm;
+
+	@Param({"16", "256", "4096", "65536", "1048576", "16777216"})
+	public int size;
+
+	private Digest digest;
+	private byte[] input;
+	private byte[] output;
+
+	@Setup
+	public void setUp()
+	{
+		digest = Factory.getDigest(Benchmarks.<Digest>algorithm(algorithm));
+		input = Benchmarks.randomBytes(size);
+		output = new byte[digest.length()];
+	}
+
+	@Benchmark
+	public byte[] digest()
+	{
+		digest.update(input).digest(output, 0);
+		return output;
+	}
+}
@@ -0,0 +1,68 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+package org.kocakosm.pitaya.security;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PBKDF1 and HKDF benchmarks, at representative cost parameters.
+ *
+ * @author Osman KOCAK
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KDFBenchmark
+{
+	private final byte[] secret = Benchmarks.randomBytes(16);
+	private final byte[] salt = Benchmarks.randomBytes(32);
+	private final KDF pbkdf1 = KDFs.pbkdf1(Algorithm.SHA1, 10000, 20);
+	private final KDF hkdf32 = KDFs.hkdf(Algorithm.HMAC_SHA256,
+		Benchmarks.randomBytes(8), 32);
+	private final KDF hkdf1024 = KDFs.hkdf(Algorithm.HMAC_SHA256,
+		Benchmarks.randomBytes(8), 1024);
+
+	@Benchmark
+	public byte[] pbkdf1()
+	{
+		return pbkdf1.deriveKey(secret, salt);
+	}
+
+	@Benchmark
+	public byte[] hkdf32()
+	{
+		return hkdf32.deriveKey(secret, salt);
+	}
+
+	@Benchmark
+	public byte[] hkdf1024()
+	{
+		return hkdf1024.deriveKey(secret, salt);
+	}
+}
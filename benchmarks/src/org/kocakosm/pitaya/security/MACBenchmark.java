@@ -0,0 +1,104 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+package org.kocakosm.pitaya.security;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link MAC} benchmarks: every MAC {@link Algorithm}, at several key lengths
+ * and input sizes. {@link #mac()} measures a MAC computation with an already
+ * initialized engine while {@link #init()} measures the engine creation, whose
+ * cost depends on the key length.
+ *
+ * @author Osman KOCAK
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MACBenchmark
+{
+	@Param({
+		"HMAC_MD2", "HMAC_MD4", "HMAC_MD5", "HMAC_SHA1",
+		"HMAC_SHA256", "HMAC_SHA512",
+		"HMAC_KECCAK224", "HMAC_KECCAK256", "HMAC_KECCAK384",
+		"HMAC_KECCAK512", "HMAC_SHA3_224", "HMAC_SHA3_256",
+		"HMAC_SHA3_384", "HMAC_SHA3_512", "HMAC_BLAKE2B", "HMAC_BLAKE2S",
+		"BLAKE2B_MAC", "BLAKE2S_MAC"
+	})
+	public String algorithm;
+
+	@Param({"16", "64", "256"})
+	public int keyLength;
+
+	@Param({"16", "1024", "65536", "1048576"})
+	public int size;
+
+	private Algorithm<MAC> alg;
+	private byte[] key;
+	private MAC mac;
+	private byte[] input;
+	private byte[] output;
+
+	@Setup
+	public void setUp()
+	{
+		alg = Benchmarks.algorithm(algorithm);
+		key = Benchmarks.randomBytes(Math.min(keyLength, maxKeyLength()));
+		mac = Factory.getMAC(alg, key);
+		input = Benchmarks.randomBytes(size);
+		output = new byte[mac.length()];
+	}
+
+	@Benchmark
+	public byte[] mac()
+	{
+		mac.update(input).mac(output, 0);
+		return output;
+	}
+
+	@Benchmark
+	public MAC init()
+	{
+		return Factory.getMAC(alg, key);
+	}
+
+	/* Keyed BLAKE2 doesn't accept keys longer than its output. */
+	private int maxKeyLength()
+	{
+		if (alg == Algorithm.BLAKE2B_MAC) {
+			return 64;
+		}
+		if (alg == Algorithm.BLAKE2S_MAC) {
+			return 32;
+		}
+		return Integer.MAX_VALUE;
+	}
+}
@@ -0,0 +1,70 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+package org.kocakosm.pitaya.security;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PBKDF2 benchmarks, with the most common MAC algorithms and iteration counts.
+ *
+ * @author Osman KOCAK
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PBKDF2Benchmark
+{
+	@Param({"HMAC_SHA1", "HMAC_SHA256", "HMAC_SHA512", "HMAC_BLAKE2B"})
+	public String algorithm;
+
+	@Param({"1000", "10000"})
+	public int iterations;
+
+	@Param({"32", "64"})
+	public int dkLen;
+
+	private final byte[] secret = Benchmarks.randomBytes(16);
+	private final byte[] salt = Benchmarks.randomBytes(16);
+	private KDF pbkdf2;
+
+	@Setup
+	public void setUp()
+	{
+		Algorithm<MAC> mac = Benchmarks.algorithm(algorithm);
+		pbkdf2 = KDFs.pbkdf2(mac, iterations, dkLen);
+	}
+
+	@Benchmark
+	public byte[] deriveKey()
+	{
+		return pbkdf2.deriveKey(secret, salt);
+	}
+}
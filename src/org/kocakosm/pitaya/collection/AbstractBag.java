@@ -16,7 +16,12 @@
 
 package org.kocakosm.pitaya.collection;
 
+import org.kocakosm.pitaya.util.Parameters;
+
 import java.util.AbstractCollection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Abstract skeleton implementation of the {@link Bag} interface. If you want to
@@ -43,6 +48,26 @@ public abstract class AbstractBag<E> extends AbstractCollection<E> implements Ba
 		return count;
 	}
 
+	/**
+	 * {@inheritDoc} This implementation counts each distinct element once,
+	 * and thus runs in {@code O(n * d)} time, where {@code n} is the size
+	 * of this bag and {@code d} the cost of {@link #count(Object)}.
+	 * Subclasses are encouraged to override it.
+	 */
+	@Override
+	public List<E> top(int k)
+	{
+		Parameters.checkCondition(k >= 0);
+		TopK<E> top = new TopK<E>(k);
+		Set<E> seen = new HashSet<E>();
+		for (E e : this) {
+			if (seen.add(e)) {
+				top.offer(e, count(e));
+			}
+		}
+		return top.toList();
+	}
+
 	@Override
 	public boolean equals(Object o)
 	{
@@ -17,6 +17,7 @@
 package org.kocakosm.pitaya.collection;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -43,4 +44,17 @@ public interface Bag<E> extends Collection<E>
 	 * @return the number of occurrences of the element in this bag.
 	 */
 	int count(E e);
+
+	/**
+	 * Returns the {@code k} most frequent elements in this bag, by
+	 * descending count. Ties are broken arbitrarily. If this bag contains
+	 * fewer than {@code k} distinct elements, all of them are returned.
+	 *
+	 * @param k the number of elements to return.
+	 *
+	 * @return the {@code k} most frequent elements in this bag.
+	 *
+	 * @throws IllegalArgumentException if {@code k} is negative.
+	 */
+	List<E> top(int k);
 }
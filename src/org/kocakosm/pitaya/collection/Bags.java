@@ -19,7 +19,9 @@ package org.kocakosm.pitaya.collection;
 import org.kocakosm.pitaya.util.Parameters;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * Contains static utility methods that operate on or return {@link Bag}s.
@@ -53,6 +55,13 @@ public final class Bags
 			return 0;
 		}
 
+		@Override
+		public List<E> top(int k)
+		{
+			Parameters.checkCondition(k >= 0);
+			return Collections.emptyList();
+		}
+
 		@Override
 		public int size()
 		{
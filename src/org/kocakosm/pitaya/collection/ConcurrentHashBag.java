@@ -22,12 +22,22 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * A thread-safe variant of {@link HashBag} based on {@link ConcurrentHashMap}.
- * This class does not accept {@code null} elements.
+ * Each distinct element is mapped to an atomic counter, so that concurrent
+ * updates of an element are lock-free and don't copy anything, and the bag's
+ * size is maintained in striped cells to avoid contention on a single counter.
+ * {@link #size()} and iterators are weakly consistent: they reflect the state
+ * of the bag at some point at or since their invocation. The bag can also be
+ * asked to track its most frequent elements as it is updated, so that
+ * {@link #top(int)} queries don't have to scan every distinct element. This
+ * class does not accept {@code null} elements.
  *
  * @param <E> the type of the elements in the bag.
  *
@@ -35,7 +45,37 @@ import java.util.concurrent.CopyOnWriteArrayList;
  */
 public final class ConcurrentHashBag<E> extends AbstractBag<E>
 {
-	private final ConcurrentHashMap<E, CopyOnWriteArrayList<E>> entries;
+	/**
+	 * Creates a new empty {@code ConcurrentHashBag} having the given
+	 * initial capacity and tracking its {@code tracked} most frequent
+	 * elements as it is updated. {@link #top(int)} queries with
+	 * {@code k <= tracked} then run in {@code O(tracked * log(k))} time,
+	 * instead of scanning every distinct element, as long as no element is
+	 * removed from the bag: removals invalidate the tracked elements, which
+	 * are then recomputed by the next {@link #top(int)} query. Tracking
+	 * costs one extra read per addition, and a lock (held for
+	 * {@code O(tracked)} time) only when a new element enters the tracked
+	 * set.
+	 *
+	 * @param <E> the type of the elements in the bag.
+	 * @param initialCapacity the bag's initial capacity.
+	 * @param tracked the number of most frequent elements to track, 0 to
+	 *	disable tracking.
+	 *
+	 * @return the created bag.
+	 *
+	 * @throws IllegalArgumentException if {@code initialCapacity < 0} or
+	 *	if {@code tracked < 0}.
+	 */
+	public static <E> ConcurrentHashBag<E> withTopTracking(
+		int initialCapacity, int tracked)
+	{
+		return new ConcurrentHashBag<E>(initialCapacity, tracked);
+	}
+
+	private final ConcurrentHashMap<E, AtomicInteger> entries;
+	private final StripedCounter size;
+	private final HeavyHitters tracker;
 
 	/** Creates a new empty {@code ConcurrentHashBag}. */
 	public ConcurrentHashBag()
@@ -52,9 +92,21 @@ public final class ConcurrentHashBag<E> extends AbstractBag<E>
 	 * @throws IllegalArgumentException if {@code initialCapacity < 0}.
 	 */
 	public ConcurrentHashBag(int initialCapacity)
+	{
+		this(initialCapacity, 0);
+	}
+
+	/*
+	 * Private, so that it doesn't hijack calls like "new
+	 * ConcurrentHashBag<Integer>(3, 7)" from the varargs constructor.
+	 */
+	private ConcurrentHashBag(int initialCapacity, int tracked)
 	{
 		Parameters.checkCondition(initialCapacity >= 0);
-		this.entries = new ConcurrentHashMap<E, CopyOnWriteArrayList<E>>(initialCapacity);
+		Parameters.checkCondition(tracked >= 0);
+		this.entries = new ConcurrentHashMap<E, AtomicInteger>(initialCapacity);
+		this.size = new StripedCounter();
+		this.tracker = tracked > 0 ? new HeavyHitters(tracked) : null;
 	}
 
 	/**
@@ -123,7 +175,53 @@ public final class ConcurrentHashBag<E> extends AbstractBag<E>
 	@Override
 	public boolean add(E e)
 	{
-		return getEntry(e).add(e);
+		add(e, 1);
+		return true;
+	}
+
+	/**
+	 * Adds the given number of occurrences of the given element to this
+	 * bag.
+	 *
+	 * @param e the element to add.
+	 * @param occurrences the number of occurrences to add.
+	 *
+	 * @return the count of the element before the operation.
+	 *
+	 * @throws NullPointerException if {@code e} is {@code null}.
+	 * @throws IllegalArgumentException if {@code occurrences} is negative
+	 *	or if the resulting count would exceed {@link Integer#MAX_VALUE}.
+	 */
+	public int add(E e, int occurrences)
+	{
+		Parameters.checkNotNull(e);
+		Parameters.checkCondition(occurrences >= 0);
+		if (occurrences == 0) {
+			return count(e);
+		}
+		while (true) {
+			AtomicInteger counter = entries.get(e);
+			if (counter == null) {
+				if (putIfAbsent(e, occurrences)) {
+					return 0;
+				}
+				continue;
+			}
+			int count = counter.get();
+			if (count == 0) {
+				if (replace(e, counter, occurrences)) {
+					return 0;
+				}
+				continue;
+			}
+			Parameters.checkCondition(
+				occurrences <= Integer.MAX_VALUE - count);
+			if (counter.compareAndSet(count, count + occurrences)) {
+				size.add(occurrences);
+				increased(e, count + occurrences);
+				return count;
+			}
+		}
 	}
 
 	/**
@@ -159,40 +257,136 @@ public final class ConcurrentHashBag<E> extends AbstractBag<E>
 	 */
 	public boolean addIfAbsent(E e)
 	{
-		return getEntry(e).addIfAbsent(e);
+		Parameters.checkNotNull(e);
+		while (true) {
+			AtomicInteger counter = entries.get(e);
+			if (counter == null) {
+				if (putIfAbsent(e, 1)) {
+					return true;
+				}
+			} else if (counter.get() > 0) {
+				return false;
+			} else if (replace(e, counter, 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Sets the count of the given element in this bag, adding or removing
+	 * occurrences as necessary.
+	 *
+	 * @param e the element whose count is to be set.
+	 * @param count the element's new count.
+	 *
+	 * @return the count of the element before the operation.
+	 *
+	 * @throws NullPointerException if {@code e} is {@code null}.
+	 * @throws IllegalArgumentException if {@code count} is negative.
+	 */
+	public int setCount(E e, int count)
+	{
+		Parameters.checkNotNull(e);
+		Parameters.checkCondition(count >= 0);
+		while (true) {
+			AtomicInteger counter = entries.get(e);
+			if (counter == null) {
+				if (count == 0 || putIfAbsent(e, count)) {
+					return 0;
+				}
+				continue;
+			}
+			int old = counter.get();
+			if (old == 0) {
+				if (count == 0 || replace(e, counter, count)) {
+					return 0;
+				}
+				continue;
+			}
+			if (counter.compareAndSet(old, count)) {
+				if (count == 0) {
+					entries.remove(e, counter);
+				}
+				size.add(count - old);
+				if (count > old) {
+					increased(e, count);
+				} else if (count < old) {
+					decreased();
+				}
+				return old;
+			}
+		}
+	}
+
+	/**
+	 * Removes the given number of occurrences of the given element from
+	 * this bag. If the bag contains fewer occurrences than requested, all
+	 * of them are removed.
+	 *
+	 * @param o the element to remove.
+	 * @param occurrences the number of occurrences to remove.
+	 *
+	 * @return the count of the element before the operation.
+	 *
+	 * @throws NullPointerException if {@code o} is {@code null}.
+	 * @throws IllegalArgumentException if {@code occurrences} is negative.
+	 */
+	public int remove(Object o, int occurrences)
+	{
+		Parameters.checkCondition(occurrences >= 0);
+		AtomicInteger counter = entries.get(o);
+		if (counter == null) {
+			return 0;
+		}
+		while (true) {
+			int count = counter.get();
+			if (count == 0 || occurrences == 0) {
+				return count;
+			}
+			int newCount = Math.max(0, count - occurrences);
+			if (counter.compareAndSet(count, newCount)) {
+				if (newCount == 0) {
+					entries.remove(o, counter);
+				}
+				size.add(newCount - count);
+				decreased();
+				return count;
+			}
+		}
 	}
 
 	@Override
 	public void clear()
 	{
-		entries.clear();
+		for (Map.Entry<E, AtomicInteger> entry : entries.entrySet()) {
+			removeAll(entry.getKey(), entry.getValue());
+		}
 	}
 
 	@Override
 	public boolean contains(Object o)
 	{
-		List<E> entry = entries.get(o);
-		return entry == null ? false : !entry.isEmpty();
+		AtomicInteger counter = entries.get(o);
+		return counter == null ? false : counter.get() > 0;
 	}
 
 	@Override
 	public int count(E e)
 	{
-		List<E> entry = entries.get(e);
-		return entry == null ? 0 : entry.size();
+		AtomicInteger counter = entries.get(e);
+		return counter == null ? 0 : counter.get();
 	}
 
 	@Override
 	public Iterator<E> iterator()
 	{
-		return Iterables.concat(entries.values()).iterator();
+		return new BagIterator();
 	}
 
 	@Override
 	public boolean remove(Object o)
 	{
-		List<E> entry = entries.get(o);
-		return entry == null ? false : entry.remove(o);
+		return remove(o, 1) > 0;
 	}
 
 	@Override
@@ -200,7 +394,10 @@ public final class ConcurrentHashBag<E> extends AbstractBag<E>
 	{
 		boolean removed = false;
 		for (Object o : c) {
-			removed |= entries.remove(o) != null;
+			AtomicInteger counter = entries.get(o);
+			if (counter != null) {
+				removed |= removeAll(o, counter) > 0;
+			}
 		}
 		return removed;
 	}
@@ -208,26 +405,276 @@ public final class ConcurrentHashBag<E> extends AbstractBag<E>
 	@Override
 	public boolean retainAll(Collection<?> c)
 	{
-		boolean updated = false;
-		for (List<E> entry : entries.values()) {
-			updated |= entry.retainAll(c);
+		boolean removed = false;
+		for (Map.Entry<E, AtomicInteger> entry : entries.entrySet()) {
+			if (!c.contains(entry.getKey())) {
+				removed |= removeAll(entry.getKey(),
+					entry.getValue()) > 0;
+			}
 		}
-		return updated;
+		return removed;
+	}
+
+	/**
+	 * {@inheritDoc} Unless {@code k} is lower than or equal to the number
+	 * of tracked elements (see {@link #withTopTracking(int, int)}), this
+	 * implementation scans every distinct element and thus runs in
+	 * {@code O(d * log(k))} time, where {@code d} is the number of
+	 * distinct elements. The returned elements are ordered by their counts
+	 * at the time they are read.
+	 */
+	@Override
+	public List<E> top(int k)
+	{
+		Parameters.checkCondition(k >= 0);
+		if (tracker != null && k <= tracker.capacity) {
+			return tracker.top(k);
+		}
+		return scan(k);
 	}
 
 	@Override
 	public int size()
 	{
-		int size = 0;
-		for (List<E> value : entries.values()) {
-			size += value.size();
+		long sum = size.sum();
+		return (int) Math.max(0, Math.min(sum, Integer.MAX_VALUE));
+	}
+
+	private boolean putIfAbsent(E e, int count)
+	{
+		if (entries.putIfAbsent(e, new AtomicInteger(count)) == null) {
+			size.add(count);
+			increased(e, count);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * A counter that dropped to zero is dead: it is (or is about to be)
+	 * removed from the map and mustn't be revived, otherwise concurrent
+	 * additions could be lost. It is replaced by a fresh counter instead.
+	 */
+	private boolean replace(E e, AtomicInteger dead, int count)
+	{
+		if (entries.replace(e, dead, new AtomicInteger(count))) {
+			size.add(count);
+			increased(e, count);
+			return true;
+		}
+		return false;
+	}
+
+	private int removeAll(Object o, AtomicInteger counter)
+	{
+		int count = counter.getAndSet(0);
+		entries.remove(o, counter);
+		if (count > 0) {
+			size.add(-count);
+			decreased();
+		}
+		return count;
+	}
+
+	private void increased(E e, int count)
+	{
+		if (tracker != null) {
+			tracker.offer(e, count);
+		}
+	}
+
+	private void decreased()
+	{
+		if (tracker != null) {
+			tracker.invalidate();
+		}
+	}
+
+	private List<E> scan(int k)
+	{
+		TopK<E> top = new TopK<E>(k);
+		for (Map.Entry<E, AtomicInteger> entry : entries.entrySet()) {
+			top.offer(entry.getKey(), entry.getValue().get());
+		}
+		return top.toList();
+	}
+
+	/**
+	 * A long counter spread over several padded cells, each thread updating
+	 * the cell its identifier hashes to, so that concurrent updates seldom
+	 * contend on the same cache line.
+	 */
+	private static final class StripedCounter
+	{
+		private static final int PADDING = 8;
+
+		private final AtomicLongArray cells;
+		private final int mask;
+
+		StripedCounter()
+		{
+			int n = Runtime.getRuntime().availableProcessors();
+			int stripes = Integer.highestOneBit(Math.max(1, n - 1)) << 1;
+			this.cells = new AtomicLongArray(stripes * PADDING);
+			this.mask = stripes - 1;
+		}
+
+		void add(long x)
+		{
+			long id = Thread.currentThread().getId();
+			int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+			cells.addAndGet(((h ^ (h >>> 16)) & mask) * PADDING, x);
+		}
+
+		long sum()
+		{
+			long sum = 0;
+			for (int i = 0; i < cells.length(); i += PADDING) {
+				sum += cells.get(i);
+			}
+			return sum;
+		}
+	}
+
+	/**
+	 * The (at most) {@code capacity} most frequent elements of the bag,
+	 * maintained incrementally. Like a Space-Saving sketch, it keeps a
+	 * fixed number of candidates and evicts the least frequent one when a
+	 * more frequent element shows up; but since the bag's counters are
+	 * exact, so are the candidates. An addition only takes the lock when
+	 * the element isn't a candidate and its count exceeds the last known
+	 * minimum count of the candidates. Decrements can't be handled
+	 * incrementally, they just mark the candidates as stale.
+	 */
+	private final class HeavyHitters
+	{
+		final int capacity;
+		private final ConcurrentHashMap<E, Boolean> candidates;
+		private volatile int threshold;
+		private volatile boolean stale;
+
+		HeavyHitters(int capacity)
+		{
+			this.capacity = capacity;
+			this.candidates = new ConcurrentHashMap<E, Boolean>();
+		}
+
+		void offer(E e, int count)
+		{
+			if (count <= threshold || candidates.containsKey(e)) {
+				return;
+			}
+			synchronized (this) {
+				if (stale || candidates.containsKey(e)) {
+					return;
+				}
+				if (candidates.size() < capacity) {
+					candidates.put(e, Boolean.TRUE);
+					if (candidates.size() == capacity) {
+						threshold = minCount();
+					}
+					return;
+				}
+				E min = null;
+				int minCount = Integer.MAX_VALUE;
+				for (E candidate : candidates.keySet()) {
+					int n = count(candidate);
+					if (n < minCount) {
+						min = candidate;
+						minCount = n;
+					}
+				}
+				if (count <= minCount) {
+					threshold = minCount;
+					return;
+				}
+				candidates.remove(min);
+				candidates.put(e, Boolean.TRUE);
+				threshold = minCount();
+				if (count(min) > minCount) {
+					/* min was incremented while being evicted. */
+					stale = true;
+				}
+			}
+		}
+
+		void invalidate()
+		{
+			stale = true;
+		}
+
+		synchronized List<E> top(int k)
+		{
+			if (stale) {
+				stale = false;
+				candidates.clear();
+				for (E e : scan(capacity)) {
+					candidates.put(e, Boolean.TRUE);
+				}
+				threshold = candidates.size() < capacity ? 0 : minCount();
+			}
+			TopK<E> top = new TopK<E>(k);
+			for (E candidate : candidates.keySet()) {
+				top.offer(candidate, count(candidate));
+			}
+			return top.toList();
+		}
+
+		private int minCount()
+		{
+			int min = Integer.MAX_VALUE;
+			for (E candidate : candidates.keySet()) {
+				min = Math.min(min, count(candidate));
+			}
+			return min;
 		}
-		return size;
 	}
 
-	private CopyOnWriteArrayList<E> getEntry(E e)
+	/** Returns each distinct element as many times as its count. */
+	private final class BagIterator implements Iterator<E>
 	{
-		entries.putIfAbsent(e, new CopyOnWriteArrayList<E>());
-		return entries.get(e);
+		private final Iterator<Map.Entry<E, AtomicInteger>> entryIterator;
+		private E current;
+		private E last;
+		private int remaining;
+		private boolean removable;
+
+		BagIterator()
+		{
+			this.entryIterator = entries.entrySet().iterator();
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			while (remaining == 0 && entryIterator.hasNext()) {
+				Map.Entry<E, AtomicInteger> entry = entryIterator.next();
+				current = entry.getKey();
+				remaining = entry.getValue().get();
+			}
+			return remaining > 0;
+		}
+
+		@Override
+		public E next()
+		{
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			remaining--;
+			last = current;
+			removable = true;
+			return last;
+		}
+
+		@Override
+		public void remove()
+		{
+			if (!removable) {
+				throw new IllegalStateException();
+			}
+			removable = false;
+			ConcurrentHashBag.this.remove(last, 1);
+		}
 	}
 }
@@ -0,0 +1,372 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import org.kocakosm.pitaya.util.BigEndian;
+import org.kocakosm.pitaya.util.Parameters;
+import org.kocakosm.pitaya.util.XObjects;
+
+import java.util.Arrays;
+
+/**
+ * A bounded-memory, approximate alternative to {@link HashBag}, based on a
+ * Count-Min sketch (Cormode and Muthukrishnan, 2005) with conservative update.
+ * The sketch is a {@code depth x width} matrix of counters; each element is
+ * mapped to one counter per row and its count is estimated as the minimum of
+ * these counters. Estimates never underestimate the actual counts and, with a
+ * sketch created with {@link #CountMinSketch(double, double)}, overestimate
+ * them by at most {@code epsilon * size()} with probability at least
+ * {@code 1 - delta}. Memory usage doesn't depend on the number of elements.
+ * <p>
+ * Sketches having the same dimensions can be {@linkplain #merge merged}, for
+ * example to combine per-thread or per-node sketches, and can be serialized
+ * with {@link #toByteArray()} and {@link #fromByteArray(byte[])}. Elements are
+ * mapped to counters using their {@link Object#hashCode() hashCode()}, so
+ * sketches built on different JVMs can only be merged if the elements' hash
+ * codes are stable across JVMs (as is the case for {@link String}s and boxed
+ * primitives, for instance). This class accepts {@code null} elements.
+ * Instances of this class are not thread-safe: use one sketch per thread and
+ * merge them instead.
+ *
+ * @param <E> the type of the elements counted in the sketch.
+ *
+ * @author Osman KOCAK
+ */
+public final class CountMinSketch<E>
+{
+	private static final byte VERSION = 1;
+	private static final int HEADER_LENGTH = 1 + 4 + 4 + 8;
+
+	/**
+	 * Deserializes a sketch previously serialized with
+	 * {@link #toByteArray()}.
+	 *
+	 * @param <E> the type of the elements counted in the sketch.
+	 * @param bytes the serialized sketch.
+	 *
+	 * @return the deserialized sketch.
+	 *
+	 * @throws NullPointerException if {@code bytes} is {@code null}.
+	 * @throws IllegalArgumentException if {@code bytes} is not a valid
+	 *	serialized sketch.
+	 */
+	public static <E> CountMinSketch<E> fromByteArray(byte[] bytes)
+	{
+		Parameters.checkCondition(bytes.length >= HEADER_LENGTH);
+		Parameters.checkCondition(bytes[0] == VERSION);
+		int width = BigEndian.decodeInt(bytes, 1);
+		int depth = BigEndian.decodeInt(bytes, 5);
+		Parameters.checkCondition(width > 0 && depth > 0);
+		Parameters.checkCondition((bytes.length - HEADER_LENGTH) % 8 == 0);
+		Parameters.checkCondition((long) width * depth
+			== (bytes.length - HEADER_LENGTH) / 8);
+		CountMinSketch<E> sketch = new CountMinSketch<E>(width, depth);
+		sketch.size = BigEndian.decodeLong(bytes, 9);
+		for (int i = 0; i < sketch.counters.length; i++) {
+			long n = BigEndian.decodeLong(bytes, HEADER_LENGTH + i * 8);
+			Parameters.checkCondition(n >= 0 && n <= sketch.size);
+			sketch.counters[i] = n;
+		}
+		return sketch;
+	}
+
+	private final int width;
+	private final int depth;
+	private final long[] counters;
+	private long size;
+
+	/**
+	 * Creates a new empty {@code CountMinSketch} whose estimates exceed
+	 * the actual counts by at most {@code epsilon * size()} with
+	 * probability at least {@code 1 - delta}. The sketch has
+	 * {@code ceil(e / epsilon)} columns and {@code ceil(ln(1 / delta))}
+	 * rows.
+	 *
+	 * @param epsilon the relative error bound, in ]0, 1[.
+	 * @param delta the probability of exceeding the error bound, in ]0, 1[.
+	 *
+	 * @throws IllegalArgumentException if {@code epsilon} or {@code delta}
+	 *	is not in ]0, 1[, or if the resulting sketch would be too large.
+	 */
+	public CountMinSketch(double epsilon, double delta)
+	{
+		this(width(epsilon), depth(delta));
+	}
+
+	/**
+	 * Creates a new empty {@code CountMinSketch} having the given
+	 * dimensions.
+	 *
+	 * @param width the number of counters per row.
+	 * @param depth the number of rows.
+	 *
+	 * @throws IllegalArgumentException if {@code width} or {@code depth}
+	 *	is not strictly positive or if {@code width * depth} is greater
+	 *	than {@link Integer#MAX_VALUE}.
+	 */
+	public CountMinSketch(int width, int depth)
+	{
+		Parameters.checkCondition(width > 0 && depth > 0);
+		Parameters.checkCondition((long) width * depth <= Integer.MAX_VALUE);
+		this.width = width;
+		this.depth = depth;
+		this.counters = new long[width * depth];
+	}
+
+	/**
+	 * Adds one occurrence of the given element to this sketch.
+	 *
+	 * @param e the element to add.
+	 *
+	 * @return the estimated count of the element after the operation.
+	 *
+	 * @throws IllegalArgumentException if this sketch's size would exceed
+	 *	{@link Long#MAX_VALUE}.
+	 */
+	public long add(E e)
+	{
+		return add(e, 1);
+	}
+
+	/**
+	 * Adds the given number of occurrences of the given element to this
+	 * sketch. Following the conservative update rule, only the element's
+	 * counters that would otherwise end up below its new estimated count
+	 * are raised, which reduces overestimation for all other elements.
+	 *
+	 * @param e the element to add.
+	 * @param occurrences the number of occurrences to add.
+	 *
+	 * @return the estimated count of the element after the operation.
+	 *
+	 * @throws IllegalArgumentException if {@code occurrences} is negative
+	 *	or if this sketch's size would exceed {@link Long#MAX_VALUE}.
+	 */
+	public long add(E e, long occurrences)
+	{
+		Parameters.checkCondition(occurrences >= 0);
+		Parameters.checkCondition(occurrences <= Long.MAX_VALUE - size);
+		int h1 = hash1(e);
+		int h2 = hash2(h1);
+		long estimate = Long.MAX_VALUE;
+		for (int i = 0; i < depth; i++) {
+			estimate = Math.min(estimate, counters[index(i, h1, h2)]);
+		}
+		long count = estimate + occurrences;
+		for (int i = 0; i < depth; i++) {
+			int j = index(i, h1, h2);
+			if (counters[j] < count) {
+				counters[j] = count;
+			}
+		}
+		size += occurrences;
+		return count;
+	}
+
+	/**
+	 * Returns the estimated count of the given element in this sketch. The
+	 * estimate is never lower than the actual count.
+	 *
+	 * @param e the element to count.
+	 *
+	 * @return the estimated number of occurrences of the element.
+	 */
+	public long count(E e)
+	{
+		int h1 = hash1(e);
+		int h2 = hash2(h1);
+		long estimate = Long.MAX_VALUE;
+		for (int i = 0; i < depth; i++) {
+			estimate = Math.min(estimate, counters[index(i, h1, h2)]);
+		}
+		return estimate;
+	}
+
+	/**
+	 * Returns the total number of occurrences added to this sketch. This
+	 * number is exact.
+	 *
+	 * @return the number of elements added to this sketch.
+	 */
+	public long size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns whether this sketch is empty.
+	 *
+	 * @return whether this sketch is empty.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Returns the number of counters per row.
+	 *
+	 * @return this sketch's width.
+	 */
+	public int width()
+	{
+		return width;
+	}
+
+	/**
+	 * Returns the number of rows.
+	 *
+	 * @return this sketch's depth.
+	 */
+	public int depth()
+	{
+		return depth;
+	}
+
+	/**
+	 * Returns the relative error bound guaranteed by this sketch's width,
+	 * that is, {@code e / width()}: estimates exceed the actual counts by
+	 * at most {@code relativeError() * size()} with probability at least
+	 * {@code 1 - exp(-depth())}.
+	 *
+	 * @return this sketch's relative error bound.
+	 */
+	public double relativeError()
+	{
+		return Math.E / width;
+	}
+
+	/** Removes all the elements from this sketch. */
+	public void clear()
+	{
+		Arrays.fill(counters, 0L);
+		size = 0;
+	}
+
+	/**
+	 * Adds all the elements counted in the given sketch to this one. Since
+	 * counters are summed, the merged estimates keep on never
+	 * underestimating the actual counts and the error bound still holds
+	 * (relative to the merged size), but, with conservative updates,
+	 * merged estimates may be slightly higher than those of a single
+	 * sketch having counted both streams.
+	 *
+	 * @param sketch the sketch to merge into this one.
+	 *
+	 * @throws NullPointerException if {@code sketch} is {@code null}.
+	 * @throws IllegalArgumentException if the given sketch's dimensions
+	 *	differ from this one's or if the merged size would exceed
+	 *	{@link Long#MAX_VALUE}.
+	 */
+	public void merge(CountMinSketch<? extends E> sketch)
+	{
+		Parameters.checkCondition(sketch.width == width
+			&& sketch.depth == depth);
+		Parameters.checkCondition(sketch.size <= Long.MAX_VALUE - size);
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] += sketch.counters[i];
+		}
+		size += sketch.size;
+	}
+
+	/**
+	 * Serializes this sketch, see {@link #fromByteArray(byte[])}.
+	 *
+	 * @return the serialized sketch.
+	 */
+	public byte[] toByteArray()
+	{
+		byte[] bytes = new byte[HEADER_LENGTH + counters.length * 8];
+		bytes[0] = VERSION;
+		BigEndian.encode(width, bytes, 1);
+		BigEndian.encode(depth, bytes, 5);
+		BigEndian.encode(size, bytes, 9);
+		for (int i = 0; i < counters.length; i++) {
+			BigEndian.encode(counters[i], bytes, HEADER_LENGTH + i * 8);
+		}
+		return bytes;
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof CountMinSketch)) {
+			return false;
+		}
+		CountMinSketch<?> sketch = (CountMinSketch<?>) o;
+		return width == sketch.width && depth == sketch.depth
+			&& size == sketch.size
+			&& Arrays.equals(counters, sketch.counters);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return 31 * (31 * width + depth) + Arrays.hashCode(counters);
+	}
+
+	@Override
+	public String toString()
+	{
+		return XObjects.toStringBuilder("CountMinSketch")
+			.append("width", width).append("depth", depth)
+			.append("size", size).toString();
+	}
+
+	/**
+	 * Returns the index of the element's counter in the given row, using
+	 * the double hashing scheme of Kirsch and Mitzenmacher:
+	 * {@code g(i) = h1 + i * h2}.
+	 */
+	private int index(int row, int h1, int h2)
+	{
+		int h = (h1 + row * h2) & Integer.MAX_VALUE;
+		return row * width + h % width;
+	}
+
+	private static int hash1(Object e)
+	{
+		int h = e == null ? 0 : e.hashCode();
+		h = (h ^ (h >>> 16)) * 0x85EBCA6B;
+		h = (h ^ (h >>> 13)) * 0xC2B2AE35;
+		return h ^ (h >>> 16);
+	}
+
+	private static int hash2(int h1)
+	{
+		int h = (h1 ^ 0x9E3779B9) * 0xCC9E2D51;
+		h = (h ^ (h >>> 15)) * 0x1B873593;
+		return (h ^ (h >>> 16)) | 1;
+	}
+
+	private static int width(double epsilon)
+	{
+		Parameters.checkCondition(epsilon > 0 && epsilon < 1);
+		double width = Math.ceil(Math.E / epsilon);
+		Parameters.checkCondition(width <= Integer.MAX_VALUE);
+		return (int) width;
+	}
+
+	private static int depth(double delta)
+	{
+		Parameters.checkCondition(delta > 0 && delta < 1);
+		return (int) Math.max(1, Math.ceil(Math.log(1 / delta)));
+	}
+}
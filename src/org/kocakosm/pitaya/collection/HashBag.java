@@ -18,17 +18,22 @@ package org.kocakosm.pitaya.collection;
 
 import org.kocakosm.pitaya.util.Parameters;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
- * {@link Bag} implementation based on {@link HashMap}. This implementation
- * accepts {@code null} elements. Instances of this class are not thread-safe.
+ * {@link Bag} implementation based on {@link HashMap}. Each distinct element is
+ * stored once, along with its number of occurrences, so that memory usage only
+ * depends on the number of distinct elements, and {@link #add(Object)},
+ * {@link #remove(Object)}, {@link #count(Object)} and {@link #size()} run in
+ * constant time. This implementation accepts {@code null} elements. Instances
+ * of this class are not thread-safe.
  *
  * @param <E> the type of the elements in the bag.
  *
@@ -36,7 +41,8 @@ import java.util.Map;
  */
 public final class HashBag<E> extends AbstractBag<E>
 {
-	private final Map<E, List<E>> entries;
+	private final Map<E, Counter> entries;
+	private long size;
 
 	/** Creates a new empty {@code HashBag}. */
 	public HashBag()
@@ -54,7 +60,7 @@ public final class HashBag<E> extends AbstractBag<E>
 	public HashBag(int initialCapacity)
 	{
 		Parameters.checkCondition(initialCapacity >= 0);
-		this.entries = new HashMap<E, List<E>>(initialCapacity);
+		this.entries = new HashMap<E, Counter>(initialCapacity);
 	}
 
 	/**
@@ -119,45 +125,143 @@ public final class HashBag<E> extends AbstractBag<E>
 	@Override
 	public boolean add(E e)
 	{
-		List<E> entry = entries.get(e);
-		if (entry == null) {
-			entry = new ArrayList<E>();
-			entries.put(e, entry);
+		add(e, 1);
+		return true;
+	}
+
+	/**
+	 * Adds the given number of occurrences of the given element to this
+	 * bag.
+	 *
+	 * @param e the element to add.
+	 * @param occurrences the number of occurrences to add.
+	 *
+	 * @return the count of the element before the operation.
+	 *
+	 * @throws IllegalArgumentException if {@code occurrences} is negative
+	 *	or if the resulting count would exceed {@link Integer#MAX_VALUE}.
+	 */
+	public int add(E e, int occurrences)
+	{
+		Parameters.checkCondition(occurrences >= 0);
+		Counter counter = entries.get(e);
+		if (counter == null) {
+			if (occurrences > 0) {
+				entries.put(e, new Counter(occurrences));
+				size += occurrences;
+			}
+			return 0;
 		}
-		return entry.add(e);
+		int count = counter.value;
+		Parameters.checkCondition(occurrences <= Integer.MAX_VALUE - count);
+		counter.value += occurrences;
+		size += occurrences;
+		return count;
+	}
+
+	/**
+	 * Sets the count of the given element in this bag, adding or removing
+	 * occurrences as necessary.
+	 *
+	 * @param e the element whose count is to be set.
+	 * @param count the element's new count.
+	 *
+	 * @return the count of the element before the operation.
+	 *
+	 * @throws IllegalArgumentException if {@code count} is negative.
+	 */
+	public int setCount(E e, int count)
+	{
+		Parameters.checkCondition(count >= 0);
+		Counter counter = entries.get(e);
+		if (counter == null) {
+			return add(e, count);
+		}
+		int old = counter.value;
+		if (count == 0) {
+			entries.remove(e);
+		} else {
+			counter.value = count;
+		}
+		size += count - old;
+		return old;
+	}
+
+	/**
+	 * Removes the given number of occurrences of the given element from
+	 * this bag. If the bag contains fewer occurrences than requested, all
+	 * of them are removed.
+	 *
+	 * @param o the element to remove.
+	 * @param occurrences the number of occurrences to remove.
+	 *
+	 * @return the count of the element before the operation.
+	 *
+	 * @throws IllegalArgumentException if {@code occurrences} is negative.
+	 */
+	public int remove(Object o, int occurrences)
+	{
+		Parameters.checkCondition(occurrences >= 0);
+		Counter counter = entries.get(o);
+		if (counter == null) {
+			return 0;
+		}
+		int count = counter.value;
+		if (occurrences >= count) {
+			entries.remove(o);
+			size -= count;
+		} else {
+			counter.value -= occurrences;
+			size -= occurrences;
+		}
+		return count;
 	}
 
 	@Override
 	public void clear()
 	{
 		entries.clear();
+		size = 0;
 	}
 
 	@Override
 	public boolean contains(Object o)
 	{
-		List<E> entry = entries.get(o);
-		return entry == null ? false : !entry.isEmpty();
+		return entries.containsKey(o);
 	}
 
 	@Override
 	public int count(E e)
 	{
-		List<E> entry = entries.get(e);
-		return entry == null ? 0 : entry.size();
+		Counter counter = entries.get(e);
+		return counter == null ? 0 : counter.value;
 	}
 
 	@Override
 	public Iterator<E> iterator()
 	{
-		return Iterables.concat(entries.values()).iterator();
+		return new BagIterator();
+	}
+
+	/**
+	 * {@inheritDoc} This implementation runs in {@code O(d * log(k))}
+	 * time, where {@code d} is the number of distinct elements.
+	 */
+	@Override
+	public List<E> top(int k)
+	{
+		Parameters.checkCondition(k >= 0);
+		TopK<E> top = new TopK<E>(k);
+		for (Map.Entry<E, Counter> entry : entries.entrySet()) {
+			top.offer(entry.getKey(), entry.getValue().value);
+		}
+		return top.toList();
 	}
 
 	@Override
 	public boolean remove(Object o)
 	{
-		List<E> entry = entries.get(o);
-		return entry == null ? false : entry.remove(o);
+		return remove(o, 1) > 0;
 	}
 
 	@Override
@@ -165,7 +269,27 @@ public final class HashBag<E> extends AbstractBag<E>
 	{
 		boolean removed = false;
 		for (Object o : c) {
-			removed |= entries.remove(o) != null;
+			Counter counter = entries.remove(o);
+			if (counter != null) {
+				size -= counter.value;
+				removed = true;
+			}
+		}
+		return removed;
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c)
+	{
+		boolean removed = false;
+		Iterator<Map.Entry<E, Counter>> i = entries.entrySet().iterator();
+		while (i.hasNext()) {
+			Map.Entry<E, Counter> entry = i.next();
+			if (!c.contains(entry.getKey())) {
+				size -= entry.getValue().value;
+				i.remove();
+				removed = true;
+			}
 		}
 		return removed;
 	}
@@ -173,10 +297,69 @@ public final class HashBag<E> extends AbstractBag<E>
 	@Override
 	public int size()
 	{
-		int size = 0;
-		for (List<E> value : entries.values()) {
-			size += value.size();
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+	/** A mutable occurrence count. */
+	private static final class Counter
+	{
+		int value;
+
+		Counter(int value)
+		{
+			this.value = value;
+		}
+	}
+
+	/** Returns each distinct element as many times as its count. */
+	private final class BagIterator implements Iterator<E>
+	{
+		private final Iterator<Map.Entry<E, Counter>> entryIterator;
+		private Map.Entry<E, Counter> current;
+		private int remaining;
+		private boolean removable;
+
+		BagIterator()
+		{
+			this.entryIterator = entries.entrySet().iterator();
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return remaining > 0 || entryIterator.hasNext();
+		}
+
+		@Override
+		public E next()
+		{
+			if (remaining == 0) {
+				if (!entryIterator.hasNext()) {
+					throw new NoSuchElementException();
+				}
+				current = entryIterator.next();
+				remaining = current.getValue().value;
+			}
+			remaining--;
+			removable = true;
+			return current.getKey();
+		}
+
+		@Override
+		public void remove()
+		{
+			if (!removable) {
+				throw new IllegalStateException();
+			}
+			Counter counter = current.getValue();
+			if (counter.value <= remaining) {
+				throw new ConcurrentModificationException();
+			}
+			removable = false;
+			size--;
+			if (--counter.value == 0) {
+				entryIterator.remove();
+			}
 		}
-		return size;
 	}
 }
@@ -16,9 +16,13 @@
 
 package org.kocakosm.pitaya.collection;
 
+import org.kocakosm.pitaya.util.Parameters;
+
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * Immutable {@link Bag} implementation. Accepts {@code null} values.
@@ -96,7 +100,7 @@ public final class ImmutableBag<E> extends AbstractBag<E>
 		 */
 		public Bag<E> build()
 		{
-			return new ImmutableBag<E>(inner);
+			return new ImmutableBag<E>(new HashBag<E>(inner));
 		}
 	}
 
@@ -161,6 +165,7 @@ public final class ImmutableBag<E> extends AbstractBag<E>
 	}
 
 	private final Bag<E> inner;
+	private volatile List<E> ranking;
 
 	private ImmutableBag(Bag<E> inner)
 	{
@@ -173,6 +178,23 @@ public final class ImmutableBag<E> extends AbstractBag<E>
 		return inner.count(e);
 	}
 
+	/**
+	 * {@inheritDoc} The distinct elements are ranked once, on the first
+	 * call, subsequent calls run in {@code O(k)} time.
+	 */
+	@Override
+	public List<E> top(int k)
+	{
+		Parameters.checkCondition(k >= 0);
+		List<E> r = ranking;
+		if (r == null) {
+			r = inner.top(Integer.MAX_VALUE);
+			ranking = r;
+		}
+		return Collections.unmodifiableList(
+			r.subList(0, Math.min(k, r.size())));
+	}
+
 	@Override
 	public int size()
 	{
@@ -0,0 +1,48 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An {@link Iterator}-like cursor over a sequence of {@code int}s that doesn't
+ * box them.
+ *
+ * @see IntBag
+ * @see IntSet
+ *
+ * @author Osman KOCAK
+ */
+public interface IntIterator
+{
+	/**
+	 * Returns whether the iteration has more elements.
+	 *
+	 * @return whether the iteration has more elements.
+	 */
+	boolean hasNext();
+
+	/**
+	 * Returns the next element in the iteration.
+	 *
+	 * @return the next element in the iteration.
+	 *
+	 * @throws NoSuchElementException if the iteration has no more elements.
+	 */
+	int next();
+}
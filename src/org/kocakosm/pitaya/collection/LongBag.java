@@ -0,0 +1,531 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A bag of {@code long}s, that is, a multiset of primitive {@code long} values,
+ * backed by an open-addressing hash table with linear probing. Each distinct
+ * element is stored once, next to its number of occurrences, in two parallel
+ * arrays: no element is boxed and no per-element object is allocated. Like
+ * {@link HashBag}, {@link #add(long)}, {@link #remove(long)} and
+ * {@link #count(long)} run in constant time and memory usage only depends on
+ * the number of distinct elements. The behavior of an iterator is undefined if
+ * the bag is modified while the iteration is in progress. Instances of this
+ * class are not thread-safe.
+ *
+ * @see LongIterator
+ *
+ * @author Osman KOCAK
+ */
+public final class LongBag
+{
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	/**
+	 * Creates a new {@code LongBag} containing the given elements.
+	 *
+	 * @param elements the elements to use to populate the created bag.
+	 *
+	 * @return the created bag.
+	 *
+	 * @throws NullPointerException if {@code elements} is {@code null}.
+	 */
+	public static LongBag of(long... elements)
+	{
+		LongBag bag = new LongBag();
+		bag.addAll(elements);
+		return bag;
+	}
+
+	private long[] keys;
+	private int[] counts;
+	private int mask;
+	private int distinct;
+	private long size;
+
+	/** Creates a new empty {@code LongBag}. */
+	public LongBag()
+	{
+		this(16);
+	}
+
+	/**
+	 * Creates a new empty {@code LongBag} able to hold the given number of
+	 * distinct elements without being resized.
+	 *
+	 * @param expectedSize the expected number of distinct elements.
+	 *
+	 * @throws IllegalArgumentException if {@code expectedSize} is negative.
+	 */
+	public LongBag(int expectedSize)
+	{
+		Parameters.checkCondition(expectedSize >= 0);
+		allocate(capacity(expectedSize));
+	}
+
+	/**
+	 * Adds one occurrence of the given element to this bag.
+	 *
+	 * @param e the element to add.
+	 *
+	 * @return the count of the element before the operation.
+	 *
+	 * @throws IllegalArgumentException if the element's count would exceed
+	 *	{@link Integer#MAX_VALUE} or if this bag cannot grow any further.
+	 */
+	public int add(long e)
+	{
+		return add(e, 1);
+	}
+
+	/**
+	 * Adds the given number of occurrences of the given element to this
+	 * bag.
+	 *
+	 * @param e the element to add.
+	 * @param occurrences the number of occurrences to add.
+	 *
+	 * @return the count of the element before the operation.
+	 *
+	 * @throws IllegalArgumentException if {@code occurrences} is negative,
+	 *	if the element's count would exceed {@link Integer#MAX_VALUE} or
+	 *	if this bag cannot grow any further.
+	 */
+	public int add(long e, int occurrences)
+	{
+		Parameters.checkCondition(occurrences >= 0);
+		if (occurrences == 0) {
+			return count(e);
+		}
+		int i = slot(e);
+		int count = counts[i];
+		Parameters.checkCondition(occurrences <= Integer.MAX_VALUE - count);
+		if (count == 0) {
+			if (distinct >= maxFill(keys.length)) {
+				Parameters.checkCondition(keys.length < MAX_CAPACITY);
+				resize(keys.length << 1);
+				i = slot(e);
+			}
+			keys[i] = e;
+			distinct++;
+		}
+		counts[i] = count + occurrences;
+		size += occurrences;
+		return count;
+	}
+
+	/**
+	 * Adds one occurrence of each of the given elements to this bag.
+	 *
+	 * @param elements the elements to add.
+	 *
+	 * @throws NullPointerException if {@code elements} is {@code null}.
+	 * @throws IllegalArgumentException if an element's count would exceed
+	 *	{@link Integer#MAX_VALUE} or if this bag cannot grow any further.
+	 */
+	public void addAll(long... elements)
+	{
+		addAll(elements, 0, elements.length);
+	}
+
+	/**
+	 * Adds one occurrence of each of the elements in the specified range
+	 * of the given array to this bag.
+	 *
+	 * @param elements the elements to add.
+	 * @param off the offset of the first element to add.
+	 * @param len the number of elements to add.
+	 *
+	 * @throws NullPointerException if {@code elements} is {@code null}.
+	 * @throws IndexOutOfBoundsException if {@code off} or {@code len} is
+	 *	negative or if {@code off + len} is greater than the array's
+	 *	length.
+	 * @throws IllegalArgumentException if an element's count would exceed
+	 *	{@link Integer#MAX_VALUE} or if this bag cannot grow any further.
+	 */
+	public void addAll(long[] elements, int off, int len)
+	{
+		if (off < 0 || len < 0 || off > elements.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		for (int i = off; i < off + len; i++) {
+			add(elements[i], 1);
+		}
+	}
+
+	/**
+	 * Removes one occurrence of the given element from this bag, if
+	 * present.
+	 *
+	 * @param e the element to remove.
+	 *
+	 * @return the count of the element before the operation.
+	 */
+	public int remove(long e)
+	{
+		return remove(e, 1);
+	}
+
+	/**
+	 * Removes the given number of occurrences of the given element from
+	 * this bag. If the bag contains fewer occurrences than requested, all
+	 * of them are removed.
+	 *
+	 * @param e the element to remove.
+	 * @param occurrences the number of occurrences to remove.
+	 *
+	 * @return the count of the element before the operation.
+	 *
+	 * @throws IllegalArgumentException if {@code occurrences} is negative.
+	 */
+	public int remove(long e, int occurrences)
+	{
+		Parameters.checkCondition(occurrences >= 0);
+		int i = find(e);
+		if (i < 0) {
+			return 0;
+		}
+		int count = counts[i];
+		if (occurrences >= count) {
+			size -= count;
+			delete(i);
+		} else {
+			counts[i] = count - occurrences;
+			size -= occurrences;
+		}
+		return count;
+	}
+
+	/**
+	 * Removes all the occurrences of each of the given elements from this
+	 * bag.
+	 *
+	 * @param elements the elements to remove.
+	 *
+	 * @return whether this bag changed as a result of the call.
+	 *
+	 * @throws NullPointerException if {@code elements} is {@code null}.
+	 */
+	public boolean removeAll(long... elements)
+	{
+		boolean removed = false;
+		for (long e : elements) {
+			removed |= remove(e, Integer.MAX_VALUE) > 0;
+		}
+		return removed;
+	}
+
+	/**
+	 * Sets the count of the given element in this bag, adding or removing
+	 * occurrences as necessary.
+	 *
+	 * @param e the element whose count is to be set.
+	 * @param count the element's new count.
+	 *
+	 * @return the count of the element before the operation.
+	 *
+	 * @throws IllegalArgumentException if {@code count} is negative.
+	 */
+	public int setCount(long e, int count)
+	{
+		Parameters.checkCondition(count >= 0);
+		int i = find(e);
+		if (i < 0) {
+			return add(e, count);
+		}
+		int old = counts[i];
+		if (count == 0) {
+			delete(i);
+		} else {
+			counts[i] = count;
+		}
+		size += count - old;
+		return old;
+	}
+
+	/**
+	 * Returns the count of the given element in this bag.
+	 *
+	 * @param e the element to count.
+	 *
+	 * @return the number of occurrences of the element in this bag.
+	 */
+	public int count(long e)
+	{
+		int i = find(e);
+		return i < 0 ? 0 : counts[i];
+	}
+
+	/**
+	 * Returns the counts of the given elements in this bag.
+	 *
+	 * @param elements the elements to count.
+	 *
+	 * @return the counts of the given elements, in the same order.
+	 *
+	 * @throws NullPointerException if {@code elements} is {@code null}.
+	 */
+	public int[] counts(long... elements)
+	{
+		int[] result = new int[elements.length];
+		for (int i = 0; i < elements.length; i++) {
+			result[i] = count(elements[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns whether this bag contains at least one occurrence of the
+	 * given element.
+	 *
+	 * @param e the element to search for.
+	 *
+	 * @return whether this bag contains the given element.
+	 */
+	public boolean contains(long e)
+	{
+		return find(e) >= 0;
+	}
+
+	/**
+	 * Returns the total number of occurrences in this bag.
+	 *
+	 * @return the number of elements in this bag, duplicates included.
+	 */
+	public long size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns the number of distinct elements in this bag.
+	 *
+	 * @return the number of distinct elements in this bag.
+	 */
+	public int distinctCount()
+	{
+		return distinct;
+	}
+
+	/**
+	 * Returns whether this bag is empty.
+	 *
+	 * @return whether this bag is empty.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/** Removes all the elements from this bag. */
+	public void clear()
+	{
+		Arrays.fill(counts, 0);
+		distinct = 0;
+		size = 0;
+	}
+
+	/**
+	 * Returns the distinct elements of this bag, in no particular order.
+	 *
+	 * @return the distinct elements of this bag.
+	 */
+	public long[] elements()
+	{
+		long[] elements = new long[distinct];
+		int n = 0;
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0) {
+				elements[n++] = keys[i];
+			}
+		}
+		return elements;
+	}
+
+	/**
+	 * Returns an iterator over the elements of this bag, each distinct
+	 * element being returned as many times as its count.
+	 *
+	 * @return an iterator over the elements of this bag.
+	 */
+	public LongIterator iterator()
+	{
+		return new LongIterator()
+		{
+			private int slot = -1;
+			private int remaining;
+
+			@Override
+			public boolean hasNext()
+			{
+				while (remaining == 0 && slot < counts.length - 1) {
+					remaining = counts[++slot];
+				}
+				return remaining > 0;
+			}
+
+			@Override
+			public long next()
+			{
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				remaining--;
+				return keys[slot];
+			}
+		};
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof LongBag)) {
+			return false;
+		}
+		LongBag bag = (LongBag) o;
+		if (size != bag.size || distinct != bag.distinct) {
+			return false;
+		}
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0 && bag.count(keys[i]) != counts[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = 0;
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0) {
+				hash += hash(keys[i]) ^ counts[i];
+			}
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0) {
+				sb.append(sb.length() > 1 ? ", " : "").append(keys[i]);
+				sb.append(" x ").append(counts[i]);
+			}
+		}
+		return sb.append(']').toString();
+	}
+
+	/** Returns the slot of the given element, or -1 if it is absent. */
+	private int find(long e)
+	{
+		int i = hash(e) & mask;
+		while (counts[i] > 0) {
+			if (keys[i] == e) {
+				return i;
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	/** Returns the slot of the given element, or the free slot for it. */
+	private int slot(long e)
+	{
+		int i = hash(e) & mask;
+		while (counts[i] > 0 && keys[i] != e) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/**
+	 * Frees the given slot, shifting back the entries of its probe run
+	 * so that no tombstone is needed.
+	 */
+	private void delete(int slot)
+	{
+		distinct--;
+		int last = slot;
+		int i = (slot + 1) & mask;
+		while (counts[i] > 0) {
+			int home = hash(keys[i]) & mask;
+			if (((i - home) & mask) >= ((i - last) & mask)) {
+				keys[last] = keys[i];
+				counts[last] = counts[i];
+				last = i;
+			}
+			i = (i + 1) & mask;
+		}
+		counts[last] = 0;
+	}
+
+	private void resize(int capacity)
+	{
+		Parameters.checkCondition(capacity <= MAX_CAPACITY);
+		long[] oldKeys = keys;
+		int[] oldCounts = counts;
+		allocate(capacity);
+		for (int i = 0; i < oldCounts.length; i++) {
+			if (oldCounts[i] > 0) {
+				int j = slot(oldKeys[i]);
+				keys[j] = oldKeys[i];
+				counts[j] = oldCounts[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity)
+	{
+		this.keys = new long[capacity];
+		this.counts = new int[capacity];
+		this.mask = capacity - 1;
+	}
+
+	private static int maxFill(int capacity)
+	{
+		return capacity - (capacity >>> 2);
+	}
+
+	private static int capacity(int expectedSize)
+	{
+		int capacity = 16;
+		while (maxFill(capacity) < expectedSize) {
+			Parameters.checkCondition(capacity < MAX_CAPACITY);
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private static int hash(long e)
+	{
+		long h = (e ^ (e >>> 33)) * 0xFF51AFD7ED558CCDL;
+		h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return (int) (h ^ (h >>> 33));
+	}
+}
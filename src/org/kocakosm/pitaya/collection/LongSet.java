@@ -0,0 +1,430 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of primitive {@code long} values, backed by an open-addressing hash
+ * table with linear probing. No element is boxed and no per-element object is
+ * allocated. The behavior of an iterator is undefined if the set is modified
+ * while the iteration is in progress. Instances of this class are not
+ * thread-safe.
+ *
+ * @see LongIterator
+ * @see LongBag
+ *
+ * @author Osman KOCAK
+ */
+public final class LongSet
+{
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	/**
+	 * Creates a new {@code LongSet} containing the given elements.
+	 *
+	 * @param elements the elements to use to populate the created set.
+	 *
+	 * @return the created set.
+	 *
+	 * @throws NullPointerException if {@code elements} is {@code null}.
+	 */
+	public static LongSet of(long... elements)
+	{
+		LongSet set = new LongSet(elements.length);
+		set.addAll(elements);
+		return set;
+	}
+
+	/* 0 marks free slots, the 0 element itself is tracked separately. */
+	private long[] keys;
+	private int mask;
+	private int size;
+	private boolean containsZero;
+
+	/** Creates a new empty {@code LongSet}. */
+	public LongSet()
+	{
+		this(16);
+	}
+
+	/**
+	 * Creates a new empty {@code LongSet} able to hold the given number of
+	 * elements without being resized.
+	 *
+	 * @param expectedSize the expected number of elements.
+	 *
+	 * @throws IllegalArgumentException if {@code expectedSize} is negative.
+	 */
+	public LongSet(int expectedSize)
+	{
+		Parameters.checkCondition(expectedSize >= 0);
+		allocate(capacity(expectedSize));
+	}
+
+	/**
+	 * Adds the given element to this set if it is not already present.
+	 *
+	 * @param e the element to add.
+	 *
+	 * @return whether this set changed as a result of the call.
+	 *
+	 * @throws IllegalArgumentException if this set cannot grow any further.
+	 */
+	public boolean add(long e)
+	{
+		if (e == 0) {
+			if (containsZero) {
+				return false;
+			}
+			containsZero = true;
+			size++;
+			return true;
+		}
+		int i = slot(e);
+		if (keys[i] != 0) {
+			return false;
+		}
+		if (size >= maxFill(keys.length)) {
+			Parameters.checkCondition(keys.length < MAX_CAPACITY);
+			resize(keys.length << 1);
+			i = slot(e);
+		}
+		keys[i] = e;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Adds all of the given elements to this set.
+	 *
+	 * @param elements the elements to add.
+	 *
+	 * @return whether this set changed as a result of the call.
+	 *
+	 * @throws NullPointerException if {@code elements} is {@code null}.
+	 * @throws IllegalArgumentException if this set cannot grow any further.
+	 */
+	public boolean addAll(long... elements)
+	{
+		return addAll(elements, 0, elements.length);
+	}
+
+	/**
+	 * Adds all of the elements in the specified range of the given array
+	 * to this set.
+	 *
+	 * @param elements the elements to add.
+	 * @param off the offset of the first element to add.
+	 * @param len the number of elements to add.
+	 *
+	 * @return whether this set changed as a result of the call.
+	 *
+	 * @throws NullPointerException if {@code elements} is {@code null}.
+	 * @throws IndexOutOfBoundsException if {@code off} or {@code len} is
+	 *	negative or if {@code off + len} is greater than the array's
+	 *	length.
+	 * @throws IllegalArgumentException if this set cannot grow any further.
+	 */
+	public boolean addAll(long[] elements, int off, int len)
+	{
+		if (off < 0 || len < 0 || off > elements.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		boolean added = false;
+		for (int i = off; i < off + len; i++) {
+			added |= add(elements[i]);
+		}
+		return added;
+	}
+
+	/**
+	 * Removes the given element from this set, if present.
+	 *
+	 * @param e the element to remove.
+	 *
+	 * @return whether this set changed as a result of the call.
+	 */
+	public boolean remove(long e)
+	{
+		if (e == 0) {
+			if (!containsZero) {
+				return false;
+			}
+			containsZero = false;
+			size--;
+			return true;
+		}
+		int i = slot(e);
+		if (keys[i] == 0) {
+			return false;
+		}
+		delete(i);
+		size--;
+		return true;
+	}
+
+	/**
+	 * Removes all of the given elements from this set.
+	 *
+	 * @param elements the elements to remove.
+	 *
+	 * @return whether this set changed as a result of the call.
+	 *
+	 * @throws NullPointerException if {@code elements} is {@code null}.
+	 */
+	public boolean removeAll(long... elements)
+	{
+		boolean removed = false;
+		for (long e : elements) {
+			removed |= remove(e);
+		}
+		return removed;
+	}
+
+	/**
+	 * Returns whether this set contains the given element.
+	 *
+	 * @param e the element to search for.
+	 *
+	 * @return whether this set contains the given element.
+	 */
+	public boolean contains(long e)
+	{
+		return e == 0 ? containsZero : keys[slot(e)] != 0;
+	}
+
+	/**
+	 * Returns whether this set contains all of the given elements.
+	 *
+	 * @param elements the elements to search for.
+	 *
+	 * @return whether this set contains all of the given elements.
+	 *
+	 * @throws NullPointerException if {@code elements} is {@code null}.
+	 */
+	public boolean containsAll(long... elements)
+	{
+		for (long e : elements) {
+			if (!contains(e)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of elements in this set.
+	 *
+	 * @return the number of elements in this set.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns whether this set is empty.
+	 *
+	 * @return whether this set is empty.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/** Removes all the elements from this set. */
+	public void clear()
+	{
+		Arrays.fill(keys, 0);
+		containsZero = false;
+		size = 0;
+	}
+
+	/**
+	 * Returns the elements of this set, in no particular order.
+	 *
+	 * @return the elements of this set.
+	 */
+	public long[] toArray()
+	{
+		long[] elements = new long[size];
+		int n = containsZero ? 1 : 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != 0) {
+				elements[n++] = keys[i];
+			}
+		}
+		return elements;
+	}
+
+	/**
+	 * Returns an iterator over the elements of this set.
+	 *
+	 * @return an iterator over the elements of this set.
+	 */
+	public LongIterator iterator()
+	{
+		return new LongIterator()
+		{
+			private int slot = containsZero ? -2 : -1;
+
+			@Override
+			public boolean hasNext()
+			{
+				if (slot == -2) {
+					return true;
+				}
+				int i = slot + 1;
+				while (i < keys.length && keys[i] == 0) {
+					i++;
+				}
+				return i < keys.length;
+			}
+
+			@Override
+			public long next()
+			{
+				if (slot == -2) {
+					slot = -1;
+					return 0;
+				}
+				do {
+					slot++;
+				} while (slot < keys.length && keys[slot] == 0);
+				if (slot >= keys.length) {
+					throw new NoSuchElementException();
+				}
+				return keys[slot];
+			}
+		};
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof LongSet)) {
+			return false;
+		}
+		LongSet set = (LongSet) o;
+		if (size != set.size || containsZero != set.containsZero) {
+			return false;
+		}
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != 0 && !set.contains(keys[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = 0;
+		for (int i = 0; i < keys.length; i++) {
+			hash += (int) (keys[i] ^ (keys[i] >>> 32));
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder("[");
+		LongIterator i = iterator();
+		while (i.hasNext()) {
+			sb.append(sb.length() > 1 ? ", " : "").append(i.next());
+		}
+		return sb.append(']').toString();
+	}
+
+	/** Returns the slot of the given element, or the free slot for it. */
+	private int slot(long e)
+	{
+		int i = hash(e) & mask;
+		while (keys[i] != 0 && keys[i] != e) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/**
+	 * Frees the given slot, shifting back the entries of its probe run
+	 * so that no tombstone is needed.
+	 */
+	private void delete(int slot)
+	{
+		int last = slot;
+		int i = (slot + 1) & mask;
+		while (keys[i] != 0) {
+			int home = hash(keys[i]) & mask;
+			if (((i - home) & mask) >= ((i - last) & mask)) {
+				keys[last] = keys[i];
+				last = i;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[last] = 0;
+	}
+
+	private void resize(int capacity)
+	{
+		Parameters.checkCondition(capacity <= MAX_CAPACITY);
+		long[] oldKeys = keys;
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != 0) {
+				keys[slot(oldKeys[i])] = oldKeys[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity)
+	{
+		this.keys = new long[capacity];
+		this.mask = capacity - 1;
+	}
+
+	private static int maxFill(int capacity)
+	{
+		return capacity - (capacity >>> 2);
+	}
+
+	private static int capacity(int expectedSize)
+	{
+		int capacity = 16;
+		while (maxFill(capacity) < expectedSize) {
+			Parameters.checkCondition(capacity < MAX_CAPACITY);
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private static int hash(long e)
+	{
+		long h = (e ^ (e >>> 33)) * 0xFF51AFD7ED558CCDL;
+		h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return (int) (h ^ (h >>> 33));
+	}
+}
@@ -0,0 +1,101 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Selects the {@code k} most frequent elements among a stream of distinct
+ * elements and their counts, using a bounded min-heap: each offer runs in
+ * {@code O(log k)} time. Not thread-safe.
+ *
+ * @param <E> the type of the elements.
+ *
+ * @author Osman KOCAK
+ */
+final class TopK<E>
+{
+	private final int k;
+	private final PriorityQueue<Entry<E>> heap;
+
+	/**
+	 * Creates a new {@code TopK}.
+	 *
+	 * @param k the number of elements to select.
+	 */
+	TopK(int k)
+	{
+		this.k = k;
+		this.heap = new PriorityQueue<Entry<E>>(Math.max(1, Math.min(k, 1024)));
+	}
+
+	/**
+	 * Offers the given element, with the given count.
+	 *
+	 * @param e the element.
+	 * @param count the element's count.
+	 */
+	void offer(E e, int count)
+	{
+		if (k == 0 || count <= 0) {
+			return;
+		}
+		if (heap.size() < k) {
+			heap.add(new Entry<E>(e, count));
+		} else if (count > heap.peek().count) {
+			heap.poll();
+			heap.add(new Entry<E>(e, count));
+		}
+	}
+
+	/**
+	 * Returns the selected elements, by descending count.
+	 *
+	 * @return the selected elements.
+	 */
+	List<E> toList()
+	{
+		List<Entry<E>> entries = new ArrayList<Entry<E>>(heap);
+		Collections.sort(entries);
+		List<E> top = new ArrayList<E>(entries.size());
+		for (int i = entries.size() - 1; i >= 0; i--) {
+			top.add(entries.get(i).element);
+		}
+		return top;
+	}
+
+	private static final class Entry<E> implements Comparable<Entry<E>>
+	{
+		final E element;
+		final int count;
+
+		Entry(E element, int count)
+		{
+			this.element = element;
+			this.count = count;
+		}
+
+		@Override
+		public int compareTo(Entry<E> o)
+		{
+			return count < o.count ? -1 : (count == o.count ? 0 : 1);
+		}
+	}
+}
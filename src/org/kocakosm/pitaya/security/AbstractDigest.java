@@ -16,8 +16,16 @@
 
 package org.kocakosm.pitaya.security;
 
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+import org.kocakosm.pitaya.io.IO;
+
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * Abstract skeleton implementation of the {@link Digest} interface.
@@ -26,8 +34,15 @@ import java.io.InputStream;
  */
 abstract class AbstractDigest implements Digest
 {
+	/** Maximum size of the file regions mapped by {@link #update(File)}. */
+	private static final long MAX_REGION_SIZE = 1L << 26;
+
+	/** Size below which {@link #update(File)} reads instead of mapping. */
+	private static final long MIN_MAPPED_SIZE = 1L << 18;
+
 	private final String name;
 	private final int length;
+	private byte[] scratch;
 
 	/**
 	 * Creates a new {@code AbstractDigest}.
@@ -56,7 +71,7 @@ abstract class AbstractDigest implements Digest
 	@Override
 	public Digest update(InputStream input) throws IOException
 	{
-		byte[] buf = new byte[2048];
+		byte[] buf = scratch();
 		int len = input.read(buf);
 		while (len >= 0) {
 			update(buf, 0, len);
@@ -65,6 +80,62 @@ abstract class AbstractDigest implements Digest
 		return this;
 	}
 
+	@Override
+	public Digest update(ByteBuffer input)
+	{
+		if (input.hasArray()) {
+			int off = input.arrayOffset() + input.position();
+			update(input.array(), off, input.remaining());
+			input.position(input.limit());
+		} else {
+			byte[] buf = scratch();
+			while (input.hasRemaining()) {
+				int len = Math.min(buf.length, input.remaining());
+				input.get(buf, 0, len);
+				update(buf, 0, len);
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public Digest update(File input) throws IOException
+	{
+		FileInputStream in = new FileInputStream(input);
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			if (size < MIN_MAPPED_SIZE) {
+				return update(in);
+			}
+			for (long pos = 0; pos < size; pos += MAX_REGION_SIZE) {
+				long len = Math.min(MAX_REGION_SIZE, size - pos);
+				update(channel.map(READ_ONLY, pos, len));
+			}
+		} finally {
+			IO.close(in);
+		}
+		return this;
+	}
+
+	@Override
+	public byte[] digest()
+	{
+		byte[] out = new byte[length];
+		doFinal(out, 0);
+		return out;
+	}
+
+	@Override
+	public int digest(byte[] out, int off)
+	{
+		if (off < 0 || off > out.length - length) {
+			throw new IndexOutOfBoundsException();
+		}
+		doFinal(out, off);
+		return length;
+	}
+
 	@Override
 	public byte[] digest(byte... input)
 	{
@@ -83,6 +154,46 @@ abstract class AbstractDigest implements Digest
 		return update(input).digest();
 	}
 
+	@Override
+	public abstract AbstractDigest copy();
+
+	/**
+	 * Overwrites this engine's internal state with a copy of the given
+	 * engine's one. This is the counterpart of {@link #copy()} meant to
+	 * rewind an engine to a previously saved state. It is allocation-free
+	 * for the digests implemented in this package; JCA-backed digests
+	 * can't overwrite a {@code MessageDigest}'s state in place, so they
+	 * clone the saved one instead.
+	 *
+	 * @param state an engine of the same algorithm (and length) as this
+	 *	one, holding the state to restore.
+	 */
+	abstract void restore(AbstractDigest state);
+
+	/**
+	 * Returns this digest's work buffer, used to move data from streams and
+	 * direct buffers into the engine. It is allocated on first use and then
+	 * reused for the engine's whole lifetime.
+	 */
+	private byte[] scratch()
+	{
+		if (scratch == null) {
+			scratch = new byte[4096];
+		}
+		return scratch;
+	}
+
+	/**
+	 * Completes the hash computation, writes the resulting digest into the
+	 * given array, starting at the specified offset, and resets the engine.
+	 * Implementations may assume that {@code out} is large enough to hold
+	 * the digest.
+	 *
+	 * @param out the output buffer.
+	 * @param off the offset at which to start writing in {@code out}.
+	 */
+	abstract void doFinal(byte[] out, int off);
+
 	@Override
 	public String toString()
 	{
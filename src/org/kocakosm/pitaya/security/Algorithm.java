@@ -55,6 +55,24 @@ public final class Algorithm<T>
 	/** The Keccak-512 digest algorithm. */
 	public static final Algorithm<Digest> KECCAK512 = new Algorithm<Digest>("Keccak-512");
 
+	/** The SHA3-224 digest algorithm. */
+	public static final Algorithm<Digest> SHA3_224 = new Algorithm<Digest>("SHA3-224");
+
+	/** The SHA3-256 digest algorithm. */
+	public static final Algorithm<Digest> SHA3_256 = new Algorithm<Digest>("SHA3-256");
+
+	/** The SHA3-384 digest algorithm. */
+	public static final Algorithm<Digest> SHA3_384 = new Algorithm<Digest>("SHA3-384");
+
+	/** The SHA3-512 digest algorithm. */
+	public static final Algorithm<Digest> SHA3_512 = new Algorithm<Digest>("SHA3-512");
+
+	/** The BLAKE2b-512 digest algorithm. */
+	public static final Algorithm<Digest> BLAKE2B = new Algorithm<Digest>("BLAKE2b-512");
+
+	/** The BLAKE2s-256 digest algorithm. */
+	public static final Algorithm<Digest> BLAKE2S = new Algorithm<Digest>("BLAKE2s-256");
+
 	/** The HMAC-MD2 MAC algorithm. */
 	public static final Algorithm<MAC> HMAC_MD2 = new Algorithm<MAC>("HMAC-MD2");
 
@@ -85,6 +103,30 @@ public final class Algorithm<T>
 	/** The HMAC-Keccak-512 MAC algorithm. */
 	public static final Algorithm<MAC> HMAC_KECCAK512 = new Algorithm<MAC>("HMAC-Keccak-512");
 
+	/** The HMAC-SHA3-224 MAC algorithm. */
+	public static final Algorithm<MAC> HMAC_SHA3_224 = new Algorithm<MAC>("HMAC-SHA3-224");
+
+	/** The HMAC-SHA3-256 MAC algorithm. */
+	public static final Algorithm<MAC> HMAC_SHA3_256 = new Algorithm<MAC>("HMAC-SHA3-256");
+
+	/** The HMAC-SHA3-384 MAC algorithm. */
+	public static final Algorithm<MAC> HMAC_SHA3_384 = new Algorithm<MAC>("HMAC-SHA3-384");
+
+	/** The HMAC-SHA3-512 MAC algorithm. */
+	public static final Algorithm<MAC> HMAC_SHA3_512 = new Algorithm<MAC>("HMAC-SHA3-512");
+
+	/** The HMAC-BLAKE2b-512 MAC algorithm. */
+	public static final Algorithm<MAC> HMAC_BLAKE2B = new Algorithm<MAC>("HMAC-BLAKE2b-512");
+
+	/** The HMAC-BLAKE2s-256 MAC algorithm. */
+	public static final Algorithm<MAC> HMAC_BLAKE2S = new Algorithm<MAC>("HMAC-BLAKE2s-256");
+
+	/** The keyed BLAKE2b-512 MAC algorithm (keys up to 64 bytes). */
+	public static final Algorithm<MAC> BLAKE2B_MAC = new Algorithm<MAC>("BLAKE2b-512-MAC");
+
+	/** The keyed BLAKE2s-256 MAC algorithm (keys up to 32 bytes). */
+	public static final Algorithm<MAC> BLAKE2S_MAC = new Algorithm<MAC>("BLAKE2s-256-MAC");
+
 	private final String name;
 
 	private Algorithm(String name)
@@ -0,0 +1,297 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.util.Bits;
+import org.kocakosm.pitaya.util.LittleEndian;
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.util.Arrays;
+
+/**
+ * The BLAKE2s digest algorithm (RFC 7693), optionally keyed, in which case it
+ * acts as a MAC. Instances of this class are not thread safe.
+ *
+ * @author Osman KOCAK
+ */
+final class BLAKE2s extends AbstractDigest
+{
+	/** Maximum digest (and key) length, in bytes. */
+	static final int MAX_LENGTH = 32;
+
+	private static final int BLOCK_LENGTH = 64;
+
+	/** Initialization vector (same as SHA-256's one). */
+	private static final int[] IV = SHA2.IV256;
+
+	/** Message word permutations. */
+	private static final int[][] SIGMA = {
+		{0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15},
+		{14, 10, 4, 8, 9, 15, 13, 6, 1, 12, 0, 2, 11, 7, 5, 3},
+		{11, 8, 12, 0, 5, 2, 15, 13, 10, 14, 3, 6, 7, 1, 9, 4},
+		{7, 9, 3, 1, 13, 12, 11, 14, 2, 6, 5, 10, 4, 0, 15, 8},
+		{9, 0, 5, 7, 2, 4, 10, 15, 14, 1, 11, 12, 6, 8, 3, 13},
+		{2, 12, 6, 10, 0, 11, 8, 3, 4, 13, 7, 5, 15, 14, 1, 9},
+		{12, 5, 1, 15, 14, 13, 4, 10, 0, 7, 6, 3, 9, 2, 8, 11},
+		{13, 11, 7, 14, 12, 1, 3, 9, 5, 0, 15, 4, 8, 6, 2, 10},
+		{6, 15, 14, 9, 11, 3, 0, 8, 12, 2, 13, 7, 1, 4, 10, 5},
+		{10, 2, 8, 4, 7, 6, 1, 5, 15, 11, 9, 14, 3, 12, 13, 0}
+	};
+
+	/** The key, zero-padded to a full block, or {@code null}. */
+	private final byte[] key;
+
+	/** The key length, in bytes. */
+	private final int keyLen;
+
+	/** Current hash value (8 32-bit words). */
+	private final int[] h;
+
+	/** Current message block, decoded. */
+	private final int[] m;
+
+	/** Input buffer. */
+	private final byte[] buffer;
+
+	/** Number of bytes in the input buffer. */
+	private int bufferLen;
+
+	/** Number of bytes compressed so far. */
+	private long counter;
+
+	/**
+	 * Creates a new ready to use unkeyed {@code BLAKE2s}.
+	 *
+	 * @param length the digest length (in bytes).
+	 *
+	 * @throws IllegalArgumentException if {@code length} is not in
+	 *	[1, 32].
+	 */
+	BLAKE2s(int length)
+	{
+		this(length, new byte[0]);
+	}
+
+	/**
+	 * Creates a new ready to use keyed {@code BLAKE2s}. An empty key means
+	 * unkeyed hashing.
+	 *
+	 * @param length the digest length (in bytes).
+	 * @param key the secret key.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 * @throws IllegalArgumentException if {@code length} is not in
+	 *	[1, 32] or if {@code key} is longer than 32 bytes.
+	 */
+	BLAKE2s(int length, byte[] key)
+	{
+		super("BLAKE2s-" + length * 8, length);
+		Parameters.checkCondition(length > 0 && length <= MAX_LENGTH);
+		Parameters.checkCondition(key.length <= MAX_LENGTH);
+		this.key = key.length == 0 ? null : Arrays.copyOf(key, BLOCK_LENGTH);
+		this.keyLen = key.length;
+		this.h = new int[8];
+		this.m = new int[16];
+		this.buffer = new byte[BLOCK_LENGTH];
+		reset();
+	}
+
+	private BLAKE2s(BLAKE2s state)
+	{
+		super(state.toString(), state.length());
+		this.key = state.key;
+		this.keyLen = state.keyLen;
+		this.h = new int[8];
+		this.m = new int[16];
+		this.buffer = new byte[BLOCK_LENGTH];
+		restore(state);
+	}
+
+	@Override
+	public Digest reset()
+	{
+		System.arraycopy(IV, 0, h, 0, 8);
+		h[0] ^= 0x01010000 ^ (keyLen << 8) ^ length();
+		counter = 0L;
+		bufferLen = 0;
+		if (key != null) {
+			System.arraycopy(key, 0, buffer, 0, BLOCK_LENGTH);
+			bufferLen = BLOCK_LENGTH;
+		}
+		return this;
+	}
+
+	@Override
+	public Digest update(byte input)
+	{
+		if (bufferLen == BLOCK_LENGTH) {
+			counter += BLOCK_LENGTH;
+			compress(buffer, 0, false);
+			bufferLen = 0;
+		}
+		buffer[bufferLen++] = input;
+		return this;
+	}
+
+	@Override
+	public Digest update(byte[] input, int off, int len)
+	{
+		if (len == 0) {
+			return this;
+		}
+		if (bufferLen > 0) {
+			int cpLen = Math.min(BLOCK_LENGTH - bufferLen, len);
+			System.arraycopy(input, off, buffer, bufferLen, cpLen);
+			bufferLen += cpLen;
+			off += cpLen;
+			len -= cpLen;
+			if (len == 0) {
+				return this;
+			}
+			counter += BLOCK_LENGTH;
+			compress(buffer, 0, false);
+			bufferLen = 0;
+		}
+		while (len > BLOCK_LENGTH) {
+			counter += BLOCK_LENGTH;
+			compress(input, off, false);
+			off += BLOCK_LENGTH;
+			len -= BLOCK_LENGTH;
+		}
+		System.arraycopy(input, off, buffer, 0, len);
+		bufferLen = len;
+		return this;
+	}
+
+	@Override
+	public AbstractDigest copy()
+	{
+		return new BLAKE2s(this);
+	}
+
+	@Override
+	void restore(AbstractDigest state)
+	{
+		BLAKE2s blake2 = (BLAKE2s) state;
+		System.arraycopy(blake2.h, 0, h, 0, 8);
+		System.arraycopy(blake2.buffer, 0, buffer, 0, blake2.bufferLen);
+		bufferLen = blake2.bufferLen;
+		counter = blake2.counter;
+	}
+
+	@Override
+	void doFinal(byte[] out, int off)
+	{
+		counter += bufferLen;
+		Arrays.fill(buffer, bufferLen, BLOCK_LENGTH, (byte) 0);
+		compress(buffer, 0, true);
+		int len = length();
+		for (int i = 0; i < len; i++) {
+			out[off + i] = (byte) (h[i / 4] >>> (8 * (i % 4)));
+		}
+		reset();
+	}
+
+	private void compress(byte[] in, int off, boolean last)
+	{
+		for (int i = 0; i < 16; i++) {
+			m[i] = LittleEndian.decodeInt(in, off + 4 * i);
+		}
+		int v0 = h[0], v1 = h[1], v2 = h[2], v3 = h[3];
+		int v4 = h[4], v5 = h[5], v6 = h[6], v7 = h[7];
+		int v8 = IV[0], v9 = IV[1], v10 = IV[2], v11 = IV[3];
+		int v12 = IV[4] ^ (int) counter;
+		int v13 = IV[5] ^ (int) (counter >>> 32);
+		int v14 = last ? ~IV[6] : IV[6];
+		int v15 = IV[7];
+		for (int r = 0; r < 10; r++) {
+			int[] s = SIGMA[r % 10];
+			v0 += v4 + m[s[0]];
+			v12 = Bits.rotateRight(v12 ^ v0, 16);
+			v8 += v12;
+			v4 = Bits.rotateRight(v4 ^ v8, 12);
+			v0 += v4 + m[s[1]];
+			v12 = Bits.rotateRight(v12 ^ v0, 8);
+			v8 += v12;
+			v4 = Bits.rotateRight(v4 ^ v8, 7);
+			v1 += v5 + m[s[2]];
+			v13 = Bits.rotateRight(v13 ^ v1, 16);
+			v9 += v13;
+			v5 = Bits.rotateRight(v5 ^ v9, 12);
+			v1 += v5 + m[s[3]];
+			v13 = Bits.rotateRight(v13 ^ v1, 8);
+			v9 += v13;
+			v5 = Bits.rotateRight(v5 ^ v9, 7);
+			v2 += v6 + m[s[4]];
+			v14 = Bits.rotateRight(v14 ^ v2, 16);
+			v10 += v14;
+			v6 = Bits.rotateRight(v6 ^ v10, 12);
+			v2 += v6 + m[s[5]];
+			v14 = Bits.rotateRight(v14 ^ v2, 8);
+			v10 += v14;
+			v6 = Bits.rotateRight(v6 ^ v10, 7);
+			v3 += v7 + m[s[6]];
+			v15 = Bits.rotateRight(v15 ^ v3, 16);
+			v11 += v15;
+			v7 = Bits.rotateRight(v7 ^ v11, 12);
+			v3 += v7 + m[s[7]];
+			v15 = Bits.rotateRight(v15 ^ v3, 8);
+			v11 += v15;
+			v7 = Bits.rotateRight(v7 ^ v11, 7);
+			v0 += v5 + m[s[8]];
+			v15 = Bits.rotateRight(v15 ^ v0, 16);
+			v10 += v15;
+			v5 = Bits.rotateRight(v5 ^ v10, 12);
+			v0 += v5 + m[s[9]];
+			v15 = Bits.rotateRight(v15 ^ v0, 8);
+			v10 += v15;
+			v5 = Bits.rotateRight(v5 ^ v10, 7);
+			v1 += v6 + m[s[10]];
+			v12 = Bits.rotateRight(v12 ^ v1, 16);
+			v11 += v12;
+			v6 = Bits.rotateRight(v6 ^ v11, 12);
+			v1 += v6 + m[s[11]];
+			v12 = Bits.rotateRight(v12 ^ v1, 8);
+			v11 += v12;
+			v6 = Bits.rotateRight(v6 ^ v11, 7);
+			v2 += v7 + m[s[12]];
+			v13 = Bits.rotateRight(v13 ^ v2, 16);
+			v8 += v13;
+			v7 = Bits.rotateRight(v7 ^ v8, 12);
+			v2 += v7 + m[s[13]];
+			v13 = Bits.rotateRight(v13 ^ v2, 8);
+			v8 += v13;
+			v7 = Bits.rotateRight(v7 ^ v8, 7);
+			v3 += v4 + m[s[14]];
+			v14 = Bits.rotateRight(v14 ^ v3, 16);
+			v9 += v14;
+			v4 = Bits.rotateRight(v4 ^ v9, 12);
+			v3 += v4 + m[s[15]];
+			v14 = Bits.rotateRight(v14 ^ v3, 8);
+			v9 += v14;
+			v4 = Bits.rotateRight(v4 ^ v9, 7);
+		}
+		h[0] ^= v0 ^ v8;
+		h[1] ^= v1 ^ v9;
+		h[2] ^= v2 ^ v10;
+		h[3] ^= v3 ^ v11;
+		h[4] ^= v4 ^ v12;
+		h[5] ^= v5 ^ v13;
+		h[6] ^= v6 ^ v14;
+		h[7] ^= v7 ^ v15;
+	}
+}
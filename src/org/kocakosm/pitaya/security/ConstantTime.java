@@ -0,0 +1,218 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+/**
+ * Constant-time comparison and bulk XOR utilities. The comparison methods
+ * always examine every element of their inputs, regardless of where (or
+ * whether) they differ, so that their running time doesn't leak how much of
+ * a secret value (a MAC, a password hash, a token...) an attacker guessed
+ * right; only the inputs' lengths may be leaked. The loops are kept in the
+ * simple, branch-free, counted form that the JIT compiler unrolls and
+ * vectorizes.
+ *
+ * @author Osman KOCAK
+ */
+public final class ConstantTime
+{
+	/**
+	 * Returns whether the given arrays are equal, in time that only depends
+	 * on their lengths.
+	 *
+	 * @param a the first array.
+	 * @param b the second array.
+	 *
+	 * @return whether {@code a} and {@code b} are equal.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 */
+	public static boolean equals(byte[] a, byte[] b)
+	{
+		if (a.length != b.length) {
+			return false;
+		}
+		return equals(a, 0, b, 0, a.length);
+	}
+
+	/**
+	 * Returns whether the specified ranges of the given arrays are equal,
+	 * in time that only depends on {@code len}.
+	 *
+	 * @param a the first array.
+	 * @param aOff the offset of the range to compare in {@code a}.
+	 * @param b the second array.
+	 * @param bOff the offset of the range to compare in {@code b}.
+	 * @param len the number of bytes to compare.
+	 *
+	 * @return whether the specified ranges are equal.
+	 *
+	 * @throws NullPointerException if {@code a} or {@code b} is
+	 *	{@code null}.
+	 * @throws IndexOutOfBoundsException if {@code aOff}, {@code bOff} or
+	 *	{@code len} is negative, or if one of the ranges is out of its
+	 *	array's bounds.
+	 */
+	public static boolean equals(byte[] a, int aOff, byte[] b, int bOff,
+		int len)
+	{
+		checkBounds(a.length, aOff, len);
+		checkBounds(b.length, bOff, len);
+		int diff = 0;
+		for (int i = 0; i < len; i++) {
+			diff |= a[aOff + i] ^ b[bOff + i];
+		}
+		return diff == 0;
+	}
+
+	/**
+	 * Returns whether the given arrays are equal, in time that only depends
+	 * on their lengths.
+	 *
+	 * @param a the first array.
+	 * @param b the second array.
+	 *
+	 * @return whether {@code a} and {@code b} are equal.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 */
+	public static boolean equals(int[] a, int[] b)
+	{
+		if (a.length != b.length) {
+			return false;
+		}
+		int diff = 0;
+		for (int i = 0; i < a.length; i++) {
+			diff |= a[i] ^ b[i];
+		}
+		return diff == 0;
+	}
+
+	/**
+	 * Returns whether the given arrays are equal, in time that only depends
+	 * on their lengths.
+	 *
+	 * @param a the first array.
+	 * @param b the second array.
+	 *
+	 * @return whether {@code a} and {@code b} are equal.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 */
+	public static boolean equals(long[] a, long[] b)
+	{
+		if (a.length != b.length) {
+			return false;
+		}
+		long diff = 0L;
+		for (int i = 0; i < a.length; i++) {
+			diff |= a[i] ^ b[i];
+		}
+		return diff == 0L;
+	}
+
+	/**
+	 * XORs the specified range of {@code src} into the specified range of
+	 * {@code dest}, that is, sets {@code dest[destOff + i]} to
+	 * {@code dest[destOff + i] ^ src[srcOff + i]} for each {@code i} in
+	 * [0, {@code len}). The ranges may overlap only if they are identical.
+	 *
+	 * @param src the source array.
+	 * @param srcOff the offset of the range to read in {@code src}.
+	 * @param dest the destination array.
+	 * @param destOff the offset of the range to update in {@code dest}.
+	 * @param len the number of bytes to XOR.
+	 *
+	 * @throws NullPointerException if {@code src} or {@code dest} is
+	 *	{@code null}.
+	 * @throws IndexOutOfBoundsException if {@code srcOff}, {@code destOff}
+	 *	or {@code len} is negative, or if one of the ranges is out of its
+	 *	array's bounds.
+	 */
+	public static void xor(byte[] src, int srcOff, byte[] dest, int destOff,
+		int len)
+	{
+		checkBounds(src.length, srcOff, len);
+		checkBounds(dest.length, destOff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destOff + i] ^= src[srcOff + i];
+		}
+	}
+
+	/**
+	 * XORs the specified range of {@code src} into the specified range of
+	 * {@code dest}, see {@link #xor(byte[], int, byte[], int, int)}.
+	 *
+	 * @param src the source array.
+	 * @param srcOff the offset of the range to read in {@code src}.
+	 * @param dest the destination array.
+	 * @param destOff the offset of the range to update in {@code dest}.
+	 * @param len the number of ints to XOR.
+	 *
+	 * @throws NullPointerException if {@code src} or {@code dest} is
+	 *	{@code null}.
+	 * @throws IndexOutOfBoundsException if {@code srcOff}, {@code destOff}
+	 *	or {@code len} is negative, or if one of the ranges is out of its
+	 *	array's bounds.
+	 */
+	public static void xor(int[] src, int srcOff, int[] dest, int destOff,
+		int len)
+	{
+		checkBounds(src.length, srcOff, len);
+		checkBounds(dest.length, destOff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destOff + i] ^= src[srcOff + i];
+		}
+	}
+
+	/**
+	 * XORs the specified range of {@code src} into the specified range of
+	 * {@code dest}, see {@link #xor(byte[], int, byte[], int, int)}.
+	 *
+	 * @param src the source array.
+	 * @param srcOff the offset of the range to read in {@code src}.
+	 * @param dest the destination array.
+	 * @param destOff the offset of the range to update in {@code dest}.
+	 * @param len the number of longs to XOR.
+	 *
+	 * @throws NullPointerException if {@code src} or {@code dest} is
+	 *	{@code null}.
+	 * @throws IndexOutOfBoundsException if {@code srcOff}, {@code destOff}
+	 *	or {@code len} is negative, or if one of the ranges is out of its
+	 *	array's bounds.
+	 */
+	public static void xor(long[] src, int srcOff, long[] dest, int destOff,
+		int len)
+	{
+		checkBounds(src.length, srcOff, len);
+		checkBounds(dest.length, destOff, len);
+		for (int i = 0; i < len; i++) {
+			dest[destOff + i] ^= src[srcOff + i];
+		}
+	}
+
+	private static void checkBounds(int length, int off, int len)
+	{
+		if (off < 0 || len < 0 || off > length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+	}
+
+	private ConstantTime()
+	{
+		/* ... */
+	}
+}
@@ -16,8 +16,10 @@
 
 package org.kocakosm.pitaya.security;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A digest engine. Implementations of this interface are not meant to be
@@ -43,6 +45,18 @@ public interface Digest
 	 */
 	Digest reset();
 
+	/**
+	 * Returns a copy of this engine. The returned engine implements the
+	 * same algorithm and has the same internal state as this one, that is,
+	 * it is as if it had been fed the same data. Both engines are then
+	 * fully independent: updating, completing or resetting one of them
+	 * doesn't affect the other. This allows to absorb a common prefix once
+	 * and then to fork the engine for each message sharing it.
+	 *
+	 * @return a copy of this engine.
+	 */
+	Digest copy();
+
 	/**
 	 * Updates the digest using the given byte.
 	 *
@@ -92,6 +106,39 @@ public interface Digest
 	 */
 	Digest update(InputStream input) throws IOException;
 
+	/**
+	 * Updates the digest using the remaining bytes of the given buffer, that
+	 * is, the bytes between its position and its limit. Upon return, the
+	 * buffer's position will be equal to its limit; its limit will not
+	 * have changed.
+	 *
+	 * @param input the buffer to process.
+	 *
+	 * @return this object.
+	 *
+	 * @throws NullPointerException if {@code input} is {@code null}.
+	 */
+	Digest update(ByteBuffer input);
+
+	/**
+	 * Updates the digest using the content of the specified file. Large files
+	 * are memory-mapped, region by region, and the mapped regions are fed
+	 * directly to the digest, which is usually faster than reading the file
+	 * through a stream; small files, for which mapping isn't worth its
+	 * cost, are simply read.
+	 *
+	 * @param input the file to process.
+	 *
+	 * @return this object.
+	 *
+	 * @throws NullPointerException if {@code input} is {@code null}.
+	 * @throws IOException if {@code input} does not exist, or if it is a
+	 *	directory rather than a regular file, or if it can't be read.
+	 * @throws SecurityException if a security manager exists and denies
+	 *	read access to {@code input}.
+	 */
+	Digest update(File input) throws IOException;
+
 	/**
 	 * Completes the hash computation. Note that the engine is reset after
 	 * this call is made.
@@ -100,6 +147,24 @@ public interface Digest
 	 */
 	byte[] digest();
 
+	/**
+	 * Completes the hash computation and writes the resulting digest into
+	 * the given array, starting at the specified offset. Note that the
+	 * engine is reset after this call is made.
+	 *
+	 * @param out the output buffer.
+	 * @param off the offset at which to start writing in {@code out}.
+	 *
+	 * @return the number of bytes written into {@code out}, that is, the
+	 *	digest's length.
+	 *
+	 * @throws NullPointerException if {@code out} is {@code null}.
+	 * @throws IndexOutOfBoundsException if {@code off} is negative or if
+	 *	{@code out} is too small to hold the digest (that is, if
+	 *	{@code off + length()} is greater than {@code out}'s length).
+	 */
+	int digest(byte[] out, int off);
+
 	/**
 	 * Performs a final update on the digest using the specified array of
 	 * bytes, then completes the digest computation. That is, this method
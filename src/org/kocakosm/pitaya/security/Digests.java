@@ -17,9 +17,14 @@
 package org.kocakosm.pitaya.security;
 
 import org.kocakosm.pitaya.util.CannotHappenException;
+import org.kocakosm.pitaya.util.Parameters;
 
+import java.nio.ByteBuffer;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Somme commonly used digest algorithms. None of the {@link Digest} instances
@@ -130,20 +135,214 @@ public final class Digests
 		return new Keccak(64);
 	}
 
+	/**
+	 * Returns a new SHA3-224 {@link Digest} instance.
+	 *
+	 * @return a new SHA3-224 {@link Digest} instance.
+	 */
+	public static Digest sha3_224()
+	{
+		return new Keccak(28, Keccak.SHA3);
+	}
+
+	/**
+	 * Returns a new SHA3-256 {@link Digest} instance.
+	 *
+	 * @return a new SHA3-256 {@link Digest} instance.
+	 */
+	public static Digest sha3_256()
+	{
+		return new Keccak(32, Keccak.SHA3);
+	}
+
+	/**
+	 * Returns a new SHA3-384 {@link Digest} instance.
+	 *
+	 * @return a new SHA3-384 {@link Digest} instance.
+	 */
+	public static Digest sha3_384()
+	{
+		return new Keccak(48, Keccak.SHA3);
+	}
+
+	/**
+	 * Returns a new SHA3-512 {@link Digest} instance.
+	 *
+	 * @return a new SHA3-512 {@link Digest} instance.
+	 */
+	public static Digest sha3_512()
+	{
+		return new Keccak(64, Keccak.SHA3);
+	}
+
+	/**
+	 * Returns a new BLAKE2b-512 {@link Digest} instance.
+	 *
+	 * @return a new BLAKE2b-512 {@link Digest} instance.
+	 */
+	public static Digest blake2b()
+	{
+		return new BLAKE2b(BLAKE2b.MAX_LENGTH);
+	}
+
+	/**
+	 * Returns a new BLAKE2b {@link Digest} instance with the given output
+	 * length.
+	 *
+	 * @param length the digest length (in bytes).
+	 *
+	 * @return a new BLAKE2b {@link Digest} instance.
+	 *
+	 * @throws IllegalArgumentException if {@code length} is not in
+	 *	[1, 64].
+	 */
+	public static Digest blake2b(int length)
+	{
+		return new BLAKE2b(length);
+	}
+
+	/**
+	 * Returns a new BLAKE2s-256 {@link Digest} instance.
+	 *
+	 * @return a new BLAKE2s-256 {@link Digest} instance.
+	 */
+	public static Digest blake2s()
+	{
+		return new BLAKE2s(BLAKE2s.MAX_LENGTH);
+	}
+
+	/**
+	 * Returns a new BLAKE2s {@link Digest} instance with the given output
+	 * length.
+	 *
+	 * @param length the digest length (in bytes).
+	 *
+	 * @return a new BLAKE2s {@link Digest} instance.
+	 *
+	 * @throws IllegalArgumentException if {@code length} is not in
+	 *	[1, 32].
+	 */
+	public static Digest blake2s(int length)
+	{
+		return new BLAKE2s(length);
+	}
+
+	/**
+	 * Computes the digests of all the given messages using the given engine
+	 * and writes them, one after the other, into the given output buffer.
+	 * The digest of the {@code i}th message is written at offset
+	 * {@code off + i * digest.length()} in {@code out}. The engine is reset
+	 * before the first message is processed and after each digest is
+	 * computed, so the same engine (and its internal buffers) is reused for
+	 * all the messages.
+	 *
+	 * @param digest the digest engine to use.
+	 * @param messages the messages to hash.
+	 * @param out the output buffer.
+	 * @param off the offset at which to start writing in {@code out}.
+	 *
+	 * @return the number of bytes written into {@code out}.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}
+	 *	or if {@code messages} contains a {@code null} reference.
+	 * @throws IndexOutOfBoundsException if {@code off} is negative or if
+	 *	{@code out} is too small to hold all the digests.
+	 */
+	public static int digestAll(Digest digest, byte[][] messages,
+		byte[] out, int off)
+	{
+		int len = checkOutput(digest, messages.length, out, off);
+		digest.reset();
+		for (int i = 0; i < messages.length; i++) {
+			digest.update(messages[i]).digest(out, off + i * len);
+		}
+		return messages.length * len;
+	}
+
+	/**
+	 * Computes the digests of all the messages packed in the given input
+	 * array and writes them, one after the other, into the given output
+	 * buffer. The {@code i}th message is made of the bytes of {@code input}
+	 * starting at {@code offsets[i]} (inclusive) and ending at
+	 * {@code offsets[i + 1]} (exclusive), thus {@code offsets.length - 1}
+	 * digests are computed. The digest of the {@code i}th message is
+	 * written at offset {@code off + i * digest.length()} in {@code out}.
+	 * The engine is reset before the first message is processed and after
+	 * each digest is computed, so the same engine (and its internal buffers)
+	 * is reused for all the messages.
+	 *
+	 * @param digest the digest engine to use.
+	 * @param input the array containing the messages to hash.
+	 * @param offsets the messages' boundaries in {@code input}.
+	 * @param out the output buffer.
+	 * @param off the offset at which to start writing in {@code out}.
+	 *
+	 * @return the number of bytes written into {@code out}.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws IllegalArgumentException if {@code offsets} is empty or if
+	 *	its values are not in ascending order.
+	 * @throws IndexOutOfBoundsException if {@code off} is negative, if one
+	 *	of the {@code offsets} is outside of {@code input}'s bounds, or
+	 *	if {@code out} is too small to hold all the digests.
+	 */
+	public static int digestAll(Digest digest, byte[] input, int[] offsets,
+		byte[] out, int off)
+	{
+		Parameters.checkCondition(offsets.length > 0);
+		int n = offsets.length - 1;
+		int len = checkOutput(digest, n, out, off);
+		if (offsets[0] < 0 || offsets[n] > input.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		for (int i = 0; i < n; i++) {
+			Parameters.checkCondition(offsets[i] <= offsets[i + 1]);
+		}
+		digest.reset();
+		for (int i = 0; i < n; i++) {
+			int from = offsets[i];
+			digest.update(input, from, offsets[i + 1] - from);
+			digest.digest(out, off + i * len);
+		}
+		return n * len;
+	}
+
+	private static int checkOutput(Digest digest, int n, byte[] out, int off)
+	{
+		int len = digest.length();
+		if (off < 0 || (long) n * len > out.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		return len;
+	}
+
 	private static final class BuiltInDigest extends AbstractDigest
 	{
+		/**
+		 * One pristine {@code MessageDigest} per algorithm, looked up
+		 * once and then cloned, which is much cheaper than walking the
+		 * providers list on each call to {@code getInstance}.
+		 */
+		private static final ConcurrentMap<String, MessageDigest> PROTOTYPES;
+		static {
+			PROTOTYPES = new ConcurrentHashMap<String, MessageDigest>();
+		}
+
 		static Digest create(String algorithm)
 		{
-			MessageDigest md;
-			try {
-				md = MessageDigest.getInstance(algorithm);
-			} catch (NoSuchAlgorithmException ex) {
-				throw new CannotHappenException(ex);
+			MessageDigest prototype = PROTOTYPES.get(algorithm);
+			if (prototype == null) {
+				try {
+					prototype = MessageDigest.getInstance(algorithm);
+				} catch (NoSuchAlgorithmException ex) {
+					throw new CannotHappenException(ex);
+				}
+				PROTOTYPES.putIfAbsent(algorithm, prototype);
 			}
-			return new BuiltInDigest(md);
+			return new BuiltInDigest(clone(prototype));
 		}
 
-		private final MessageDigest md;
+		private MessageDigest md;
 
 		private BuiltInDigest(MessageDigest md)
 		{
@@ -185,6 +384,48 @@ public final class Digests
 			return md.digest();
 		}
 
+		@Override
+		public Digest update(ByteBuffer input)
+		{
+			md.update(input);
+			return this;
+		}
+
+		@Override
+		public AbstractDigest copy()
+		{
+			return new BuiltInDigest(clone(md));
+		}
+
+		/**
+		 * {@code MessageDigest} has no way to overwrite its state, so
+		 * restoring allocates a clone of the saved one.
+		 */
+		@Override
+		void restore(AbstractDigest state)
+		{
+			md = clone(((BuiltInDigest) state).md);
+		}
+
+		private static MessageDigest clone(MessageDigest md)
+		{
+			try {
+				return (MessageDigest) md.clone();
+			} catch (CloneNotSupportedException ex) {
+				throw new CannotHappenException(ex);
+			}
+		}
+
+		@Override
+		void doFinal(byte[] out, int off)
+		{
+			try {
+				md.digest(out, off, length());
+			} catch (DigestException ex) {
+				throw new CannotHappenException(ex);
+			}
+		}
+
 		@Override
 		public byte[] digest(byte... input)
 		{
@@ -0,0 +1,147 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-thread {@link Digest} and {@link MAC} engines. Unlike {@link Digests},
+ * {@link HMAC} or {@link Algorithm}-based factories, which create a new engine
+ * on each call, the methods of this class always return, for a given thread
+ * and algorithm, the same engine, reset and ready to use. This avoids object
+ * churn (and, for JCA-backed algorithms, provider lookups) in code that needs
+ * short-lived engines very often.
+ * Careful: the returned engines are owned by the calling thread. They must not
+ * be shared with other threads nor be retained across calls, since the next
+ * call for the same algorithm on the same thread resets and returns the very
+ * same instance. Also note that each thread keeps a copy of the last key used
+ * with each MAC algorithm (along with the key-dependent state of its engine)
+ * for as long as it is alive or until it calls {@link #clear()}.
+ *
+ * @author Osman KOCAK
+ */
+public final class Engines
+{
+	private static final ThreadLocal<Map<Algorithm<Digest>, Digest>> DIGESTS;
+	private static final ThreadLocal<Map<Algorithm<MAC>, KeyedMAC>> MACS;
+	static {
+		DIGESTS = new ThreadLocal<Map<Algorithm<Digest>, Digest>>()
+		{
+			@Override
+			protected Map<Algorithm<Digest>, Digest> initialValue()
+			{
+				return new HashMap<Algorithm<Digest>, Digest>();
+			}
+		};
+		MACS = new ThreadLocal<Map<Algorithm<MAC>, KeyedMAC>>()
+		{
+			@Override
+			protected Map<Algorithm<MAC>, KeyedMAC> initialValue()
+			{
+				return new HashMap<Algorithm<MAC>, KeyedMAC>();
+			}
+		};
+	}
+
+	/**
+	 * Returns the calling thread's {@link Digest} engine for the given
+	 * algorithm. The returned engine is reset.
+	 *
+	 * @param algorithm the digest algorithm.
+	 *
+	 * @return the calling thread's {@link Digest} engine.
+	 *
+	 * @throws NullPointerException if {@code algorithm} is {@code null}.
+	 * @throws IllegalArgumentException if the given algorithm is unknown.
+	 */
+	public static Digest digest(Algorithm<Digest> algorithm)
+	{
+		Map<Algorithm<Digest>, Digest> digests = DIGESTS.get();
+		Digest digest = digests.get(algorithm);
+		if (digest == null) {
+			digest = Factory.getDigest(algorithm);
+			digests.put(algorithm, digest);
+			return digest;
+		}
+		return digest.reset();
+	}
+
+	/**
+	 * Returns the calling thread's {@link MAC} engine for the given
+	 * algorithm, initialized with the given secret key. Each thread keeps
+	 * one engine per algorithm: if the key differs from the one used on the
+	 * previous call, a new engine is created (and kept in place of the
+	 * previous one). Keys are compared in constant time, and a copy of the
+	 * key stays in the calling thread's cache until it is replaced or
+	 * {@link #clear() cleared}. The returned engine is reset.
+	 *
+	 * @param algorithm the MAC algorithm.
+	 * @param key the secret key.
+	 *
+	 * @return the calling thread's {@link MAC} engine.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws IllegalArgumentException if the given algorithm is unknown.
+	 */
+	public static MAC mac(Algorithm<MAC> algorithm, byte[] key)
+	{
+		Parameters.checkNotNull(key);
+		Map<Algorithm<MAC>, KeyedMAC> macs = MACS.get();
+		KeyedMAC mac = macs.get(algorithm);
+		if (mac == null || !ConstantTime.equals(mac.key, key)) {
+			mac = new KeyedMAC(Factory.getMAC(algorithm, key), key);
+			macs.put(algorithm, mac);
+			return mac.engine;
+		}
+		return mac.engine.reset();
+	}
+
+	/**
+	 * Discards all the calling thread's engines, overwriting the copies of
+	 * the MAC keys they hold. Threads that have used {@link #mac} with
+	 * sensitive keys should call this method once they are done.
+	 */
+	public static void clear()
+	{
+		for (KeyedMAC mac : MACS.get().values()) {
+			Arrays.fill(mac.key, (byte) 0);
+		}
+		MACS.remove();
+		DIGESTS.remove();
+	}
+
+	private static final class KeyedMAC
+	{
+		final MAC engine;
+		final byte[] key;
+
+		KeyedMAC(MAC engine, byte[] key)
+		{
+			this.engine = engine;
+			this.key = key.clone();
+		}
+	}
+
+	private Engines()
+	{
+		/* ... */
+	}
+}
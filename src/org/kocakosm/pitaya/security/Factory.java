@@ -60,6 +60,18 @@ final class Factory
 			digest = Digests.keccak384();
 		} else if (algorithm == Algorithm.KECCAK512) {
 			digest = Digests.keccak512();
+		} else if (algorithm == Algorithm.SHA3_224) {
+			digest = Digests.sha3_224();
+		} else if (algorithm == Algorithm.SHA3_256) {
+			digest = Digests.sha3_256();
+		} else if (algorithm == Algorithm.SHA3_384) {
+			digest = Digests.sha3_384();
+		} else if (algorithm == Algorithm.SHA3_512) {
+			digest = Digests.sha3_512();
+		} else if (algorithm == Algorithm.BLAKE2B) {
+			digest = Digests.blake2b();
+		} else if (algorithm == Algorithm.BLAKE2S) {
+			digest = Digests.blake2s();
 		} else {
 			throw new IllegalArgumentException("Unknown algorithm");
 		}
@@ -76,7 +88,8 @@ final class Factory
 	 * @return the created {@link MAC} instance.
 	 *
 	 * @throws NullPointerException if {@code algorithm} is {@code null}.
-	 * @throws IllegalArgumentException if the given algorithm is unknown.
+	 * @throws IllegalArgumentException if the given algorithm is unknown,
+	 *	or if {@code key} is too long for a keyed BLAKE2 MAC.
 	 */
 	static MAC getMAC(Algorithm<MAC> algorithm, byte[] key)
 	{
@@ -102,6 +115,22 @@ final class Factory
 			mac = HMAC.keccak384(key);
 		} else if (algorithm == Algorithm.HMAC_KECCAK512) {
 			mac = HMAC.keccak512(key);
+		} else if (algorithm == Algorithm.HMAC_SHA3_224) {
+			mac = HMAC.sha3_224(key);
+		} else if (algorithm == Algorithm.HMAC_SHA3_256) {
+			mac = HMAC.sha3_256(key);
+		} else if (algorithm == Algorithm.HMAC_SHA3_384) {
+			mac = HMAC.sha3_384(key);
+		} else if (algorithm == Algorithm.HMAC_SHA3_512) {
+			mac = HMAC.sha3_512(key);
+		} else if (algorithm == Algorithm.HMAC_BLAKE2B) {
+			mac = HMAC.blake2b(key);
+		} else if (algorithm == Algorithm.HMAC_BLAKE2S) {
+			mac = HMAC.blake2s(key);
+		} else if (algorithm == Algorithm.BLAKE2B_MAC) {
+			mac = MACs.blake2b(key);
+		} else if (algorithm == Algorithm.BLAKE2S_MAC) {
+			mac = MACs.blake2s(key);
 		} else {
 			throw new IllegalArgumentException("Unknown algorithm");
 		}
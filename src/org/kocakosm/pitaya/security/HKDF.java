@@ -17,7 +17,6 @@
 package org.kocakosm.pitaya.security;
 
 import org.kocakosm.pitaya.util.Base16;
-import org.kocakosm.pitaya.util.ByteBuffer;
 import org.kocakosm.pitaya.util.Parameters;
 import org.kocakosm.pitaya.util.XArrays;
 import org.kocakosm.pitaya.util.XObjects;
@@ -60,7 +59,8 @@ final class HKDF implements KDF
 	@Override
 	public byte[] deriveKey(byte[] secret, byte[] salt)
 	{
-		return expand(extract(secret, salt));
+		Parameters.checkNotNull(salt);
+		return new HKDFKey(algorithm, secret, salt).expand(info, dkLen);
 	}
 
 	@Override
@@ -70,22 +70,4 @@ final class HKDF implements KDF
 			.append("info", "0x" + Base16.encode(info))
 			.append("dkLen", dkLen).toString();
 	}
-
-	private byte[] extract(byte[] key, byte[] salt)
-	{
-		return Factory.getMAC(algorithm, salt).mac(key);
-	}
-
-	private byte[] expand(byte[] key)
-	{
-		MAC mac = Factory.getMAC(algorithm, key);
-		ByteBuffer t = new ByteBuffer(dkLen + mac.length());
-		int n = (int) Math.ceil((double) dkLen / mac.length());
-		byte[] u = new byte[0];
-		for (int i = 1; i <= n; i++) {
-			u = mac.update(u).update(info).mac((byte) i);
-			t.append(u);
-		}
-		return t.toByteArray(0, dkLen);
-	}
 }
@@ -0,0 +1,170 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * HKDF (RFC 5869) pseudo-random key, that is, the result of HKDF's "extract"
+ * step, from which any number of subkeys can then be "expanded". Extracting
+ * the pseudo-random key once and expanding all the subkeys from it is cheaper
+ * than deriving each subkey with a {@linkplain KDFs#hkdf HKDF} {@link KDF},
+ * which re-runs the extract step on each call. The subkeys are distinguished
+ * by their {@code info} (context and application specific information, such
+ * as a label); for a given {@code info}, a subkey of length {@code n} is the
+ * {@code n}-byte prefix of any longer subkey. As with any HKDF, subkeys can't
+ * be longer than 255 times the MAC algorithm's output length. Instances of
+ * this class are not thread safe.
+ *
+ * @see KDFs#hkdfExtract(Algorithm, byte[], byte[])
+ *
+ * @author Osman KOCAK
+ */
+public final class HKDFKey
+{
+	private final MAC mac;
+	private final byte[] t;
+
+	/**
+	 * Creates a new {@code HKDFKey}.
+	 *
+	 * @param algorithm the MAC algorithm to use.
+	 * @param secret the input keying material.
+	 * @param salt the salt, may be {@code null} or empty.
+	 *
+	 * @throws NullPointerException if {@code algorithm} or {@code secret}
+	 *	is {@code null}.
+	 * @throws IllegalArgumentException if the MAC algorithm is unknown.
+	 */
+	HKDFKey(Algorithm<MAC> algorithm, byte[] secret, byte[] salt)
+	{
+		Parameters.checkNotNull(secret);
+		byte[] s = salt == null ? new byte[0] : salt;
+		byte[] prk = Factory.getMAC(algorithm, s).mac(secret);
+		this.mac = Factory.getMAC(algorithm, prk);
+		this.t = new byte[mac.length()];
+	}
+
+	/**
+	 * Returns the maximum length of the subkeys that can be expanded from
+	 * this key, that is, 255 times the MAC algorithm's output length.
+	 *
+	 * @return the maximum length of the subkeys, in bytes.
+	 */
+	public int maxLength()
+	{
+		return 255 * t.length;
+	}
+
+	/**
+	 * Expands a subkey of the given length.
+	 *
+	 * @param info optional context and application specific information,
+	 *	may be {@code null} or empty.
+	 * @param len the subkey's length, in bytes.
+	 *
+	 * @return the expanded subkey.
+	 *
+	 * @throws IllegalArgumentException if {@code len} is negative or if it
+	 *	is greater than {@link #maxLength()}.
+	 */
+	public byte[] expand(byte[] info, int len)
+	{
+		Parameters.checkCondition(len >= 0);
+		byte[] out = new byte[len];
+		expand(info, out, 0, len);
+		return out;
+	}
+
+	/**
+	 * Expands a subkey of the given length and writes it into the given
+	 * array, starting at the specified offset.
+	 *
+	 * @param info optional context and application specific information,
+	 *	may be {@code null} or empty.
+	 * @param out the output buffer.
+	 * @param off the offset at which to start writing in {@code out}.
+	 * @param len the subkey's length, in bytes.
+	 *
+	 * @return the number of bytes written into {@code out}, that is,
+	 *	{@code len}.
+	 *
+	 * @throws NullPointerException if {@code out} is {@code null}.
+	 * @throws IndexOutOfBoundsException if {@code off} or {@code len} is
+	 *	negative or if {@code off + len} is greater than {@code out}'s
+	 *	length.
+	 * @throws IllegalArgumentException if {@code len} is greater than
+	 *	{@link #maxLength()}.
+	 */
+	public int expand(byte[] info, byte[] out, int off, int len)
+	{
+		if (off < 0 || len < 0 || off > out.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		Parameters.checkCondition(len <= maxLength());
+		byte[] inf = info == null ? new byte[0] : info;
+		int n = 0;
+		for (int i = 1; n < len; i++) {
+			next(inf, i);
+			int cpLen = Math.min(t.length, len - n);
+			System.arraycopy(t, 0, out, off + n, cpLen);
+			n += cpLen;
+		}
+		return len;
+	}
+
+	/**
+	 * Expands a subkey of the given length and writes it to the given
+	 * stream, block by block. The stream is neither flushed nor closed.
+	 *
+	 * @param info optional context and application specific information,
+	 *	may be {@code null} or empty.
+	 * @param len the subkey's length, in bytes.
+	 * @param out the stream to write the subkey to.
+	 *
+	 * @throws NullPointerException if {@code out} is {@code null}.
+	 * @throws IllegalArgumentException if {@code len} is negative or if it
+	 *	is greater than {@link #maxLength()}.
+	 * @throws IOException if {@code out} can't be written.
+	 */
+	public void expand(byte[] info, int len, OutputStream out)
+		throws IOException
+	{
+		Parameters.checkNotNull(out);
+		Parameters.checkCondition(len >= 0 && len <= maxLength());
+		byte[] inf = info == null ? new byte[0] : info;
+		int n = 0;
+		for (int i = 1; n < len; i++) {
+			next(inf, i);
+			int cpLen = Math.min(t.length, len - n);
+			out.write(t, 0, cpLen);
+			n += cpLen;
+		}
+	}
+
+	/** Computes T(i) = MAC(PRK, T(i - 1) || info || i) into {@code t}. */
+	private void next(byte[] info, int i)
+	{
+		if (i > 1) {
+			mac.update(t);
+		}
+		mac.update(info).update((byte) i).mac(t, 0);
+	}
+}
@@ -16,8 +16,10 @@
 
 package org.kocakosm.pitaya.security;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -176,22 +178,126 @@ public final class HMAC
 		return new Engine(key, Digests.keccak512(), 72);
 	}
 
+	/**
+	 * Returns a new SHA3-224 HMAC engine.
+	 *
+	 * @param key the HMAC's secret key.
+	 *
+	 * @return a new SHA3-224 HMAC engine.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 */
+	public static MAC sha3_224(byte... key)
+	{
+		return new Engine(key, Digests.sha3_224(), 144);
+	}
+
+	/**
+	 * Returns a new SHA3-256 HMAC engine.
+	 *
+	 * @param key the HMAC's secret key.
+	 *
+	 * @return a new SHA3-256 HMAC engine.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 */
+	public static MAC sha3_256(byte... key)
+	{
+		return new Engine(key, Digests.sha3_256(), 136);
+	}
+
+	/**
+	 * Returns a new SHA3-384 HMAC engine.
+	 *
+	 * @param key the HMAC's secret key.
+	 *
+	 * @return a new SHA3-384 HMAC engine.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 */
+	public static MAC sha3_384(byte... key)
+	{
+		return new Engine(key, Digests.sha3_384(), 104);
+	}
+
+	/**
+	 * Returns a new SHA3-512 HMAC engine.
+	 *
+	 * @param key the HMAC's secret key.
+	 *
+	 * @return a new SHA3-512 HMAC engine.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 */
+	public static MAC sha3_512(byte... key)
+	{
+		return new Engine(key, Digests.sha3_512(), 72);
+	}
+
+	/**
+	 * Returns a new BLAKE2b-512 HMAC engine.
+	 *
+	 * @param key the HMAC's secret key.
+	 *
+	 * @return a new BLAKE2b-512 HMAC engine.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 */
+	public static MAC blake2b(byte... key)
+	{
+		return new Engine(key, Digests.blake2b(), 128);
+	}
+
+	/**
+	 * Returns a new BLAKE2s-256 HMAC engine.
+	 *
+	 * @param key the HMAC's secret key.
+	 *
+	 * @return a new BLAKE2s-256 HMAC engine.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 */
+	public static MAC blake2s(byte... key)
+	{
+		return new Engine(key, Digests.blake2s(), 64);
+	}
+
 	private static final class Engine implements MAC
 	{
-		private final byte[] key;
-		private final Digest digest;
+		private final byte[] hash;
+		private final AbstractDigest digest;
+
+		/** The digest's state right after the inner pad was absorbed. */
+		private final AbstractDigest inner;
+
+		/** The digest's state right after the outer pad was absorbed. */
+		private final AbstractDigest outer;
 
 		Engine(byte[] key, Digest digest, int blockSize)
 		{
+			byte[] k;
 			if (key.length > blockSize) {
-				this.key = Arrays.copyOf(digest.digest(key), blockSize);
+				k = Arrays.copyOf(digest.digest(key), blockSize);
 			} else {
-				this.key = Arrays.copyOf(key, blockSize);
+				k = Arrays.copyOf(key, blockSize);
 			}
-			this.digest = digest;
+			this.hash = new byte[digest.length()];
+			this.digest = (AbstractDigest) digest;
+			this.inner = pad(k, (byte) 0x36);
+			this.outer = pad(k, (byte) 0x5c);
+			Arrays.fill(k, (byte) 0);
 			reset();
 		}
 
+		private AbstractDigest pad(byte[] key, byte pad)
+		{
+			digest.reset();
+			for (byte b : key) {
+				digest.update((byte) (b ^ pad));
+			}
+			return digest.copy();
+		}
+
 		@Override
 		public int length()
 		{
@@ -201,10 +307,7 @@ public final class HMAC
 		@Override
 		public MAC reset()
 		{
-			digest.reset();
-			for (byte b : key) {
-				digest.update((byte) ((b & 0xFF) ^ 0x36));
-			}
+			digest.restore(inner);
 			return this;
 		}
 
@@ -236,16 +339,39 @@ public final class HMAC
 			return this;
 		}
 
+		@Override
+		public MAC update(ByteBuffer input)
+		{
+			digest.update(input);
+			return this;
+		}
+
+		@Override
+		public MAC update(File input) throws IOException
+		{
+			digest.update(input);
+			return this;
+		}
+
 		@Override
 		public byte[] mac()
 		{
-			byte[] hash = digest.digest();
-			for (byte b : key) {
-				digest.update((byte) ((b & 0xFF) ^ 0x5c));
+			byte[] hmac = new byte[hash.length];
+			mac(hmac, 0);
+			return hmac;
+		}
+
+		@Override
+		public int mac(byte[] out, int off)
+		{
+			if (off < 0 || off > out.length - hash.length) {
+				throw new IndexOutOfBoundsException();
 			}
-			byte[] hmac = digest.digest(hash);
+			digest.digest(hash, 0);
+			digest.restore(outer);
+			digest.update(hash).digest(out, off);
 			reset();
-			return hmac;
+			return hash.length;
 		}
 
 		@Override
@@ -16,6 +16,10 @@
 
 package org.kocakosm.pitaya.security;
 
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.util.concurrent.Executor;
+
 /**
  * Somme commonly used key derivation function algorithms. Instances returned
  * by this class are all thread-safe. Careful: some of these algorithms may no
@@ -88,6 +92,27 @@ public final class KDFs
 		return new HKDF(mac, info, dkLen);
 	}
 
+	/**
+	 * Performs the "extract" step of the HKDF algorithm (RFC 5869) and
+	 * returns the resulting pseudo-random key, from which any number of
+	 * subkeys can then be expanded.
+	 *
+	 * @param mac the MAC algorithm to use.
+	 * @param secret the input keying material.
+	 * @param salt optional salt, may be {@code null} or empty.
+	 *
+	 * @return the pseudo-random key.
+	 *
+	 * @throws NullPointerException if {@code mac} or {@code secret} is
+	 *	{@code null}.
+	 * @throws IllegalArgumentException if the MAC algorithm is unknown.
+	 */
+	public static HKDFKey hkdfExtract(Algorithm<MAC> mac, byte[] secret,
+		byte[] salt)
+	{
+		return new HKDFKey(mac, secret, salt);
+	}
+
 	/**
 	 * Creates and returns a new {@link KDF} instance implementing the
 	 * SCrypt algorithm as specified by the Internet Engineering Task Force.
@@ -111,6 +136,37 @@ public final class KDFs
 		return new SCrypt(r, n, p, dkLen);
 	}
 
+	/**
+	 * Creates and returns a new {@link KDF} instance implementing the
+	 * SCrypt algorithm as specified by the Internet Engineering Task Force.
+	 * The p independent ROMix lanes are run concurrently using the given
+	 * {@code Executor} (the first one being run on the caller's thread).
+	 * Note that each running lane holds its own 128 * r * n bytes working
+	 * array, so memory usage can reach p times the one of the sequential
+	 * variant. See http://tools.ietf.org/html/draft-josefsson-scrypt-kdf-01
+	 * for more information.
+	 *
+	 * @param r the block size parameter.
+	 * @param n the CPU/Memory cost parameter.
+	 * @param p the parallelization parameter.
+	 * @param dkLen the desired length for derived keys, in bytes.
+	 * @param executor the {@code Executor} to use to run the lanes.
+	 *
+	 * @return the created {@link KDF} instance.
+	 *
+	 * @throws NullPointerException if {@code executor} is {@code null}.
+	 * @throws IllegalArgumentException if {@code r, dkLen} or {@code p} is
+	 *	negative, or if {@code n} is not greater than 1 or if it is not
+	 *	a power of 2 or if it is not less than 2 ^ (128 * r / 8), or if
+	 *	{@code p} is greater than ((2 ^ 32 - 1) * 32) / (128 * r).
+	 */
+	public static KDF scrypt(int r, int n, int p, int dkLen,
+		Executor executor)
+	{
+		Parameters.checkNotNull(executor);
+		return new SCrypt(r, n, p, dkLen, executor);
+	}
+
 	private KDFs()
 	{
 		/* ... */
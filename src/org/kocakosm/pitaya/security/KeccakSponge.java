@@ -0,0 +1,287 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.util.Bits;
+import org.kocakosm.pitaya.util.LittleEndian;
+
+import java.util.Arrays;
+
+/**
+ * The Keccak sponge construction, on top of which the Keccak, SHA-3 and SHAKE
+ * algorithms are built. A sponge first absorbs input data; once it has been
+ * {@linkplain #pad(int) padded}, any amount of output can be squeezed out of
+ * it. Instances of this class are not thread safe.
+ *
+ * @author Osman KOCAK
+ */
+final class KeccakSponge
+{
+	private static final long[] RC = new long[] {
+		0x0000000000000001L, 0x0000000000008082L, 0x800000000000808aL,
+		0x8000000080008000L, 0x000000000000808bL, 0x0000000080000001L,
+		0x8000000080008081L, 0x8000000000008009L, 0x000000000000008aL,
+		0x0000000000000088L, 0x0000000080008009L, 0x000000008000000aL,
+		0x000000008000808bL, 0x800000000000008bL, 0x8000000000008089L,
+		0x8000000000008003L, 0x8000000000008002L, 0x8000000000000080L,
+		0x000000000000800aL, 0x800000008000000aL, 0x8000000080008081L,
+		0x8000000000008080L, 0x0000000080000001L, 0x8000000080008008L
+	};
+
+	private final long[] A;
+	private final byte[] buffer;
+	private final int rate;
+	private int bufferLen;
+	private boolean squeezing;
+
+	/**
+	 * Creates a new {@code KeccakSponge}.
+	 *
+	 * @param rate the sponge's rate (in bytes), must be a multiple of 8
+	 *	lower than 200.
+	 */
+	KeccakSponge(int rate)
+	{
+		this.A = new long[25];
+		this.buffer = new byte[rate];
+		this.rate = rate;
+	}
+
+	/**
+	 * Returns this sponge's rate, that is, the number of bytes absorbed or
+	 * squeezed per permutation.
+	 *
+	 * @return this sponge's rate (in bytes).
+	 */
+	int rate()
+	{
+		return rate;
+	}
+
+	/**
+	 * Returns whether this sponge has been padded and is now squeezing.
+	 *
+	 * @return whether this sponge is in its squeezing phase.
+	 */
+	boolean isSqueezing()
+	{
+		return squeezing;
+	}
+
+	/** Resets this sponge to its initial (empty) state. */
+	void reset()
+	{
+		Arrays.fill(A, 0L);
+		bufferLen = 0;
+		squeezing = false;
+	}
+
+	/**
+	 * Absorbs the given byte.
+	 *
+	 * @param input the byte to absorb.
+	 */
+	void absorb(byte input)
+	{
+		buffer[bufferLen] = input;
+		if (++bufferLen == rate) {
+			absorbBlock(buffer, 0);
+			bufferLen = 0;
+		}
+	}
+
+	/**
+	 * Absorbs {@code len} bytes of {@code input}, starting at {@code off}.
+	 * Bounds are not checked.
+	 *
+	 * @param input the input data.
+	 * @param off the input data's start offset.
+	 * @param len the number of bytes to absorb.
+	 */
+	void absorb(byte[] input, int off, int len)
+	{
+		if (bufferLen > 0) {
+			int cpLen = Math.min(rate - bufferLen, len);
+			System.arraycopy(input, off, buffer, bufferLen, cpLen);
+			bufferLen += cpLen;
+			off += cpLen;
+			len -= cpLen;
+			if (bufferLen == rate) {
+				absorbBlock(buffer, 0);
+				bufferLen = 0;
+			}
+		}
+		while (len >= rate) {
+			absorbBlock(input, off);
+			off += rate;
+			len -= rate;
+		}
+		System.arraycopy(input, off, buffer, bufferLen, len);
+		bufferLen += len;
+	}
+
+	/**
+	 * Appends the given domain separation suffix and the final bit of the
+	 * pad10*1 rule to the absorbed data and switches to the squeezing
+	 * phase. The suffix must include the first bit of the padding (that
+	 * is, 0x01 for Keccak, 0x06 for SHA-3 and 0x1F for SHAKE).
+	 *
+	 * @param suffix the domain separation suffix.
+	 */
+	void pad(int suffix)
+	{
+		Arrays.fill(buffer, bufferLen, rate, (byte) 0);
+		buffer[bufferLen] = (byte) suffix;
+		buffer[rate - 1] |= (byte) 0x80;
+		absorbBlock(buffer, 0);
+		bufferLen = 0;
+		squeezing = true;
+	}
+
+	/**
+	 * Squeezes {@code len} bytes out of this sponge, which must have been
+	 * padded, into {@code out}, starting at {@code off}. Consecutive calls
+	 * return consecutive parts of the same output stream. Bounds are not
+	 * checked.
+	 *
+	 * @param out the output buffer.
+	 * @param off the output buffer's start offset.
+	 * @param len the number of bytes to squeeze.
+	 */
+	void squeeze(byte[] out, int off, int len)
+	{
+		int pos = bufferLen;
+		for (int i = 0; i < len; i++) {
+			if (pos == rate) {
+				keccakf(A);
+				pos = 0;
+			}
+			out[off + i] = (byte) (A[pos >>> 3] >>> ((pos & 7) << 3));
+			pos++;
+		}
+		bufferLen = pos;
+	}
+
+	/**
+	 * Copies the state of the given sponge, which must have the same rate,
+	 * into this one.
+	 *
+	 * @param sponge the sponge to copy.
+	 */
+	void restore(KeccakSponge sponge)
+	{
+		System.arraycopy(sponge.A, 0, A, 0, 25);
+		System.arraycopy(sponge.buffer, 0, buffer, 0, sponge.bufferLen);
+		bufferLen = sponge.bufferLen;
+		squeezing = sponge.squeezing;
+	}
+
+	private void absorbBlock(byte[] input, int off)
+	{
+		for (int i = 0; i < rate; i += 8) {
+			A[i >>> 3] ^= LittleEndian.decodeLong(input, off + i);
+		}
+		keccakf(A);
+	}
+
+	/**
+	 * The Keccak-f[1600] permutation.
+	 *
+	 * @param A the state to permute.
+	 */
+	static void keccakf(long[] A)
+	{
+		long a0 = A[0], a1 = A[1], a2 = A[2], a3 = A[3], a4 = A[4];
+		long a5 = A[5], a6 = A[6], a7 = A[7], a8 = A[8], a9 = A[9];
+		long a10 = A[10], a11 = A[11], a12 = A[12], a13 = A[13], a14 = A[14];
+		long a15 = A[15], a16 = A[16], a17 = A[17], a18 = A[18], a19 = A[19];
+		long a20 = A[20], a21 = A[21], a22 = A[22], a23 = A[23], a24 = A[24];
+		for (int n = 0; n < 24; n++) {
+			long c0 = a0 ^ a5 ^ a10 ^ a15 ^ a20;
+			long c1 = a1 ^ a6 ^ a11 ^ a16 ^ a21;
+			long c2 = a2 ^ a7 ^ a12 ^ a17 ^ a22;
+			long c3 = a3 ^ a8 ^ a13 ^ a18 ^ a23;
+			long c4 = a4 ^ a9 ^ a14 ^ a19 ^ a24;
+			long d0 = c4 ^ Bits.rotateLeft(c1, 1);
+			long d1 = c0 ^ Bits.rotateLeft(c2, 1);
+			long d2 = c1 ^ Bits.rotateLeft(c3, 1);
+			long d3 = c2 ^ Bits.rotateLeft(c4, 1);
+			long d4 = c3 ^ Bits.rotateLeft(c0, 1);
+			a0 ^= d0; a1 ^= d1; a2 ^= d2; a3 ^= d3; a4 ^= d4;
+			a5 ^= d0; a6 ^= d1; a7 ^= d2; a8 ^= d3; a9 ^= d4;
+			a10 ^= d0; a11 ^= d1; a12 ^= d2; a13 ^= d3; a14 ^= d4;
+			a15 ^= d0; a16 ^= d1; a17 ^= d2; a18 ^= d3; a19 ^= d4;
+			a20 ^= d0; a21 ^= d1; a22 ^= d2; a23 ^= d3; a24 ^= d4;
+			long b0 = a0;
+			long b1 = Bits.rotateLeft(a6, 44);
+			long b2 = Bits.rotateLeft(a12, 43);
+			long b3 = Bits.rotateLeft(a18, 21);
+			long b4 = Bits.rotateLeft(a24, 14);
+			long b5 = Bits.rotateLeft(a3, 28);
+			long b6 = Bits.rotateLeft(a9, 20);
+			long b7 = Bits.rotateLeft(a10, 3);
+			long b8 = Bits.rotateLeft(a16, 45);
+			long b9 = Bits.rotateLeft(a22, 61);
+			long b10 = Bits.rotateLeft(a1, 1);
+			long b11 = Bits.rotateLeft(a7, 6);
+			long b12 = Bits.rotateLeft(a13, 25);
+			long b13 = Bits.rotateLeft(a19, 8);
+			long b14 = Bits.rotateLeft(a20, 18);
+			long b15 = Bits.rotateLeft(a4, 27);
+			long b16 = Bits.rotateLeft(a5, 36);
+			long b17 = Bits.rotateLeft(a11, 10);
+			long b18 = Bits.rotateLeft(a17, 15);
+			long b19 = Bits.rotateLeft(a23, 56);
+			long b20 = Bits.rotateLeft(a2, 62);
+			long b21 = Bits.rotateLeft(a8, 55);
+			long b22 = Bits.rotateLeft(a14, 39);
+			long b23 = Bits.rotateLeft(a15, 41);
+			long b24 = Bits.rotateLeft(a21, 2);
+			a0 = b0 ^ (~b1 & b2);
+			a1 = b1 ^ (~b2 & b3);
+			a2 = b2 ^ (~b3 & b4);
+			a3 = b3 ^ (~b4 & b0);
+			a4 = b4 ^ (~b0 & b1);
+			a5 = b5 ^ (~b6 & b7);
+			a6 = b6 ^ (~b7 & b8);
+			a7 = b7 ^ (~b8 & b9);
+			a8 = b8 ^ (~b9 & b5);
+			a9 = b9 ^ (~b5 & b6);
+			a10 = b10 ^ (~b11 & b12);
+			a11 = b11 ^ (~b12 & b13);
+			a12 = b12 ^ (~b13 & b14);
+			a13 = b13 ^ (~b14 & b10);
+			a14 = b14 ^ (~b10 & b11);
+			a15 = b15 ^ (~b16 & b17);
+			a16 = b16 ^ (~b17 & b18);
+			a17 = b17 ^ (~b18 & b19);
+			a18 = b18 ^ (~b19 & b15);
+			a19 = b19 ^ (~b15 & b16);
+			a20 = b20 ^ (~b21 & b22);
+			a21 = b21 ^ (~b22 & b23);
+			a22 = b22 ^ (~b23 & b24);
+			a23 = b23 ^ (~b24 & b20);
+			a24 = b24 ^ (~b20 & b21);
+			a0 ^= RC[n];
+		}
+		A[0] = a0; A[1] = a1; A[2] = a2; A[3] = a3; A[4] = a4;
+		A[5] = a5; A[6] = a6; A[7] = a7; A[8] = a8; A[9] = a9;
+		A[10] = a10; A[11] = a11; A[12] = a12; A[13] = a13; A[14] = a14;
+		A[15] = a15; A[16] = a16; A[17] = a17; A[18] = a18; A[19] = a19;
+		A[20] = a20; A[21] = a21; A[22] = a22; A[23] = a23; A[24] = a24;
+	}
+}
@@ -0,0 +1,134 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+package org.kocakosm.pitaya.security;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link MAC} engine backed by a digest algorithm that natively supports a
+ * keyed mode (such as BLAKE2), and which thus doesn't need the HMAC nested
+ * construction. Instances of this class are not thread safe.
+ *
+ * @author Osman KOCAK
+ */
+final class KeyedDigestMAC implements MAC
+{
+	private final Digest digest;
+
+	/**
+	 * Creates a new {@code KeyedDigestMAC}.
+	 *
+	 * @param digest the keyed digest engine.
+	 */
+	KeyedDigestMAC(Digest digest)
+	{
+		this.digest = digest;
+	}
+
+	@Override
+	public int length()
+	{
+		return digest.length();
+	}
+
+	@Override
+	public MAC reset()
+	{
+		digest.reset();
+		return this;
+	}
+
+	@Override
+	public MAC update(byte input)
+	{
+		digest.update(input);
+		return this;
+	}
+
+	@Override
+	public MAC update(byte... input)
+	{
+		digest.update(input);
+		return this;
+	}
+
+	@Override
+	public MAC update(byte[] input, int off, int len)
+	{
+		digest.update(input, off, len);
+		return this;
+	}
+
+	@Override
+	public MAC update(InputStream input) throws IOException
+	{
+		digest.update(input);
+		return this;
+	}
+
+	@Override
+	public MAC update(ByteBuffer input)
+	{
+		digest.update(input);
+		return this;
+	}
+
+	@Override
+	public MAC update(File input) throws IOException
+	{
+		digest.update(input);
+		return this;
+	}
+
+	@Override
+	public byte[] mac()
+	{
+		return digest.digest();
+	}
+
+	@Override
+	public int mac(byte[] out, int off)
+	{
+		return digest.digest(out, off);
+	}
+
+	@Override
+	public byte[] mac(byte... input)
+	{
+		return digest.digest(input);
+	}
+
+	@Override
+	public byte[] mac(byte[] input, int off, int len)
+	{
+		return digest.digest(input, off, len);
+	}
+
+	@Override
+	public byte[] mac(InputStream input) throws IOException
+	{
+		return digest.digest(input);
+	}
+
+	@Override
+	public String toString()
+	{
+		return digest + "-MAC";
+	}
+}
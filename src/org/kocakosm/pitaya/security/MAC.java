@@ -16,8 +16,10 @@
 
 package org.kocakosm.pitaya.security;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * MAC (Message Authentication Code) engine. A MAC provides a way to check the
@@ -96,6 +98,39 @@ public interface MAC
 	 */
 	MAC update(InputStream input) throws IOException;
 
+	/**
+	 * Updates the MAC using the remaining bytes of the given buffer, that
+	 * is, the bytes between its position and its limit. Upon return, the
+	 * buffer's position will be equal to its limit; its limit will not
+	 * have changed.
+	 *
+	 * @param input the buffer to process.
+	 *
+	 * @return this object.
+	 *
+	 * @throws NullPointerException if {@code input} is {@code null}.
+	 */
+	MAC update(ByteBuffer input);
+
+	/**
+	 * Updates the MAC using the content of the specified file. Large files
+	 * are memory-mapped, region by region, and the mapped regions are fed
+	 * directly to the MAC, which is usually faster than reading the file
+	 * through a stream; small files, for which mapping isn't worth its
+	 * cost, are simply read.
+	 *
+	 * @param input the file to process.
+	 *
+	 * @return this object.
+	 *
+	 * @throws NullPointerException if {@code input} is {@code null}.
+	 * @throws IOException if {@code input} does not exist, or if it is a
+	 *	directory rather than a regular file, or if it can't be read.
+	 * @throws SecurityException if a security manager exists and denies
+	 *	read access to {@code input}.
+	 */
+	MAC update(File input) throws IOException;
+
 	/**
 	 * Completes the MAC computation. Note that the engine is reset after
 	 * this call is made.
@@ -104,6 +139,24 @@ public interface MAC
 	 */
 	byte[] mac();
 
+	/**
+	 * Completes the MAC computation and writes the resulting MAC into the
+	 * given array, starting at the specified offset. Note that the engine
+	 * is reset after this call is made.
+	 *
+	 * @param out the output buffer.
+	 * @param off the offset at which to start writing in {@code out}.
+	 *
+	 * @return the number of bytes written into {@code out}, that is, the
+	 *	MAC's length.
+	 *
+	 * @throws NullPointerException if {@code out} is {@code null}.
+	 * @throws IndexOutOfBoundsException if {@code off} is negative or if
+	 *	{@code out} is too small to hold the MAC (that is, if
+	 *	{@code off + length()} is greater than {@code out}'s length).
+	 */
+	int mac(byte[] out, int off);
+
 	/**
 	 * Performs a final update on the MAC using the specified array of
 	 * bytes, then completes the MAC computation. That is, this method first
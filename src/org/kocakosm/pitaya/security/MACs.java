@@ -0,0 +1,100 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+package org.kocakosm.pitaya.security;
+
+/**
+ * Some commonly used MAC algorithms, other than {@linkplain HMAC}. None of the
+ * {@link MAC} instances returned by this class is thread-safe.
+ *
+ * @author Osman KOCAK
+ */
+public final class MACs
+{
+	/**
+	 * Returns a new BLAKE2b-512 {@link MAC} instance, that is, BLAKE2b in
+	 * keyed mode, with a 64-byte output.
+	 *
+	 * @param key the MAC's secret key (at most 64 bytes).
+	 *
+	 * @return a new BLAKE2b-512 {@link MAC} instance.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 * @throws IllegalArgumentException if {@code key} is longer than 64
+	 *	bytes.
+	 */
+	public static MAC blake2b(byte... key)
+	{
+		return blake2b(BLAKE2b.MAX_LENGTH, key);
+	}
+
+	/**
+	 * Returns a new BLAKE2b {@link MAC} instance, that is, BLAKE2b in
+	 * keyed mode, with the given output length.
+	 *
+	 * @param length the MAC's length (in bytes).
+	 * @param key the MAC's secret key (at most 64 bytes).
+	 *
+	 * @return a new BLAKE2b {@link MAC} instance.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 * @throws IllegalArgumentException if {@code length} is not in
+	 *	[1, 64] or if {@code key} is longer than 64 bytes.
+	 */
+	public static MAC blake2b(int length, byte... key)
+	{
+		return new KeyedDigestMAC(new BLAKE2b(length, key));
+	}
+
+	/**
+	 * Returns a new BLAKE2s-256 {@link MAC} instance, that is, BLAKE2s in
+	 * keyed mode, with a 32-byte output.
+	 *
+	 * @param key the MAC's secret key (at most 32 bytes).
+	 *
+	 * @return a new BLAKE2s-256 {@link MAC} instance.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 * @throws IllegalArgumentException if {@code key} is longer than 32
+	 *	bytes.
+	 */
+	public static MAC blake2s(byte... key)
+	{
+		return blake2s(BLAKE2s.MAX_LENGTH, key);
+	}
+
+	/**
+	 * Returns a new BLAKE2s {@link MAC} instance, that is, BLAKE2s in
+	 * keyed mode, with the given output length.
+	 *
+	 * @param length the MAC's length (in bytes).
+	 * @param key the MAC's secret key (at most 32 bytes).
+	 *
+	 * @return a new BLAKE2s {@link MAC} instance.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 * @throws IllegalArgumentException if {@code length} is not in
+	 *	[1, 32] or if {@code key} is longer than 32 bytes.
+	 */
+	public static MAC blake2s(int length, byte... key)
+	{
+		return new KeyedDigestMAC(new BLAKE2s(length, key));
+	}
+
+	private MACs()
+	{
+		/* ... */
+	}
+}
@@ -16,6 +16,8 @@
 
 package org.kocakosm.pitaya.security;
 
+import java.util.Arrays;
+
 /**
  * The MD2 digest algorithm. Instances of this class are not thread safe.
  *
@@ -27,69 +29,43 @@ final class MD2 extends AbstractDigest
 	private static final int BLOCK_LENGTH = 16;
 
 	/** 256-byte "random" permutation constructed from the digits of PI. */
-	private static final byte[] S = {
-		(byte) 0x29, (byte) 0x2E, (byte) 0x43, (byte) 0xC9, (byte) 0xA2,
-		(byte) 0xD8, (byte) 0x7C, (byte) 0x01, (byte) 0x3D, (byte) 0x36,
-		(byte) 0x54, (byte) 0xA1, (byte) 0xEC, (byte) 0xF0, (byte) 0x06,
-		(byte) 0x13, (byte) 0x62, (byte) 0xA7, (byte) 0x05, (byte) 0xF3,
-		(byte) 0xC0, (byte) 0xC7, (byte) 0x73, (byte) 0x8C, (byte) 0x98,
-		(byte) 0x93, (byte) 0x2B, (byte) 0xD9, (byte) 0xBC, (byte) 0x4C,
-		(byte) 0x82, (byte) 0xCA, (byte) 0x1E, (byte) 0x9B, (byte) 0x57,
-		(byte) 0x3C, (byte) 0xFD, (byte) 0xD4, (byte) 0xE0, (byte) 0x16,
-		(byte) 0x67, (byte) 0x42, (byte) 0x6F, (byte) 0x18, (byte) 0x8A,
-		(byte) 0x17, (byte) 0xE5, (byte) 0x12, (byte) 0xBE, (byte) 0x4E,
-		(byte) 0xC4, (byte) 0xD6, (byte) 0xDA, (byte) 0x9E, (byte) 0xDE,
-		(byte) 0x49, (byte) 0xA0, (byte) 0xFB, (byte) 0xF5, (byte) 0x8E,
-		(byte) 0xBB, (byte) 0x2F, (byte) 0xEE, (byte) 0x7A, (byte) 0xA9,
-		(byte) 0x68, (byte) 0x79, (byte) 0x91, (byte) 0x15, (byte) 0xB2,
-		(byte) 0x07, (byte) 0x3F, (byte) 0x94, (byte) 0xC2, (byte) 0x10,
-		(byte) 0x89, (byte) 0x0B, (byte) 0x22, (byte) 0x5F, (byte) 0x21,
-		(byte) 0x80, (byte) 0x7F, (byte) 0x5D, (byte) 0x9A, (byte) 0x5A,
-		(byte) 0x90, (byte) 0x32, (byte) 0x27, (byte) 0x35, (byte) 0x3E,
-		(byte) 0xCC, (byte) 0xE7, (byte) 0xBF, (byte) 0xF7, (byte) 0x97,
-		(byte) 0x03, (byte) 0xFF, (byte) 0x19, (byte) 0x30, (byte) 0xB3,
-		(byte) 0x48, (byte) 0xA5, (byte) 0xB5, (byte) 0xD1, (byte) 0xD7,
-		(byte) 0x5E, (byte) 0x92, (byte) 0x2A, (byte) 0xAC, (byte) 0x56,
-		(byte) 0xAA, (byte) 0xC6, (byte) 0x4F, (byte) 0xB8, (byte) 0x38,
-		(byte) 0xD2, (byte) 0x96, (byte) 0xA4, (byte) 0x7D, (byte) 0xB6,
-		(byte) 0x76, (byte) 0xFC, (byte) 0x6B, (byte) 0xE2, (byte) 0x9C,
-		(byte) 0x74, (byte) 0x04, (byte) 0xF1, (byte) 0x45, (byte) 0x9D,
-		(byte) 0x70, (byte) 0x59, (byte) 0x64, (byte) 0x71, (byte) 0x87,
-		(byte) 0x20, (byte) 0x86, (byte) 0x5B, (byte) 0xCF, (byte) 0x65,
-		(byte) 0xE6, (byte) 0x2D, (byte) 0xA8, (byte) 0x02, (byte) 0x1B,
-		(byte) 0x60, (byte) 0x25, (byte) 0xAD, (byte) 0xAE, (byte) 0xB0,
-		(byte) 0xB9, (byte) 0xF6, (byte) 0x1C, (byte) 0x46, (byte) 0x61,
-		(byte) 0x69, (byte) 0x34, (byte) 0x40, (byte) 0x7E, (byte) 0x0F,
-		(byte) 0x55, (byte) 0x47, (byte) 0xA3, (byte) 0x23, (byte) 0xDD,
-		(byte) 0x51, (byte) 0xAF, (byte) 0x3A, (byte) 0xC3, (byte) 0x5C,
-		(byte) 0xF9, (byte) 0xCE, (byte) 0xBA, (byte) 0xC5, (byte) 0xEA,
-		(byte) 0x26, (byte) 0x2C, (byte) 0x53, (byte) 0x0D, (byte) 0x6E,
-		(byte) 0x85, (byte) 0x28, (byte) 0x84, (byte) 0x09, (byte) 0xD3,
-		(byte) 0xDF, (byte) 0xCD, (byte) 0xF4, (byte) 0x41, (byte) 0x81,
-		(byte) 0x4D, (byte) 0x52, (byte) 0x6A, (byte) 0xDC, (byte) 0x37,
-		(byte) 0xC8, (byte) 0x6C, (byte) 0xC1, (byte) 0xAB, (byte) 0xFA,
-		(byte) 0x24, (byte) 0xE1, (byte) 0x7B, (byte) 0x08, (byte) 0x0C,
-		(byte) 0xBD, (byte) 0xB1, (byte) 0x4A, (byte) 0x78, (byte) 0x88,
-		(byte) 0x95, (byte) 0x8B, (byte) 0xE3, (byte) 0x63, (byte) 0xE8,
-		(byte) 0x6D, (byte) 0xE9, (byte) 0xCB, (byte) 0xD5, (byte) 0xFE,
-		(byte) 0x3B, (byte) 0x00, (byte) 0x1D, (byte) 0x39, (byte) 0xF2,
-		(byte) 0xEF, (byte) 0xB7, (byte) 0x0E, (byte) 0x66, (byte) 0x58,
-		(byte) 0xD0, (byte) 0xE4, (byte) 0xA6, (byte) 0x77, (byte) 0x72,
-		(byte) 0xF8, (byte) 0xEB, (byte) 0x75, (byte) 0x4B, (byte) 0x0A,
-		(byte) 0x31, (byte) 0x44, (byte) 0x50, (byte) 0xB4, (byte) 0x8F,
-		(byte) 0xED, (byte) 0x1F, (byte) 0x1A, (byte) 0xDB, (byte) 0x99,
-		(byte) 0x8D, (byte) 0x33, (byte) 0x9F, (byte) 0x11, (byte) 0x83,
-		(byte) 0x14
+	private static final int[] S = {
+		0x29, 0x2E, 0x43, 0xC9, 0xA2, 0xD8, 0x7C, 0x01, 0x3D, 0x36,
+		0x54, 0xA1, 0xEC, 0xF0, 0x06, 0x13, 0x62, 0xA7, 0x05, 0xF3,
+		0xC0, 0xC7, 0x73, 0x8C, 0x98, 0x93, 0x2B, 0xD9, 0xBC, 0x4C,
+		0x82, 0xCA, 0x1E, 0x9B, 0x57, 0x3C, 0xFD, 0xD4, 0xE0, 0x16,
+		0x67, 0x42, 0x6F, 0x18, 0x8A, 0x17, 0xE5, 0x12, 0xBE, 0x4E,
+		0xC4, 0xD6, 0xDA, 0x9E, 0xDE, 0x49, 0xA0, 0xFB, 0xF5, 0x8E,
+		0xBB, 0x2F, 0xEE, 0x7A, 0xA9, 0x68, 0x79, 0x91, 0x15, 0xB2,
+		0x07, 0x3F, 0x94, 0xC2, 0x10, 0x89, 0x0B, 0x22, 0x5F, 0x21,
+		0x80, 0x7F, 0x5D, 0x9A, 0x5A, 0x90, 0x32, 0x27, 0x35, 0x3E,
+		0xCC, 0xE7, 0xBF, 0xF7, 0x97, 0x03, 0xFF, 0x19, 0x30, 0xB3,
+		0x48, 0xA5, 0xB5, 0xD1, 0xD7, 0x5E, 0x92, 0x2A, 0xAC, 0x56,
+		0xAA, 0xC6, 0x4F, 0xB8, 0x38, 0xD2, 0x96, 0xA4, 0x7D, 0xB6,
+		0x76, 0xFC, 0x6B, 0xE2, 0x9C, 0x74, 0x04, 0xF1, 0x45, 0x9D,
+		0x70, 0x59, 0x64, 0x71, 0x87, 0x20, 0x86, 0x5B, 0xCF, 0x65,
+		0xE6, 0x2D, 0xA8, 0x02, 0x1B, 0x60, 0x25, 0xAD, 0xAE, 0xB0,
+		0xB9, 0xF6, 0x1C, 0x46, 0x61, 0x69, 0x34, 0x40, 0x7E, 0x0F,
+		0x55, 0x47, 0xA3, 0x23, 0xDD, 0x51, 0xAF, 0x3A, 0xC3, 0x5C,
+		0xF9, 0xCE, 0xBA, 0xC5, 0xEA, 0x26, 0x2C, 0x53, 0x0D, 0x6E,
+		0x85, 0x28, 0x84, 0x09, 0xD3, 0xDF, 0xCD, 0xF4, 0x41, 0x81,
+		0x4D, 0x52, 0x6A, 0xDC, 0x37, 0xC8, 0x6C, 0xC1, 0xAB, 0xFA,
+		0x24, 0xE1, 0x7B, 0x08, 0x0C, 0xBD, 0xB1, 0x4A, 0x78, 0x88,
+		0x95, 0x8B, 0xE3, 0x63, 0xE8, 0x6D, 0xE9, 0xCB, 0xD5, 0xFE,
+		0x3B, 0x00, 0x1D, 0x39, 0xF2, 0xEF, 0xB7, 0x0E, 0x66, 0x58,
+		0xD0, 0xE4, 0xA6, 0x77, 0x72, 0xF8, 0xEB, 0x75, 0x4B, 0x0A,
+		0x31, 0x44, 0x50, 0xB4, 0x8F, 0xED, 0x1F, 0x1A, 0xDB, 0x99,
+		0x8D, 0x33, 0x9F, 0x11, 0x83, 0x14
 	};
 
 	/** Input buffer. */
 	private final byte[] buffer;
 
-	/** Current checksum. */
-	private byte[] checksum;
+	/** Current checksum (16 bytes, stored as ints). */
+	private final int[] checksum;
 
-	/** Work buffer. */
-	private byte[] X;
+	/** Work buffer (48 bytes, stored as ints). */
+	private final int[] X;
 
 	/** Number of bytes in the input buffer. */
 	private int bufferLen;
@@ -99,15 +75,16 @@ final class MD2 extends AbstractDigest
 	{
 		super("MD2", DIGEST_LENGTH);
 		this.buffer = new byte[BLOCK_LENGTH];
-		reset();
+		this.checksum = new int[BLOCK_LENGTH];
+		this.X = new int[BLOCK_LENGTH * 3];
 	}
 
 	@Override
 	public Digest reset()
 	{
 		bufferLen = 0;
-		checksum = new byte[BLOCK_LENGTH];
-		X = new byte[BLOCK_LENGTH * 3];
+		Arrays.fill(checksum, 0);
+		Arrays.fill(X, 0);
 		return this;
 	}
 
@@ -124,7 +101,7 @@ final class MD2 extends AbstractDigest
 	@Override
 	public Digest update(byte[] input, int off, int len)
 	{
-		while (len > 0) {
+		if (bufferLen > 0) {
 			int cpLen = Math.min(BLOCK_LENGTH - bufferLen, len);
 			System.arraycopy(input, off, buffer, bufferLen, cpLen);
 			bufferLen += cpLen;
@@ -134,64 +111,95 @@ final class MD2 extends AbstractDigest
 				processBuffer();
 			}
 		}
+		while (len >= BLOCK_LENGTH) {
+			processBlock(input, off);
+			off += BLOCK_LENGTH;
+			len -= BLOCK_LENGTH;
+		}
+		System.arraycopy(input, off, buffer, bufferLen, len);
+		bufferLen += len;
 		return this;
 	}
 
 	@Override
-	public byte[] digest()
+	public AbstractDigest copy()
+	{
+		MD2 copy = new MD2();
+		copy.restore(this);
+		return copy;
+	}
+
+	@Override
+	void restore(AbstractDigest state)
+	{
+		MD2 md2 = (MD2) state;
+		System.arraycopy(md2.buffer, 0, buffer, 0, md2.bufferLen);
+		System.arraycopy(md2.checksum, 0, checksum, 0, BLOCK_LENGTH);
+		System.arraycopy(md2.X, 0, X, 0, BLOCK_LENGTH * 3);
+		bufferLen = md2.bufferLen;
+	}
+
+	@Override
+	void doFinal(byte[] out, int off)
 	{
 		addPadding();
 		processBuffer();
 		processChecksum();
-		byte[] hash = new byte[DIGEST_LENGTH];
-		System.arraycopy(X, 0, hash, 0, DIGEST_LENGTH);
+		for (int i = 0; i < DIGEST_LENGTH; i++) {
+			out[off + i] = (byte) X[i];
+		}
 		reset();
-		return hash;
 	}
 
 	private void addPadding()
 	{
 		int len = BLOCK_LENGTH - bufferLen;
-		for (int i = bufferLen; i < BLOCK_LENGTH; i++) {
-			buffer[i] = (byte) len;
-		}
-	}
-
-	private void updateChecksum()
-	{
-		byte l = checksum[BLOCK_LENGTH - 1];
-		for (int i = 0; i < BLOCK_LENGTH; i++) {
-			l = (byte) (checksum[i] ^ S[(buffer[i] ^ l) & 0xFF]);
-			checksum[i] = l;
-		}
+		Arrays.fill(buffer, bufferLen, BLOCK_LENGTH, (byte) len);
 	}
 
 	private void processBuffer()
 	{
-		updateChecksum();
-		process(buffer);
+		processBlock(buffer, 0);
 		bufferLen = 0;
 	}
 
-	private void processChecksum()
+	/**
+	 * Updates the checksum and the work buffer with the 16-byte block
+	 * starting at {@code off} in {@code in}.
+	 */
+	private void processBlock(byte[] in, int off)
 	{
-		process(checksum);
+		int[] x = X;
+		int[] c = checksum;
+		int l = c[BLOCK_LENGTH - 1];
+		for (int i = 0; i < BLOCK_LENGTH; i++) {
+			int b = in[off + i] & 0xFF;
+			x[BLOCK_LENGTH + i] = b;
+			x[BLOCK_LENGTH * 2 + i] = x[i] ^ b;
+			l = c[i] ^= S[b ^ l];
+		}
+		transform(x);
 	}
 
-	private void process(byte[] buf)
+	private void processChecksum()
 	{
+		int[] x = X;
 		for (int i = 0; i < BLOCK_LENGTH; i++) {
-			byte b = buf[i];
-			X[BLOCK_LENGTH + i] = b;
-			X[BLOCK_LENGTH * 2 + i] = (byte) (X[i] ^ b);
+			int b = checksum[i];
+			x[BLOCK_LENGTH + i] = b;
+			x[BLOCK_LENGTH * 2 + i] = x[i] ^ b;
 		}
-		byte t = 0;
+		transform(x);
+	}
+
+	private static void transform(int[] x)
+	{
+		int t = 0;
 		for (int j = 0; j < 18; j++) {
 			for (int k = 0; k < 3 * BLOCK_LENGTH; k++) {
-				t = (byte) (X[k] ^ S[t & 0xFF]);
-				X[k] = t;
+				t = x[k] ^= S[t];
 			}
-			t = (byte) (t + j);
+			t = (t + j) & 0xFF;
 		}
 	}
 }
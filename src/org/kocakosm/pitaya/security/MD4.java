@@ -19,6 +19,8 @@ package org.kocakosm.pitaya.security;
 import org.kocakosm.pitaya.util.Bits;
 import org.kocakosm.pitaya.util.LittleEndian;
 
+import java.util.Arrays;
+
 /**
  * The MD4 digest algorithm. Instances of this class are not thread safe.
  *
@@ -75,7 +77,7 @@ final class MD4 extends AbstractDigest
 	@Override
 	public Digest update(byte[] input, int off, int len)
 	{
-		while (len > 0) {
+		if (bufferLen > 0) {
 			int cpLen = Math.min(BLOCK_LENGTH - bufferLen, len);
 			System.arraycopy(input, off, buffer, bufferLen, cpLen);
 			bufferLen += cpLen;
@@ -85,104 +87,143 @@ final class MD4 extends AbstractDigest
 				processBuffer();
 			}
 		}
+		while (len >= BLOCK_LENGTH) {
+			processBlock(input, off);
+			off += BLOCK_LENGTH;
+			len -= BLOCK_LENGTH;
+		}
+		System.arraycopy(input, off, buffer, bufferLen, len);
+		bufferLen += len;
 		return this;
 	}
 
 	@Override
-	public byte[] digest()
+	public AbstractDigest copy()
+	{
+		MD4 copy = new MD4();
+		copy.restore(this);
+		return copy;
+	}
+
+	@Override
+	void restore(AbstractDigest state)
+	{
+		MD4 md4 = (MD4) state;
+		counter = md4.counter;
+		System.arraycopy(md4.value, 0, value, 0, 4);
+		System.arraycopy(md4.buffer, 0, buffer, 0, md4.bufferLen);
+		bufferLen = md4.bufferLen;
+	}
+
+	@Override
+	void doFinal(byte[] out, int off)
 	{
 		addPadding();
-		byte[] res = new byte[DIGEST_LENGTH];
-		LittleEndian.encode(value[0], res, 0);
-		LittleEndian.encode(value[1], res, 4);
-		LittleEndian.encode(value[2], res, 8);
-		LittleEndian.encode(value[3], res, 12);
+		LittleEndian.encode(value[0], out, off);
+		LittleEndian.encode(value[1], out, off + 4);
+		LittleEndian.encode(value[2], out, off + 8);
+		LittleEndian.encode(value[3], out, off + 12);
 		reset();
-		return res;
 	}
 
 	/** Adds the padding bits and the message length to the input data. */
 	private void addPadding()
 	{
-		int len = BLOCK_LENGTH - bufferLen;
-		if (len < 9) {
-			len += BLOCK_LENGTH;
-		}
-		byte[] buf = new byte[len];
-		buf[0] = (byte) 0x80;
-		for (int i = 1; i < len - 8; i++) {
-			buf[i] = (byte) 0x00;
+		long bits = (counter + (long) bufferLen) * 8L;
+		buffer[bufferLen++] = (byte) 0x80;
+		if (bufferLen > BLOCK_LENGTH - 8) {
+			Arrays.fill(buffer, bufferLen, BLOCK_LENGTH, (byte) 0x00);
+			processBuffer();
 		}
-		counter = (counter + (long) bufferLen) * 8L;
-		LittleEndian.encode(counter, buf, len - 8);
-		update(buf);
+		Arrays.fill(buffer, bufferLen, BLOCK_LENGTH - 8, (byte) 0x00);
+		LittleEndian.encode(bits, buffer, BLOCK_LENGTH - 8);
+		processBuffer();
 	}
 
 	private void processBuffer()
+	{
+		processBlock(buffer, 0);
+		bufferLen = 0;
+	}
+
+	/** Compresses the 64-byte block starting at {@code off} in {@code in}. */
+	private void processBlock(byte[] in, int off)
 	{
 		int A = value[0];
 		int B = value[1];
 		int C = value[2];
 		int D = value[3];
 
-		int[] X = new int[16];
-		for (int i = 0; i < 16; i++) {
-			X[i] = LittleEndian.decodeInt(buffer, 4 * i);
-		}
+		int x0 = LittleEndian.decodeInt(in, off);
+		int x1 = LittleEndian.decodeInt(in, off + 4);
+		int x2 = LittleEndian.decodeInt(in, off + 8);
+		int x3 = LittleEndian.decodeInt(in, off + 12);
+		int x4 = LittleEndian.decodeInt(in, off + 16);
+		int x5 = LittleEndian.decodeInt(in, off + 20);
+		int x6 = LittleEndian.decodeInt(in, off + 24);
+		int x7 = LittleEndian.decodeInt(in, off + 28);
+		int x8 = LittleEndian.decodeInt(in, off + 32);
+		int x9 = LittleEndian.decodeInt(in, off + 36);
+		int x10 = LittleEndian.decodeInt(in, off + 40);
+		int x11 = LittleEndian.decodeInt(in, off + 44);
+		int x12 = LittleEndian.decodeInt(in, off + 48);
+		int x13 = LittleEndian.decodeInt(in, off + 52);
+		int x14 = LittleEndian.decodeInt(in, off + 56);
+		int x15 = LittleEndian.decodeInt(in, off + 60);
 
 		/* Round 1 */
-		A = FF(A, B, C, D, X[ 0], 3);
-		D = FF(D, A, B, C, X[ 1], 7);
-		C = FF(C, D, A, B, X[ 2], 11);
-		B = FF(B, C, D, A, X[ 3], 19);
-		A = FF(A, B, C, D, X[ 4], 3);
-		D = FF(D, A, B, C, X[ 5], 7);
-		C = FF(C, D, A, B, X[ 6], 11);
-		B = FF(B, C, D, A, X[ 7], 19);
-		A = FF(A, B, C, D, X[ 8], 3);
-		D = FF(D, A, B, C, X[ 9], 7);
-		C = FF(C, D, A, B, X[10], 11);
-		B = FF(B, C, D, A, X[11], 19);
-		A = FF(A, B, C, D, X[12], 3);
-		D = FF(D, A, B, C, X[13], 7);
-		C = FF(C, D, A, B, X[14], 11);
-		B = FF(B, C, D, A, X[15], 19);
+		A = FF(A, B, C, D, x0, 3);
+		D = FF(D, A, B, C, x1, 7);
+		C = FF(C, D, A, B, x2, 11);
+		B = FF(B, C, D, A, x3, 19);
+		A = FF(A, B, C, D, x4, 3);
+		D = FF(D, A, B, C, x5, 7);
+		C = FF(C, D, A, B, x6, 11);
+		B = FF(B, C, D, A, x7, 19);
+		A = FF(A, B, C, D, x8, 3);
+		D = FF(D, A, B, C, x9, 7);
+		C = FF(C, D, A, B, x10, 11);
+		B = FF(B, C, D, A, x11, 19);
+		A = FF(A, B, C, D, x12, 3);
+		D = FF(D, A, B, C, x13, 7);
+		C = FF(C, D, A, B, x14, 11);
+		B = FF(B, C, D, A, x15, 19);
 
 		/* Round 2 */
-		A = GG(A, B, C, D, X[ 0], 3);
-		D = GG(D, A, B, C, X[ 4], 5);
-		C = GG(C, D, A, B, X[ 8], 9);
-		B = GG(B, C, D, A, X[12], 13);
-		A = GG(A, B, C, D, X[ 1], 3);
-		D = GG(D, A, B, C, X[ 5], 5);
-		C = GG(C, D, A, B, X[ 9], 9);
-		B = GG(B, C, D, A, X[13], 13);
-		A = GG(A, B, C, D, X[ 2], 3);
-		D = GG(D, A, B, C, X[ 6], 5);
-		C = GG(C, D, A, B, X[10], 9);
-		B = GG(B, C, D, A, X[14], 13);
-		A = GG(A, B, C, D, X[ 3], 3);
-		D = GG(D, A, B, C, X[ 7], 5);
-		C = GG(C, D, A, B, X[11], 9);
-		B = GG(B, C, D, A, X[15], 13);
+		A = GG(A, B, C, D, x0, 3);
+		D = GG(D, A, B, C, x4, 5);
+		C = GG(C, D, A, B, x8, 9);
+		B = GG(B, C, D, A, x12, 13);
+		A = GG(A, B, C, D, x1, 3);
+		D = GG(D, A, B, C, x5, 5);
+		C = GG(C, D, A, B, x9, 9);
+		B = GG(B, C, D, A, x13, 13);
+		A = GG(A, B, C, D, x2, 3);
+		D = GG(D, A, B, C, x6, 5);
+		C = GG(C, D, A, B, x10, 9);
+		B = GG(B, C, D, A, x14, 13);
+		A = GG(A, B, C, D, x3, 3);
+		D = GG(D, A, B, C, x7, 5);
+		C = GG(C, D, A, B, x11, 9);
+		B = GG(B, C, D, A, x15, 13);
 
 		/* Round 3 */
-		A = HH(A, B, C, D, X[ 0], 3);
-		D = HH(D, A, B, C, X[ 8], 9);
-		C = HH(C, D, A, B, X[ 4], 11);
-		B = HH(B, C, D, A, X[12], 15);
-		A = HH(A, B, C, D, X[ 2], 3);
-		D = HH(D, A, B, C, X[10], 9);
-		C = HH(C, D, A, B, X[ 6], 11);
-		B = HH(B, C, D, A, X[14], 15);
-		A = HH(A, B, C, D, X[ 1], 3);
-		D = HH(D, A, B, C, X[ 9], 9);
-		C = HH(C, D, A, B, X[ 5], 11);
-		B = HH(B, C, D, A, X[13], 15);
-		A = HH(A, B, C, D, X[ 3], 3);
-		D = HH(D, A, B, C, X[11], 9);
-		C = HH(C, D, A, B, X[ 7], 11);
-		B = HH(B, C, D, A, X[15], 15);
+		A = HH(A, B, C, D, x0, 3);
+		D = HH(D, A, B, C, x8, 9);
+		C = HH(C, D, A, B, x4, 11);
+		B = HH(B, C, D, A, x12, 15);
+		A = HH(A, B, C, D, x2, 3);
+		D = HH(D, A, B, C, x10, 9);
+		C = HH(C, D, A, B, x6, 11);
+		B = HH(B, C, D, A, x14, 15);
+		A = HH(A, B, C, D, x1, 3);
+		D = HH(D, A, B, C, x9, 9);
+		C = HH(C, D, A, B, x5, 11);
+		B = HH(B, C, D, A, x13, 15);
+		A = HH(A, B, C, D, x3, 3);
+		D = HH(D, A, B, C, x11, 9);
+		C = HH(C, D, A, B, x7, 11);
+		B = HH(B, C, D, A, x15, 15);
 
 		value[0] += A;
 		value[1] += B;
@@ -190,35 +231,34 @@ final class MD4 extends AbstractDigest
 		value[3] += D;
 
 		counter += 64L;
-		bufferLen = 0;
 	}
 
-	private int FF(int a, int b, int c, int d, int x, int s)
+	private static int FF(int a, int b, int c, int d, int x, int s)
 	{
 		return Bits.rotateLeft(a + F(b, c, d) + x, s);
 	}
 
-	private int GG(int a, int b, int c, int d, int x, int s)
+	private static int GG(int a, int b, int c, int d, int x, int s)
 	{
 		return Bits.rotateLeft(a + G(b, c, d) + x + 0x5A827999, s);
 	}
 
-	private int HH(int a, int b, int c, int d, int x, int s)
+	private static int HH(int a, int b, int c, int d, int x, int s)
 	{
 		return Bits.rotateLeft(a + H(b, c, d) + x + 0x6ED9EBA1, s);
 	}
 
-	private int F(int x, int y, int z)
+	private static int F(int x, int y, int z)
 	{
 		return (y & x) | (z & ~x);
 	}
 
-	private int G(int x, int y, int z)
+	private static int G(int x, int y, int z)
 	{
 		return (x & y) | (x & z) | (y & z);
 	}
 
-	private int H(int x, int y, int z)
+	private static int H(int x, int y, int z)
 	{
 		return x ^ y ^ z;
 	}
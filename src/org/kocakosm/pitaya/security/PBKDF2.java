@@ -17,10 +17,11 @@
 package org.kocakosm.pitaya.security;
 
 import org.kocakosm.pitaya.util.BigEndian;
-import org.kocakosm.pitaya.util.ByteBuffer;
 import org.kocakosm.pitaya.util.Parameters;
 import org.kocakosm.pitaya.util.XObjects;
 
+import java.util.Arrays;
+
 /**
  * PBKDF2 Key Derivation Function (RFC 2898). Instances of this class are
  * immutable.
@@ -57,21 +58,143 @@ final class PBKDF2 implements KDF
 	@Override
 	public byte[] deriveKey(byte[] secret, byte[] salt)
 	{
+		if (algorithm == Algorithm.HMAC_SHA256) {
+			return deriveKeySHA256(secret, salt);
+		}
+		if (algorithm == Algorithm.HMAC_SHA512) {
+			return deriveKeySHA512(secret, salt);
+		}
 		MAC mac = Factory.getMAC(algorithm, secret);
-		int d = (int) Math.ceil((double) dkLen / mac.length());
-		ByteBuffer t = new ByteBuffer(d * mac.length());
+		int hLen = mac.length();
+		int d = (int) Math.ceil((double) dkLen / hLen);
+		byte[] t = new byte[d * hLen];
+		byte[] u = new byte[hLen];
+		for (int i = 1; i <= d; i++) {
+			int off = (i - 1) * hLen;
+			mac.update(salt).update(BigEndian.encode(i)).mac(u, 0);
+			System.arraycopy(u, 0, t, off, hLen);
+			for (int j = 1; j < iterationCount; j++) {
+				mac.update(u).mac(u, 0);
+				ConstantTime.xor(u, 0, t, off, hLen);
+			}
+		}
+		return Arrays.copyOf(t, dkLen);
+	}
+
+	/**
+	 * HMAC-SHA-256 specialization: since each iteration hashes exactly one
+	 * block after the (precomputed) pad states, both the inner and the
+	 * outer hashes are computed with a single compression on word arrays,
+	 * without any byte encoding or allocation.
+	 */
+	private byte[] deriveKeySHA256(byte[] secret, byte[] salt)
+	{
+		Digest sha256 = Digests.sha256();
+		byte[] key = secret.length > 64 ? sha256.digest(secret) : secret;
+		byte[] ipad = pad(key, 64, 0x36);
+		byte[] opad = pad(key, 64, 0x5c);
+		int[] block = new int[16];
+		int[] w = new int[64];
+		int[] istate = SHA2.IV256.clone();
+		int[] ostate = SHA2.IV256.clone();
+		for (int k = 0; k < 16; k++) {
+			block[k] = BigEndian.decodeInt(ipad, k * 4);
+		}
+		SHA2.compress256(istate, block, w);
+		for (int k = 0; k < 16; k++) {
+			block[k] = BigEndian.decodeInt(opad, k * 4);
+		}
+		SHA2.compress256(ostate, block, w);
+		Arrays.fill(block, 0);
+		block[8] = 0x80000000;
+		block[15] = (64 + 32) * 8;
+		int d = (dkLen + 31) / 32;
+		byte[] t = new byte[d * 32];
+		byte[] u1 = new byte[32];
+		int[] u = new int[8];
+		int[] f = new int[8];
 		for (int i = 1; i <= d; i++) {
-			byte[] f = mac.update(salt).mac(BigEndian.encode(i));
-			byte[] u = f;
+			sha256.update(ipad).update(salt).update(BigEndian.encode(i));
+			sha256.digest(u1, 0);
+			sha256.update(opad).update(u1).digest(u1, 0);
+			for (int k = 0; k < 8; k++) {
+				u[k] = BigEndian.decodeInt(u1, k * 4);
+				f[k] = u[k];
+			}
 			for (int j = 1; j < iterationCount; j++) {
-				u = mac.mac(u);
-				for (int k = 0; k < f.length; k++) {
-					f[k] ^= u[k];
-				}
+				System.arraycopy(u, 0, block, 0, 8);
+				System.arraycopy(istate, 0, u, 0, 8);
+				SHA2.compress256(u, block, w);
+				System.arraycopy(u, 0, block, 0, 8);
+				System.arraycopy(ostate, 0, u, 0, 8);
+				SHA2.compress256(u, block, w);
+				ConstantTime.xor(u, 0, f, 0, 8);
+			}
+			for (int k = 0; k < 8; k++) {
+				BigEndian.encode(f[k], t, (i - 1) * 32 + k * 4);
 			}
-			t.append(f);
 		}
-		return t.toByteArray(0, dkLen);
+		return Arrays.copyOf(t, dkLen);
+	}
+
+	/** HMAC-SHA-512 specialization, see {@link #deriveKeySHA256}. */
+	private byte[] deriveKeySHA512(byte[] secret, byte[] salt)
+	{
+		Digest sha512 = Digests.sha512();
+		byte[] key = secret.length > 128 ? sha512.digest(secret) : secret;
+		byte[] ipad = pad(key, 128, 0x36);
+		byte[] opad = pad(key, 128, 0x5c);
+		long[] block = new long[16];
+		long[] w = new long[80];
+		long[] istate = SHA2.IV512.clone();
+		long[] ostate = SHA2.IV512.clone();
+		for (int k = 0; k < 16; k++) {
+			block[k] = BigEndian.decodeLong(ipad, k * 8);
+		}
+		SHA2.compress512(istate, block, w);
+		for (int k = 0; k < 16; k++) {
+			block[k] = BigEndian.decodeLong(opad, k * 8);
+		}
+		SHA2.compress512(ostate, block, w);
+		Arrays.fill(block, 0L);
+		block[8] = 0x8000000000000000L;
+		block[15] = (128 + 64) * 8;
+		int d = (dkLen + 63) / 64;
+		byte[] t = new byte[d * 64];
+		byte[] u1 = new byte[64];
+		long[] u = new long[8];
+		long[] f = new long[8];
+		for (int i = 1; i <= d; i++) {
+			sha512.update(ipad).update(salt).update(BigEndian.encode(i));
+			sha512.digest(u1, 0);
+			sha512.update(opad).update(u1).digest(u1, 0);
+			for (int k = 0; k < 8; k++) {
+				u[k] = BigEndian.decodeLong(u1, k * 8);
+				f[k] = u[k];
+			}
+			for (int j = 1; j < iterationCount; j++) {
+				System.arraycopy(u, 0, block, 0, 8);
+				System.arraycopy(istate, 0, u, 0, 8);
+				SHA2.compress512(u, block, w);
+				System.arraycopy(u, 0, block, 0, 8);
+				System.arraycopy(ostate, 0, u, 0, 8);
+				SHA2.compress512(u, block, w);
+				ConstantTime.xor(u, 0, f, 0, 8);
+			}
+			for (int k = 0; k < 8; k++) {
+				BigEndian.encode(f[k], t, (i - 1) * 64 + k * 8);
+			}
+		}
+		return Arrays.copyOf(t, dkLen);
+	}
+
+	private static byte[] pad(byte[] key, int blockSize, int pad)
+	{
+		byte[] padded = Arrays.copyOf(key, blockSize);
+		for (int i = 0; i < blockSize; i++) {
+			padded[i] ^= pad;
+		}
+		return padded;
 	}
 
 	@Override
@@ -0,0 +1,230 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous {@link Passwords} hashing service. Hashes are computed on a
+ * dedicated, bounded, pool of threads, so the number of memory-hard SCrypt
+ * evaluations running at the same time never exceeds the service's
+ * concurrency level, whatever the number of concurrent callers. Each worker
+ * thread allocates the SCrypt working memory needed by the service's
+ * parameters once and then reuses it for all its jobs, including the
+ * verification of hashes computed with weaker parameters; hashes requiring
+ * more memory or more work than the service's parameters are rejected rather
+ * than verified. The memory used by the service is thus bounded by its
+ * concurrency level times {@link SCryptParameters#memory()}. Jobs that can't
+ * be started right away are queued, up to a configurable limit beyond which
+ * submissions are rejected.
+ * Hashes produced by this service are fully compatible with the ones produced
+ * by {@link Passwords}. Instances of this class are thread-safe.
+ *
+ * @author Osman KOCAK
+ */
+public final class PasswordService
+{
+	private final SCryptParameters params;
+	private final ExecutorService executor;
+	private final ThreadLocal<SCrypt.Engine> engines;
+
+	/**
+	 * Creates a new {@code PasswordService} hashing passwords with the
+	 * same default parameters as {@link Passwords#hash(String)}.
+	 *
+	 * @param concurrency the maximum number of passwords hashed at the same
+	 *	time.
+	 * @param maxPending the maximum number of jobs waiting to be started.
+	 *
+	 * @throws IllegalArgumentException if {@code concurrency} is not
+	 *	strictly positive or if {@code maxPending} is negative.
+	 */
+	public PasswordService(int concurrency, int maxPending)
+	{
+		this(concurrency, maxPending, Passwords.defaults());
+	}
+
+	/**
+	 * Creates a new {@code PasswordService} hashing passwords with the
+	 * given SCrypt parameters, as {@link Passwords#hash(String,
+	 * SCryptParameters)} would do. Each worker thread holds
+	 * {@code params.memory()} bytes of SCrypt working memory.
+	 *
+	 * @param concurrency the maximum number of passwords hashed at the same
+	 *	time.
+	 * @param maxPending the maximum number of jobs waiting to be started.
+	 * @param params the SCrypt parameters to use for new hashes.
+	 *
+	 * @throws NullPointerException if {@code params} is {@code null}.
+	 * @throws IllegalArgumentException if {@code concurrency} is not
+	 *	strictly positive, if {@code maxPending} is negative or if
+	 *	{@code params} are out of the bounds supported by
+	 *	{@link Passwords#hash(String, SCryptParameters)}.
+	 */
+	public PasswordService(int concurrency, int maxPending,
+		final SCryptParameters params)
+	{
+		Passwords.checkBounds(params);
+		Parameters.checkCondition(concurrency > 0);
+		Parameters.checkCondition(maxPending >= 0);
+		BlockingQueue<Runnable> queue;
+		if (maxPending == 0) {
+			queue = new SynchronousQueue<Runnable>();
+		} else {
+			queue = new ArrayBlockingQueue<Runnable>(maxPending);
+		}
+		this.executor = new ThreadPoolExecutor(concurrency, concurrency,
+			0L, TimeUnit.MILLISECONDS, queue, new WorkerFactory());
+		this.params = params;
+		this.engines = new ThreadLocal<SCrypt.Engine>()
+		{
+			@Override
+			protected SCrypt.Engine initialValue()
+			{
+				return new SCrypt.Engine(params.r(), params.n());
+			}
+		};
+	}
+
+	/**
+	 * Asynchronously hashes the given password, using this service's
+	 * SCrypt parameters.
+	 *
+	 * @param password the password to hash.
+	 *
+	 * @return the hashed password, as a {@code Future}.
+	 *
+	 * @throws NullPointerException if {@code password} is {@code null}.
+	 * @throws RejectedExecutionException if the service has been shut
+	 *	down or if too many jobs are already waiting to be started.
+	 */
+	public Future<byte[]> hash(final String password)
+	{
+		Parameters.checkNotNull(password);
+		return executor.submit(new Callable<byte[]>()
+		{
+			@Override
+			public byte[] call()
+			{
+				return Passwords.hash(password, params, engines.get());
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously verifies that the given password matches the hashed
+	 * one, as {@link Passwords#verify(String, byte[], SCryptParameters)}
+	 * would do with this service's SCrypt parameters as upper bound. The
+	 * returned {@code Future} fails with an
+	 * {@code IllegalArgumentException} if {@code hash} has been computed
+	 * with parameters requiring more memory or more work than this
+	 * service's ones.
+	 *
+	 * @param password the password to verify.
+	 * @param hash the hashed password.
+	 *
+	 * @return whether the given password matches the hashed one, as a
+	 *	{@code Future}.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws RejectedExecutionException if the service has been shut
+	 *	down or if too many jobs are already waiting to be started.
+	 */
+	public Future<Boolean> verify(final String password, final byte[] hash)
+	{
+		Parameters.checkNotNull(password);
+		Parameters.checkNotNull(hash);
+		return executor.submit(new Callable<Boolean>()
+		{
+			@Override
+			public Boolean call()
+			{
+				return Passwords.verify(password, hash, params,
+					engines.get());
+			}
+		});
+	}
+
+	/**
+	 * Asynchronously verifies that the given password matches the hashed
+	 * one and rehashes it if it has been computed with parameters weaker
+	 * than this service's ones, as {@link Passwords#verifyAndRehash(
+	 * String, byte[], SCryptParameters)} would do. The returned
+	 * {@code Future} fails with an {@code IllegalArgumentException} if
+	 * {@code hash} has been computed with parameters requiring more memory
+	 * or more work than this service's ones.
+	 *
+	 * @param password the password to verify.
+	 * @param hash the hashed password.
+	 *
+	 * @return the verification's result, as a {@code Future}.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws RejectedExecutionException if the service has been shut
+	 *	down or if too many jobs are already waiting to be started.
+	 */
+	public Future<Passwords.Verification> verifyAndRehash(
+		final String password, final byte[] hash)
+	{
+		Parameters.checkNotNull(password);
+		Parameters.checkNotNull(hash);
+		return executor.submit(new Callable<Passwords.Verification>()
+		{
+			@Override
+			public Passwords.Verification call()
+			{
+				return Passwords.verifyAndRehash(password, hash,
+					params, engines.get());
+			}
+		});
+	}
+
+	/**
+	 * Initiates an orderly shutdown of this service: already submitted jobs
+	 * are executed, but no new job will be accepted.
+	 */
+	public void shutdown()
+	{
+		executor.shutdown();
+	}
+
+	private static final class WorkerFactory implements ThreadFactory
+	{
+		private static final AtomicInteger COUNTER = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			String name = "pitaya-password-" + COUNTER.incrementAndGet();
+			Thread thread = new Thread(r, name);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
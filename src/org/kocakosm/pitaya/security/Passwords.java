@@ -17,12 +17,15 @@
 package org.kocakosm.pitaya.security;
 
 import org.kocakosm.pitaya.charset.UTF8;
+import org.kocakosm.pitaya.time.Duration;
 import org.kocakosm.pitaya.util.ByteBuffer;
+import org.kocakosm.pitaya.util.Parameters;
 import org.kocakosm.pitaya.util.Strings;
 
 import java.security.SecureRandom;
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Passwords related utility functions.
@@ -37,6 +40,9 @@ public final class Passwords
 	private static final int R_MIN = 8;
 	private static final int P_MIN = 1;
 	private static final int N_MIN = 1 << 14;
+	private static final int R_MAX = 8;
+	private static final int P_MAX = 16;
+	private static final int N_MAX = 1 << 20;
 	private static final int SALT_LENGTH = 16;
 	private static final int HASH_LENGTH = 32;
 	private static final Random PRNG = new SecureRandom();
@@ -70,11 +76,80 @@ public final class Passwords
 	 */
 	public static byte[] hash(String password)
 	{
-		return hash(password, salt(), R, N, P);
+		return hash(password, salt(), R, N, P, null);
 	}
 
 	/**
-	 * Verifies that the given password matches the hashed one.
+	 * Hashes the given password (using {@linkplain KDFs#scrypt SCrypt})
+	 * with the given cost parameters, typically obtained through
+	 * {@link #calibrate(Duration, long)}. Hashing parameters are appended
+	 * to the returned result, so {@link #verify(String, byte[],
+	 * SCryptParameters)} only needs an upper bound for them.
+	 *
+	 * @param password the password to hash.
+	 * @param params the SCrypt cost parameters.
+	 *
+	 * @return the hashed password.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws IllegalArgumentException if {@code params.r()} is not 8, if
+	 *	{@code params.n()} is not in [2^14, 2^20] or if
+	 *	{@code params.p()} is not in [1, 16].
+	 */
+	public static byte[] hash(String password, SCryptParameters params)
+	{
+		return hash(password, params, null);
+	}
+
+	/**
+	 * Finds the most expensive SCrypt cost parameters whose evaluation on
+	 * the current machine takes no more than the given target time and
+	 * uses no more than the given amount of memory. This method actually
+	 * runs SCrypt (with the minimal cost parameters) a few times in order
+	 * to measure the machine's speed, so it takes some time to complete;
+	 * its result should be computed once, at startup, and then reused.
+	 * The CPU/Memory cost parameter {@code n} is raised (up to 2^20) as
+	 * long as both constraints are met; if memory is the limiting factor,
+	 * the remaining time budget is spent on the parallelization parameter
+	 * {@code p} (up to 16). Parameters are never lower than the defaults
+	 * used by {@link #hash(String)}, even if the target time is too short.
+	 *
+	 * @param target the targeted hashing (and verification) time.
+	 * @param maxMemory the maximum amount of memory (in bytes) a single
+	 *	hash computation may use.
+	 *
+	 * @return the calibrated SCrypt parameters.
+	 *
+	 * @throws NullPointerException if {@code target} is {@code null}.
+	 * @throws IllegalArgumentException if {@code maxMemory} is lower than
+	 *	the memory needed by the default parameters (16 MB).
+	 */
+	public static SCryptParameters calibrate(Duration target, long maxMemory)
+	{
+		Parameters.checkCondition(maxMemory >= 128L * R * N_MIN);
+		long budget = target.to(TimeUnit.MILLISECONDS) * 1000000L;
+		int maxN = N_MIN;
+		while (maxN < N_MAX && 128L * R * (maxN << 1) <= maxMemory) {
+			maxN <<= 1;
+		}
+		long cost = Math.max(benchmark(), 1L);
+		int n = N_MIN;
+		while (n < maxN && cost * 2 <= budget) {
+			n <<= 1;
+			cost *= 2;
+		}
+		int p = P_MIN;
+		if (n == maxN) {
+			p = (int) Math.max(P_MIN, Math.min(P_MAX, budget / cost));
+		}
+		return SCryptParameters.of(R, n, p);
+	}
+
+	/**
+	 * Verifies that the given password matches the hashed one, which must
+	 * not have been computed with parameters stronger than the defaults
+	 * used by {@link #hash(String)}. Use {@link #verify(String, byte[],
+	 * SCryptParameters)} to verify hashes computed with other parameters.
 	 *
 	 * @param password the password to verify.
 	 * @param hash the hashed password.
@@ -82,33 +157,283 @@ public final class Passwords
 	 * @return whether the given password matches the hashed one.
 	 *
 	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws IllegalArgumentException if {@code hash} has been computed
+	 *	with parameters requiring more memory or more work than the
+	 *	defaults.
 	 */
 	public static boolean verify(String password, byte[] hash)
 	{
+		return verify(password, hash, defaults(), null);
+	}
+
+	/**
+	 * Verifies that the given password matches the hashed one, provided
+	 * that the hash's parameters don't require more memory ({@code r * n})
+	 * nor more work ({@code r * n * p}) than the given ones. The cost of
+	 * a verification being dictated by the parameters stored in the hash,
+	 * this bound prevents forged or corrupted hashes from making this
+	 * method allocate and compute far more than expected. Malformed hashes
+	 * and hashes with unsupported parameters don't match any password.
+	 *
+	 * @param password the password to verify.
+	 * @param hash the hashed password.
+	 * @param max the strongest SCrypt parameters accepted.
+	 *
+	 * @return whether the given password matches the hashed one.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws IllegalArgumentException if {@code max} are out of the bounds
+	 *	supported by {@link #hash(String, SCryptParameters)} or if
+	 *	{@code hash} has been computed with parameters requiring more
+	 *	memory or more work than {@code max}.
+	 */
+	public static boolean verify(String password, byte[] hash,
+		SCryptParameters max)
+	{
+		return verify(password, hash, max, null);
+	}
+
+	/**
+	 * Returns whether the given hashed password should be recomputed in
+	 * order to comply with the given SCrypt parameters, that is, whether
+	 * it has been computed with unsupported parameters or with parameters
+	 * weaker than the given ones: requiring less memory ({@code r * n}) or
+	 * less work ({@code r * n * p}). Hashes computed with parameters at
+	 * least as strong as the given ones are never downgraded. This method
+	 * doesn't run SCrypt and is thus cheap.
+	 *
+	 * @param hash the hashed password.
+	 * @param params the current SCrypt parameters.
+	 *
+	 * @return whether {@code hash} needs to be recomputed.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 */
+	public static boolean needsRehash(byte[] hash, SCryptParameters params)
+	{
+		Parameters.checkNotNull(params);
+		SCryptParameters current = parameters(hash);
+		return current == null || current.memory() < params.memory()
+			|| work(current) < work(params);
+	}
+
+	/**
+	 * Verifies that the given password matches the hashed one and, if so
+	 * and if the hash has been computed with parameters weaker than the
+	 * defaults used by {@link #hash(String)} (see
+	 * {@link #needsRehash(byte[], SCryptParameters)}), rehashes it.
+	 *
+	 * @param password the password to verify.
+	 * @param hash the hashed password.
+	 *
+	 * @return the verification's result.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws IllegalArgumentException if {@code hash} has been computed
+	 *	with parameters requiring more memory or more work than the
+	 *	defaults.
+	 */
+	public static Verification verifyAndRehash(String password, byte[] hash)
+	{
+		return verifyAndRehash(password, hash, defaults(), null);
+	}
+
+	/**
+	 * Verifies that the given password matches the hashed one and, if so
+	 * and if the hash has been computed with parameters weaker than the
+	 * given ones (see {@link #needsRehash(byte[], SCryptParameters)}),
+	 * rehashes it with the given parameters. This allows hashes to be
+	 * upgraded incrementally, as users log in. The given parameters also
+	 * bound the cost of the verification, as in {@link #verify(String,
+	 * byte[], SCryptParameters)}.
+	 *
+	 * @param password the password to verify.
+	 * @param hash the hashed password.
+	 * @param params the current SCrypt parameters.
+	 *
+	 * @return the verification's result.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws IllegalArgumentException if {@code params} are out of the
+	 *	bounds supported by {@link #hash(String, SCryptParameters)} or
+	 *	if {@code hash} has been computed with parameters requiring more
+	 *	memory or more work than {@code params}.
+	 */
+	public static Verification verifyAndRehash(String password, byte[] hash,
+		SCryptParameters params)
+	{
+		return verifyAndRehash(password, hash, params, null);
+	}
+
+	/**
+	 * Hashes the given password with the given cost parameters, reusing
+	 * the given SCrypt engine if it fits these parameters.
+	 *
+	 * @param password the password to hash.
+	 * @param params the SCrypt cost parameters.
+	 * @param engine the SCrypt engine to reuse, may be {@code null}.
+	 *
+	 * @return the hashed password.
+	 *
+	 * @throws NullPointerException if {@code password} or {@code params}
+	 *	is {@code null}.
+	 * @throws IllegalArgumentException if {@code params} are out of the
+	 *	supported bounds.
+	 */
+	static byte[] hash(String password, SCryptParameters params,
+		SCrypt.Engine engine)
+	{
+		checkBounds(params);
+		return hash(password, salt(), params.r(), params.n(), params.p(),
+			engine);
+	}
+
+	/**
+	 * Checks that the given cost parameters are within the bounds
+	 * supported by {@link #hash(String, SCryptParameters)}.
+	 *
+	 * @param params the SCrypt cost parameters.
+	 *
+	 * @throws NullPointerException if {@code params} is {@code null}.
+	 * @throws IllegalArgumentException if {@code params} are out of the
+	 *	supported bounds.
+	 */
+	static void checkBounds(SCryptParameters params)
+	{
+		int r = params.r();
+		int n = params.n();
+		int p = params.p();
+		Parameters.checkCondition(r >= R_MIN && r <= R_MAX);
+		Parameters.checkCondition(n >= N_MIN && n <= N_MAX);
+		Parameters.checkCondition(p >= P_MIN && p <= P_MAX);
+	}
+
+	/**
+	 * Verifies that the given password matches the hashed one, reusing the
+	 * given SCrypt engine if it fits the hash parameters.
+	 *
+	 * @param password the password to verify.
+	 * @param hash the hashed password.
+	 * @param max the strongest SCrypt parameters accepted.
+	 * @param engine the SCrypt engine to reuse, may be {@code null}.
+	 *
+	 * @return whether the given password matches the hashed one.
+	 *
+	 * @throws NullPointerException if {@code password}, {@code hash} or
+	 *	{@code max} is {@code null}.
+	 * @throws IllegalArgumentException if {@code max} are out of the
+	 *	supported bounds or if {@code hash} has been computed with
+	 *	parameters stronger than {@code max}.
+	 */
+	static boolean verify(String password, byte[] hash, SCryptParameters max,
+		SCrypt.Engine engine)
+	{
+		checkBounds(max);
 		byte[] h = Arrays.copyOf(hash, HASH_LENGTH + SALT_LENGTH + 3);
-		int n = 1 << (h[HASH_LENGTH + SALT_LENGTH] & 0xFF);
-		int r = h[HASH_LENGTH + SALT_LENGTH + 1] & 0xFF;
-		int p = h[HASH_LENGTH + SALT_LENGTH + 2] & 0xFF;
-		if (n > N || n < N_MIN || r > R || r < R_MIN || p > P || p < P_MIN) {
-			n = N;
-			r = R;
-			p = P;
+		SCryptParameters params = parameters(h);
+		if (params == null) {
+			params = defaults();
 		}
+		Parameters.checkCondition(params.memory() <= max.memory()
+			&& work(params) <= work(max));
 		byte[] salt = new byte[SALT_LENGTH];
 		System.arraycopy(h, HASH_LENGTH, salt, 0, SALT_LENGTH);
-		byte[] expected = hash(password, salt, r, n, p);
-		int result = 0;
-		for (int i = 0; i < h.length; i++) {
-			result |= h[i] ^ expected[i];
+		byte[] expected = hash(password, salt, params.r(), params.n(),
+			params.p(), engine);
+		return ConstantTime.equals(h, expected);
+	}
+
+	/**
+	 * Verifies the given password and rehashes it if needed, reusing the
+	 * given SCrypt engine if it fits the parameters.
+	 *
+	 * @param password the password to verify.
+	 * @param hash the hashed password.
+	 * @param params the current SCrypt parameters.
+	 * @param engine the SCrypt engine to reuse, may be {@code null}.
+	 *
+	 * @return the verification's result.
+	 *
+	 * @throws NullPointerException if {@code password}, {@code hash} or
+	 *	{@code params} is {@code null}.
+	 * @throws IllegalArgumentException if {@code params} are out of the
+	 *	supported bounds or if {@code hash} has been computed with
+	 *	parameters stronger than {@code params}.
+	 */
+	static Verification verifyAndRehash(String password, byte[] hash,
+		SCryptParameters params, SCrypt.Engine engine)
+	{
+		if (!verify(password, hash, params, engine)) {
+			return new Verification(false, false, hash);
+		}
+		if (needsRehash(hash, params)) {
+			byte[] rehashed = hash(password, params, engine);
+			return new Verification(true, true, rehashed);
 		}
-		return result == 0;
+		return new Verification(true, false, hash);
 	}
 
-	private static byte[] hash(String password, byte[] salt, int r, int n, int p)
+	/**
+	 * Returns the default SCrypt cost parameters.
+	 *
+	 * @return the default SCrypt cost parameters.
+	 */
+	static SCryptParameters defaults()
+	{
+		return SCryptParameters.of(R, N, P);
+	}
+
+	/**
+	 * Returns the time (in nanoseconds) taken by the fastest of a few
+	 * SCrypt evaluations with the minimal cost parameters.
+	 */
+	private static long benchmark()
+	{
+		SCrypt scrypt = new SCrypt(R, N_MIN, P_MIN, HASH_LENGTH);
+		SCrypt.Engine engine = new SCrypt.Engine(R, N_MIN);
+		byte[] password = UTF8.encode(generate());
+		byte[] salt = salt();
+		scrypt.deriveKey(password, salt, engine);
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < 3; i++) {
+			long start = System.nanoTime();
+			scrypt.deriveKey(password, salt, engine);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	private static long work(SCryptParameters params)
 	{
-		KDF scrypt = KDFs.scrypt(r, n, p, HASH_LENGTH);
+		return params.memory() * params.p();
+	}
+
+	/**
+	 * Returns the parameters encoded in the given hash, or {@code null} if
+	 * the hash is malformed or if its parameters are not supported.
+	 */
+	private static SCryptParameters parameters(byte[] hash)
+	{
+		if (hash.length != HASH_LENGTH + SALT_LENGTH + 3) {
+			return null;
+		}
+		int log = hash[HASH_LENGTH + SALT_LENGTH] & 0xFF;
+		int r = hash[HASH_LENGTH + SALT_LENGTH + 1] & 0xFF;
+		int p = hash[HASH_LENGTH + SALT_LENGTH + 2] & 0xFF;
+		if (log >= 31 || 1 << log > N_MAX || 1 << log < N_MIN
+			|| r > R_MAX || r < R_MIN || p > P_MAX || p < P_MIN)
+		{
+			return null;
+		}
+		return SCryptParameters.of(r, 1 << log, p);
+	}
+
+	private static byte[] hash(String password, byte[] salt, int r, int n,
+		int p, SCrypt.Engine engine)
+	{
+		SCrypt scrypt = new SCrypt(r, n, p, HASH_LENGTH);
 		ByteBuffer buf = new ByteBuffer(HASH_LENGTH + SALT_LENGTH + 3);
-		buf.append(scrypt.deriveKey(UTF8.encode(password), salt));
+		buf.append(scrypt.deriveKey(UTF8.encode(password), salt, engine));
 		buf.append(salt);
 		buf.append((byte) Math.round(Math.log(n) / Math.log(2)));
 		buf.append((byte) r, (byte) p);
@@ -126,4 +451,57 @@ public final class Passwords
 	{
 		/* ... */
 	}
+
+	/**
+	 * The result of a password verification performed through
+	 * {@link Passwords#verifyAndRehash(String, byte[], SCryptParameters)}.
+	 * Instances of this class are immutable.
+	 */
+	public static final class Verification
+	{
+		private final boolean matches;
+		private final boolean rehashed;
+		private final byte[] hash;
+
+		Verification(boolean matches, boolean rehashed, byte[] hash)
+		{
+			this.matches = matches;
+			this.rehashed = rehashed;
+			this.hash = hash.clone();
+		}
+
+		/**
+		 * Returns whether the password matched the hashed one.
+		 *
+		 * @return whether the password matched the hashed one.
+		 */
+		public boolean matches()
+		{
+			return matches;
+		}
+
+		/**
+		 * Returns whether the hashed password has been recomputed with
+		 * the current parameters, meaning that the stored hash should
+		 * be replaced by {@link #hash()}. Always {@code false} if the
+		 * password didn't match.
+		 *
+		 * @return whether the hashed password has been recomputed.
+		 */
+		public boolean rehashed()
+		{
+			return rehashed;
+		}
+
+		/**
+		 * Returns the hashed password to store: the newly computed one if
+		 * the password has been rehashed, the verified one otherwise.
+		 *
+		 * @return the up-to-date hashed password.
+		 */
+		public byte[] hash()
+		{
+			return hash.clone();
+		}
+	}
 }
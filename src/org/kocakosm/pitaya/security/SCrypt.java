@@ -17,12 +17,16 @@
 package org.kocakosm.pitaya.security;
 
 import org.kocakosm.pitaya.util.Bits;
-import org.kocakosm.pitaya.util.ByteBuffer;
 import org.kocakosm.pitaya.util.LittleEndian;
 import org.kocakosm.pitaya.util.Parameters;
+import org.kocakosm.pitaya.util.Throwables;
 import org.kocakosm.pitaya.util.XObjects;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * SCrypt Key Derivation Function as specified by the Internet Engineering Task
@@ -37,6 +41,7 @@ final class SCrypt implements KDF
 	private final int n;
 	private final int p;
 	private final int dkLen;
+	private final Executor executor;
 
 	/**
 	 * Creates a new {@code SCrypt} instance.
@@ -52,6 +57,28 @@ final class SCrypt implements KDF
 	 *	{@code p} is greater than ((2 ^ 32 - 1) * 32) / (128 * r).
 	 */
 	SCrypt(int r, int n, int p, int dkLen)
+	{
+		this(r, n, p, dkLen, null);
+	}
+
+	/**
+	 * Creates a new {@code SCrypt} instance whose parallel lanes are run
+	 * concurrently, using the given {@code Executor}. If {@code executor}
+	 * is {@code null}, lanes are processed sequentially on the caller's
+	 * thread.
+	 *
+	 * @param r the block size parameter.
+	 * @param n the CPU/Memory cost parameter.
+	 * @param p the parallelization parameter.
+	 * @param dkLen the desired length for derived keys, in bytes.
+	 * @param executor the {@code Executor} to use, may be {@code null}.
+	 *
+	 * @throws IllegalArgumentException if {@code r, dkLen} or {@code p} is
+	 *	negative, or if {@code n} is not greater than 1 or if it is not
+	 *	a power of 2 or if it is not less than 2 ^ (128 * r / 8), or if
+	 *	{@code p} is greater than ((2 ^ 32 - 1) * 32) / (128 * r).
+	 */
+	SCrypt(int r, int n, int p, int dkLen, Executor executor)
 	{
 		Parameters.checkCondition(r > 0 && p > 0 && dkLen > 0);
 		Parameters.checkCondition(n > 1 && (n & (n - 1)) == 0);
@@ -61,19 +88,46 @@ final class SCrypt implements KDF
 		this.n = n;
 		this.p = p;
 		this.dkLen = dkLen;
+		this.executor = executor;
 	}
 
 	@Override
 	public byte[] deriveKey(byte[] secret, byte[] salt)
+	{
+		return deriveKey(secret, salt, null);
+	}
+
+	/**
+	 * Derives a key from the given secret and salt, reusing the given
+	 * {@link Engine} (instead of allocating a new one) when it
+	 * {@linkplain Engine#fits fits} this instance's parameters. Note that
+	 * the given engine is only used when lanes are processed sequentially.
+	 *
+	 * @param secret the secret key.
+	 * @param salt the salt.
+	 * @param engine the engine to reuse, may be {@code null}.
+	 *
+	 * @return the derived key.
+	 *
+	 * @throws NullPointerException if {@code secret} or {@code salt} is
+	 *	{@code null}.
+	 */
+	byte[] deriveKey(byte[] secret, byte[] salt, Engine engine)
 	{
 		KDF pbkdf2 = KDFs.pbkdf2(Algorithm.HMAC_SHA256, 1, p * 128 * r);
 		byte[] b = pbkdf2.deriveKey(secret, salt);
-		ByteBuffer buffer = new ByteBuffer(p * 128 * r);
-		for (int i = 0; i < p; i++) {
-			buffer.append(roMix(slice(b, i * 128 * r, 128 * r)));
+		if (executor == null || p == 1) {
+			if (engine == null || !engine.fits(r, n)) {
+				engine = new Engine(r, n);
+			}
+			for (int i = 0; i < p; i++) {
+				engine.roMix(b, i * 128 * r, n);
+			}
+		} else {
+			parallelRoMix(b);
 		}
 		pbkdf2 = KDFs.pbkdf2(Algorithm.HMAC_SHA256, 1, dkLen);
-		return pbkdf2.deriveKey(secret, buffer.toByteArray());
+		return pbkdf2.deriveKey(secret, b);
 	}
 
 	@Override
@@ -84,103 +138,183 @@ final class SCrypt implements KDF
 			.toString();
 	}
 
-	private byte[] roMix(byte[] x)
+	/**
+	 * Mixes the p lanes of {@code b} concurrently: lanes 1 to p - 1 are
+	 * submitted to the executor while lane 0 is processed on the caller's
+	 * thread. Each lane gets its own {@link Engine}, so memory usage grows
+	 * linearly with the number of lanes running at the same time.
+	 */
+	private void parallelRoMix(final byte[] b)
 	{
-		int len = x.length;
-		ByteBuffer v = new ByteBuffer(n * len);
-		for (int i = 0; i < n; i++) {
-			v.append(x);
-			x = blockMix(x);
+		List<FutureTask<Void>> lanes = new ArrayList<FutureTask<Void>>(p - 1);
+		try {
+			for (int i = 1; i < p; i++) {
+				final int off = i * 128 * r;
+				FutureTask<Void> lane = new FutureTask<Void>(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						new Engine(r, n).roMix(b, off, n);
+					}
+				}, null);
+				lanes.add(lane);
+				executor.execute(lane);
+			}
+			new Engine(r, n).roMix(b, 0, n);
+			for (FutureTask<Void> lane : lanes) {
+				lane.get();
+			}
+		} catch (ExecutionException ex) {
+			throw Throwables.propagate(ex.getCause());
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw Throwables.propagate(ex);
+		} finally {
+			for (FutureTask<Void> lane : lanes) {
+				lane.cancel(true);
+			}
 		}
-		int offset = (2 * r - 1) * 64;
-		for (int i = 0; i < n; i++) {
-			int j = LittleEndian.decodeInt(x, offset) & (n - 1);
-			x = blockMix(xor(x, v.toByteArray(j * len, len)));
-		}
-		return x;
 	}
 
-	private byte[] blockMix(byte[] in)
+	/**
+	 * SCrypt's ROMix core. An {@code Engine} owns all the memory needed to
+	 * mix one 128 * r bytes block, that is the V array and the X/Y work
+	 * blocks, all allocated once in the constructor and reused across
+	 * calls to {@link #roMix(byte[], int, int)}. An engine created for a
+	 * given CPU/Memory cost can also run any lower one (with the same
+	 * block size), using only the beginning of its V array. Instances of
+	 * this class are not thread safe.
+	 */
+	static final class Engine
 	{
-		byte[] x = slice(in, (2 * r - 1) * 64, 64);
-		ByteBuffer buffer = new ByteBuffer(128 * r);
-		for (int i = 0; i < 2 * r; i++) {
-			x = salsa20(xor(x, slice(in, i * 64, 64)), 8);
-			buffer.append(x);
-		}
-		byte[] y = buffer.toByteArray();
-		byte[] b = new byte[in.length];
-		for (int i = 0; i < r; i++) {
-			System.arraycopy(y, (i * 2) * 64, b, i * 64, 64);
-		}
-		for (int i = 0; i < r; i++) {
-			System.arraycopy(y, (i * 2 + 1) * 64, b, (i + r) * 64, 64);
-		}
-		return b;
-	}
+		private final int r;
+		private final int n;
+		private final int[] V;
+		private final int[] X;
+		private final int[] Y;
+		private final int[] T;
 
-	private byte[] salsa20(byte[] buf, int rounds)
-	{
-		int[] in = new int[16];
-		for (int i = 0; i < 16; i++) {
-			in[i] = LittleEndian.decodeInt(buf, i * 4);
+		/**
+		 * Creates a new {@code Engine}.
+		 *
+		 * @param r the block size parameter.
+		 * @param n the highest CPU/Memory cost parameter to support.
+		 */
+		Engine(int r, int n)
+		{
+			this.r = r;
+			this.n = n;
+			this.V = new int[32 * r * n];
+			this.X = new int[32 * r];
+			this.Y = new int[32 * r];
+			this.T = new int[16];
 		}
-		int[] x = Arrays.copyOf(in, in.length);
-		for (int i = rounds; i > 0; i -= 2) {
-			x[ 4] ^= Bits.rotateLeft(x[ 0] + x[12], 7);
-			x[ 8] ^= Bits.rotateLeft(x[ 4] + x[ 0], 9);
-			x[12] ^= Bits.rotateLeft(x[ 8] + x[ 4], 13);
-			x[ 0] ^= Bits.rotateLeft(x[12] + x[ 8], 18);
-			x[ 9] ^= Bits.rotateLeft(x[ 5] + x[ 1], 7);
-			x[13] ^= Bits.rotateLeft(x[ 9] + x[ 5], 9);
-			x[ 1] ^= Bits.rotateLeft(x[13] + x[ 9], 13);
-			x[ 5] ^= Bits.rotateLeft(x[ 1] + x[13], 18);
-			x[14] ^= Bits.rotateLeft(x[10] + x[ 6], 7);
-			x[ 2] ^= Bits.rotateLeft(x[14] + x[10], 9);
-			x[ 6] ^= Bits.rotateLeft(x[ 2] + x[14], 13);
-			x[10] ^= Bits.rotateLeft(x[ 6] + x[ 2], 18);
-			x[ 3] ^= Bits.rotateLeft(x[15] + x[11], 7);
-			x[ 7] ^= Bits.rotateLeft(x[ 3] + x[15], 9);
-			x[11] ^= Bits.rotateLeft(x[ 7] + x[ 3], 13);
-			x[15] ^= Bits.rotateLeft(x[11] + x[ 7], 18);
-			x[ 1] ^= Bits.rotateLeft(x[ 0] + x[ 3], 7);
-			x[ 2] ^= Bits.rotateLeft(x[ 1] + x[ 0], 9);
-			x[ 3] ^= Bits.rotateLeft(x[ 2] + x[ 1], 13);
-			x[ 0] ^= Bits.rotateLeft(x[ 3] + x[ 2], 18);
-			x[ 6] ^= Bits.rotateLeft(x[ 5] + x[ 4], 7);
-			x[ 7] ^= Bits.rotateLeft(x[ 6] + x[ 5], 9);
-			x[ 4] ^= Bits.rotateLeft(x[ 7] + x[ 6], 13);
-			x[ 5] ^= Bits.rotateLeft(x[ 4] + x[ 7], 18);
-			x[11] ^= Bits.rotateLeft(x[10] + x[ 9], 7);
-			x[ 8] ^= Bits.rotateLeft(x[11] + x[10], 9);
-			x[ 9] ^= Bits.rotateLeft(x[ 8] + x[11], 13);
-			x[10] ^= Bits.rotateLeft(x[ 9] + x[ 8], 18);
-			x[12] ^= Bits.rotateLeft(x[15] + x[14], 7);
-			x[13] ^= Bits.rotateLeft(x[12] + x[15], 9);
-			x[14] ^= Bits.rotateLeft(x[13] + x[12], 13);
-			x[15] ^= Bits.rotateLeft(x[14] + x[13], 18);
+
+		/**
+		 * Returns whether this engine can run ROMix with the given
+		 * parameters, that is, whether they have the same block size
+		 * and whether {@code n} doesn't exceed this engine's capacity.
+		 *
+		 * @param r the block size parameter.
+		 * @param n the CPU/Memory cost parameter.
+		 *
+		 * @return whether this engine can run ROMix with {@code r} and
+		 *	{@code n}.
+		 */
+		boolean fits(int r, int n)
+		{
+			return this.r == r && this.n >= n;
 		}
-		byte[] out = new byte[64];
-		for (int i = 0; i < 16; i++) {
-			LittleEndian.encode(x[i] + in[i], out, i * 4);
+
+		/**
+		 * Applies ROMix, in place, on the 128 * r bytes block starting
+		 * at the given offset in the given array.
+		 *
+		 * @param b the array containing the block to mix.
+		 * @param off the block's offset in {@code b}.
+		 * @param n the CPU/Memory cost parameter, which must be a power
+		 *	of 2 not greater than the one given at construction.
+		 */
+		void roMix(byte[] b, int off, int n)
+		{
+			int len = 32 * r;
+			for (int i = 0; i < len; i++) {
+				X[i] = LittleEndian.decodeInt(b, off + i * 4);
+			}
+			for (int i = 0; i < n; i += 2) {
+				System.arraycopy(X, 0, V, i * len, len);
+				blockMix(X, Y);
+				System.arraycopy(Y, 0, V, (i + 1) * len, len);
+				blockMix(Y, X);
+			}
+			int k = (2 * r - 1) * 16;
+			for (int i = 0; i < n; i += 2) {
+				ConstantTime.xor(V, (X[k] & (n - 1)) * len, X, 0, len);
+				blockMix(X, Y);
+				ConstantTime.xor(V, (Y[k] & (n - 1)) * len, Y, 0, len);
+				blockMix(Y, X);
+			}
+			for (int i = 0; i < len; i++) {
+				LittleEndian.encode(X[i], b, off + i * 4);
+			}
 		}
-		return out;
-	}
 
-	private byte[] slice(byte[] src, int off, int len)
-	{
-		byte[] slice = new byte[len];
-		System.arraycopy(src, off, slice, 0, len);
-		return slice;
-	}
+		private void blockMix(int[] in, int[] out)
+		{
+			System.arraycopy(in, (2 * r - 1) * 16, T, 0, 16);
+			for (int i = 0; i < 2 * r; i++) {
+				ConstantTime.xor(in, i * 16, T, 0, 16);
+				salsa20(T);
+				int j = (i >>> 1) + (i & 1) * r;
+				System.arraycopy(T, 0, out, j * 16, 16);
+			}
+		}
 
-	private byte[] xor(byte[] x, byte[] y)
-	{
-		int len = x.length;
-		byte[] z = new byte[len];
-		for (int k = 0; k < len; k++) {
-			z[k] = (byte) (x[k] ^ y[k]);
+		private static void salsa20(int[] b)
+		{
+			int x0 = b[0], x1 = b[1], x2 = b[2], x3 = b[3];
+			int x4 = b[4], x5 = b[5], x6 = b[6], x7 = b[7];
+			int x8 = b[8], x9 = b[9], x10 = b[10], x11 = b[11];
+			int x12 = b[12], x13 = b[13], x14 = b[14], x15 = b[15];
+			for (int i = 8; i > 0; i -= 2) {
+				x4 ^= Bits.rotateLeft(x0 + x12, 7);
+				x8 ^= Bits.rotateLeft(x4 + x0, 9);
+				x12 ^= Bits.rotateLeft(x8 + x4, 13);
+				x0 ^= Bits.rotateLeft(x12 + x8, 18);
+				x9 ^= Bits.rotateLeft(x5 + x1, 7);
+				x13 ^= Bits.rotateLeft(x9 + x5, 9);
+				x1 ^= Bits.rotateLeft(x13 + x9, 13);
+				x5 ^= Bits.rotateLeft(x1 + x13, 18);
+				x14 ^= Bits.rotateLeft(x10 + x6, 7);
+				x2 ^= Bits.rotateLeft(x14 + x10, 9);
+				x6 ^= Bits.rotateLeft(x2 + x14, 13);
+				x10 ^= Bits.rotateLeft(x6 + x2, 18);
+				x3 ^= Bits.rotateLeft(x15 + x11, 7);
+				x7 ^= Bits.rotateLeft(x3 + x15, 9);
+				x11 ^= Bits.rotateLeft(x7 + x3, 13);
+				x15 ^= Bits.rotateLeft(x11 + x7, 18);
+				x1 ^= Bits.rotateLeft(x0 + x3, 7);
+				x2 ^= Bits.rotateLeft(x1 + x0, 9);
+				x3 ^= Bits.rotateLeft(x2 + x1, 13);
+				x0 ^= Bits.rotateLeft(x3 + x2, 18);
+				x6 ^= Bits.rotateLeft(x5 + x4, 7);
+				x7 ^= Bits.rotateLeft(x6 + x5, 9);
+				x4 ^= Bits.rotateLeft(x7 + x6, 13);
+				x5 ^= Bits.rotateLeft(x4 + x7, 18);
+				x11 ^= Bits.rotateLeft(x10 + x9, 7);
+				x8 ^= Bits.rotateLeft(x11 + x10, 9);
+				x9 ^= Bits.rotateLeft(x8 + x11, 13);
+				x10 ^= Bits.rotateLeft(x9 + x8, 18);
+				x12 ^= Bits.rotateLeft(x15 + x14, 7);
+				x13 ^= Bits.rotateLeft(x12 + x15, 9);
+				x14 ^= Bits.rotateLeft(x13 + x12, 13);
+				x15 ^= Bits.rotateLeft(x14 + x13, 18);
+			}
+			b[0] += x0; b[1] += x1; b[2] += x2; b[3] += x3;
+			b[4] += x4; b[5] += x5; b[6] += x6; b[7] += x7;
+			b[8] += x8; b[9] += x9; b[10] += x10; b[11] += x11;
+			b[12] += x12; b[13] += x13; b[14] += x14; b[15] += x15;
 		}
-		return z;
 	}
 }
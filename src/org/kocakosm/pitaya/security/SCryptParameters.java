@@ -0,0 +1,130 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.util.Parameters;
+import org.kocakosm.pitaya.util.XObjects;
+
+/**
+ * SCrypt cost parameters: the block size parameter {@code r}, the CPU/Memory
+ * cost parameter {@code n} and the parallelization parameter {@code p}.
+ * Instances of this class are immutable.
+ *
+ * @see Passwords#calibrate(org.kocakosm.pitaya.time.Duration, long)
+ *
+ * @author Osman KOCAK
+ */
+public final class SCryptParameters
+{
+	/**
+	 * Creates a new {@code SCryptParameters} instance.
+	 *
+	 * @param r the block size parameter.
+	 * @param n the CPU/Memory cost parameter.
+	 * @param p the parallelization parameter.
+	 *
+	 * @return the created {@code SCryptParameters} instance.
+	 *
+	 * @throws IllegalArgumentException if {@code r} or {@code p} is not
+	 *	strictly positive, or if {@code n} is not greater than 1 or if
+	 *	it is not a power of 2.
+	 */
+	public static SCryptParameters of(int r, int n, int p)
+	{
+		return new SCryptParameters(r, n, p);
+	}
+
+	private final int r;
+	private final int n;
+	private final int p;
+
+	private SCryptParameters(int r, int n, int p)
+	{
+		Parameters.checkCondition(r > 0 && p > 0);
+		Parameters.checkCondition(n > 1 && (n & (n - 1)) == 0);
+		this.r = r;
+		this.n = n;
+		this.p = p;
+	}
+
+	/**
+	 * Returns the block size parameter.
+	 *
+	 * @return the block size parameter.
+	 */
+	public int r()
+	{
+		return r;
+	}
+
+	/**
+	 * Returns the CPU/Memory cost parameter.
+	 *
+	 * @return the CPU/Memory cost parameter.
+	 */
+	public int n()
+	{
+		return n;
+	}
+
+	/**
+	 * Returns the parallelization parameter.
+	 *
+	 * @return the parallelization parameter.
+	 */
+	public int p()
+	{
+		return p;
+	}
+
+	/**
+	 * Returns the amount of memory (in bytes) used by a sequential SCrypt
+	 * evaluation with these parameters, that is, {@code 128 * r * n}.
+	 *
+	 * @return the memory used by SCrypt with these parameters.
+	 */
+	public long memory()
+	{
+		return 128L * r * n;
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof SCryptParameters)) {
+			return false;
+		}
+		final SCryptParameters params = (SCryptParameters) o;
+		return r == params.r && n == params.n && p == params.p;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return XObjects.hashCode(r, n, p);
+	}
+
+	@Override
+	public String toString()
+	{
+		return XObjects.toStringBuilder("SCryptParameters").append("r", r)
+			.append("n", n).append("p", p).toString();
+	}
+}
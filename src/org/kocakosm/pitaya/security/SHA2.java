@@ -0,0 +1,202 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.util.Bits;
+
+/**
+ * SHA-256 and SHA-512 compression functions (FIPS 180-4), working directly on
+ * 32-bit (respectively 64-bit) words. These are not full digest engines: they
+ * are meant for callers that handle message padding themselves and that want
+ * to avoid any byte encoding/decoding between successive compressions, such
+ * as the specialized HMAC iterations of {@link PBKDF2}.
+ *
+ * @author Osman KOCAK
+ */
+final class SHA2
+{
+	/** SHA-256 initial hash value. */
+	static final int[] IV256 = {
+		0x6A09E667, 0xBB67AE85, 0x3C6EF372, 0xA54FF53A,
+		0x510E527F, 0x9B05688C, 0x1F83D9AB, 0x5BE0CD19
+	};
+
+	/** SHA-512 initial hash value. */
+	static final long[] IV512 = {
+		0x6A09E667F3BCC908L, 0xBB67AE8584CAA73BL,
+		0x3C6EF372FE94F82BL, 0xA54FF53A5F1D36F1L,
+		0x510E527FADE682D1L, 0x9B05688C2B3E6C1FL,
+		0x1F83D9ABFB41BD6BL, 0x5BE0CD19137E2179L
+	};
+
+	private static final int[] K256 = {
+		0x428A2F98, 0x71374491, 0xB5C0FBCF, 0xE9B5DBA5, 0x3956C25B, 0x59F111F1,
+		0x923F82A4, 0xAB1C5ED5, 0xD807AA98, 0x12835B01, 0x243185BE, 0x550C7DC3,
+		0x72BE5D74, 0x80DEB1FE, 0x9BDC06A7, 0xC19BF174, 0xE49B69C1, 0xEFBE4786,
+		0x0FC19DC6, 0x240CA1CC, 0x2DE92C6F, 0x4A7484AA, 0x5CB0A9DC, 0x76F988DA,
+		0x983E5152, 0xA831C66D, 0xB00327C8, 0xBF597FC7, 0xC6E00BF3, 0xD5A79147,
+		0x06CA6351, 0x14292967, 0x27B70A85, 0x2E1B2138, 0x4D2C6DFC, 0x53380D13,
+		0x650A7354, 0x766A0ABB, 0x81C2C92E, 0x92722C85, 0xA2BFE8A1, 0xA81A664B,
+		0xC24B8B70, 0xC76C51A3, 0xD192E819, 0xD6990624, 0xF40E3585, 0x106AA070,
+		0x19A4C116, 0x1E376C08, 0x2748774C, 0x34B0BCB5, 0x391C0CB3, 0x4ED8AA4A,
+		0x5B9CCA4F, 0x682E6FF3, 0x748F82EE, 0x78A5636F, 0x84C87814, 0x8CC70208,
+		0x90BEFFFA, 0xA4506CEB, 0xBEF9A3F7, 0xC67178F2
+	};
+
+	private static final long[] K512 = {
+		0x428A2F98D728AE22L, 0x7137449123EF65CDL, 0xB5C0FBCFEC4D3B2FL,
+		0xE9B5DBA58189DBBCL, 0x3956C25BF348B538L, 0x59F111F1B605D019L,
+		0x923F82A4AF194F9BL, 0xAB1C5ED5DA6D8118L, 0xD807AA98A3030242L,
+		0x12835B0145706FBEL, 0x243185BE4EE4B28CL, 0x550C7DC3D5FFB4E2L,
+		0x72BE5D74F27B896FL, 0x80DEB1FE3B1696B1L, 0x9BDC06A725C71235L,
+		0xC19BF174CF692694L, 0xE49B69C19EF14AD2L, 0xEFBE4786384F25E3L,
+		0x0FC19DC68B8CD5B5L, 0x240CA1CC77AC9C65L, 0x2DE92C6F592B0275L,
+		0x4A7484AA6EA6E483L, 0x5CB0A9DCBD41FBD4L, 0x76F988DA831153B5L,
+		0x983E5152EE66DFABL, 0xA831C66D2DB43210L, 0xB00327C898FB213FL,
+		0xBF597FC7BEEF0EE4L, 0xC6E00BF33DA88FC2L, 0xD5A79147930AA725L,
+		0x06CA6351E003826FL, 0x142929670A0E6E70L, 0x27B70A8546D22FFCL,
+		0x2E1B21385C26C926L, 0x4D2C6DFC5AC42AEDL, 0x53380D139D95B3DFL,
+		0x650A73548BAF63DEL, 0x766A0ABB3C77B2A8L, 0x81C2C92E47EDAEE6L,
+		0x92722C851482353BL, 0xA2BFE8A14CF10364L, 0xA81A664BBC423001L,
+		0xC24B8B70D0F89791L, 0xC76C51A30654BE30L, 0xD192E819D6EF5218L,
+		0xD69906245565A910L, 0xF40E35855771202AL, 0x106AA07032BBD1B8L,
+		0x19A4C116B8D2D0C8L, 0x1E376C085141AB53L, 0x2748774CDF8EEB99L,
+		0x34B0BCB5E19B48A8L, 0x391C0CB3C5C95A63L, 0x4ED8AA4AE3418ACBL,
+		0x5B9CCA4F7763E373L, 0x682E6FF3D6B2B8A3L, 0x748F82EE5DEFB2FCL,
+		0x78A5636F43172F60L, 0x84C87814A1F0AB72L, 0x8CC702081A6439ECL,
+		0x90BEFFFA23631E28L, 0xA4506CEBDE82BDE9L, 0xBEF9A3F7B2C67915L,
+		0xC67178F2E372532BL, 0xCA273ECEEA26619CL, 0xD186B8C721C0C207L,
+		0xEADA7DD6CDE0EB1EL, 0xF57D4F7FEE6ED178L, 0x06F067AA72176FBAL,
+		0x0A637DC5A2C898A6L, 0x113F9804BEF90DAEL, 0x1B710B35131C471BL,
+		0x28DB77F523047D84L, 0x32CAAB7B40C72493L, 0x3C9EBE0A15C9BEBCL,
+		0x431D67C49C100D4CL, 0x4CC5D4BECB3E42B6L, 0x597F299CFC657E2AL,
+		0x5FCB6FAB3AD6FAECL, 0x6C44198C4A475817L
+	};
+
+	/**
+	 * Applies the SHA-256 compression function on the given state, using
+	 * the given message block.
+	 *
+	 * @param state the 8 words state to update.
+	 * @param block the 16 words message block.
+	 * @param w a 64 words work array (its content is overwritten).
+	 */
+	static void compress256(int[] state, int[] block, int[] w)
+	{
+		System.arraycopy(block, 0, w, 0, 16);
+		for (int t = 16; t < 64; t++) {
+			int x = w[t - 15];
+			int y = w[t - 2];
+			int s0 = Bits.rotateRight(x, 7) ^ Bits.rotateRight(x, 18)
+				^ (x >>> 3);
+			int s1 = Bits.rotateRight(y, 17) ^ Bits.rotateRight(y, 19)
+				^ (y >>> 10);
+			w[t] = w[t - 16] + s0 + w[t - 7] + s1;
+		}
+		int a = state[0];
+		int b = state[1];
+		int c = state[2];
+		int d = state[3];
+		int e = state[4];
+		int f = state[5];
+		int g = state[6];
+		int h = state[7];
+		for (int t = 0; t < 64; t++) {
+			int s1 = Bits.rotateRight(e, 6) ^ Bits.rotateRight(e, 11)
+				^ Bits.rotateRight(e, 25);
+			int t1 = h + s1 + ((e & f) ^ (~e & g)) + K256[t] + w[t];
+			int s0 = Bits.rotateRight(a, 2) ^ Bits.rotateRight(a, 13)
+				^ Bits.rotateRight(a, 22);
+			int t2 = s0 + ((a & b) ^ (a & c) ^ (b & c));
+			h = g;
+			g = f;
+			f = e;
+			e = d + t1;
+			d = c;
+			c = b;
+			b = a;
+			a = t1 + t2;
+		}
+		state[0] += a;
+		state[1] += b;
+		state[2] += c;
+		state[3] += d;
+		state[4] += e;
+		state[5] += f;
+		state[6] += g;
+		state[7] += h;
+	}
+
+	/**
+	 * Applies the SHA-512 compression function on the given state, using
+	 * the given message block.
+	 *
+	 * @param state the 8 words state to update.
+	 * @param block the 16 words message block.
+	 * @param w a 80 words work array (its content is overwritten).
+	 */
+	static void compress512(long[] state, long[] block, long[] w)
+	{
+		System.arraycopy(block, 0, w, 0, 16);
+		for (int t = 16; t < 80; t++) {
+			long x = w[t - 15];
+			long y = w[t - 2];
+			long s0 = Bits.rotateRight(x, 1) ^ Bits.rotateRight(x, 8)
+				^ (x >>> 7);
+			long s1 = Bits.rotateRight(y, 19) ^ Bits.rotateRight(y, 61)
+				^ (y >>> 6);
+			w[t] = w[t - 16] + s0 + w[t - 7] + s1;
+		}
+		long a = state[0];
+		long b = state[1];
+		long c = state[2];
+		long d = state[3];
+		long e = state[4];
+		long f = state[5];
+		long g = state[6];
+		long h = state[7];
+		for (int t = 0; t < 80; t++) {
+			long s1 = Bits.rotateRight(e, 14) ^ Bits.rotateRight(e, 18)
+				^ Bits.rotateRight(e, 41);
+			long t1 = h + s1 + ((e & f) ^ (~e & g)) + K512[t] + w[t];
+			long s0 = Bits.rotateRight(a, 28) ^ Bits.rotateRight(a, 34)
+				^ Bits.rotateRight(a, 39);
+			long t2 = s0 + ((a & b) ^ (a & c) ^ (b & c));
+			h = g;
+			g = f;
+			f = e;
+			e = d + t1;
+			d = c;
+			c = b;
+			b = a;
+			a = t1 + t2;
+		}
+		state[0] += a;
+		state[1] += b;
+		state[2] += c;
+		state[3] += d;
+		state[4] += e;
+		state[5] += f;
+		state[6] += g;
+		state[7] += h;
+	}
+
+	private SHA2()
+	{
+		/* ... */
+	}
+}
@@ -0,0 +1,132 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.util.Parameters;
+
+/**
+ * The SHAKE extendable-output functions, as defined in FIPS 202. Instances of
+ * this class are not thread safe.
+ *
+ * @author Osman KOCAK
+ */
+final class SHAKE implements XOF
+{
+	/** SHAKE's padding (domain separation bits "1111"). */
+	private static final int PADDING = 0x1F;
+
+	private final int strength;
+	private final KeccakSponge sponge;
+
+	/**
+	 * Creates a new ready to use {@code SHAKE}.
+	 *
+	 * @param strength the security strength (in bits), either 128 or 256.
+	 *
+	 * @throws IllegalArgumentException if {@code strength} is neither 128
+	 *	nor 256.
+	 */
+	SHAKE(int strength)
+	{
+		Parameters.checkCondition(strength == 128 || strength == 256);
+		this.strength = strength;
+		this.sponge = new KeccakSponge(200 - strength / 4);
+	}
+
+	@Override
+	public XOF reset()
+	{
+		sponge.reset();
+		return this;
+	}
+
+	@Override
+	public XOF copy()
+	{
+		SHAKE copy = new SHAKE(strength);
+		copy.sponge.restore(sponge);
+		return copy;
+	}
+
+	@Override
+	public XOF update(byte input)
+	{
+		checkAbsorbing();
+		sponge.absorb(input);
+		return this;
+	}
+
+	@Override
+	public XOF update(byte... input)
+	{
+		return update(input, 0, input.length);
+	}
+
+	@Override
+	public XOF update(byte[] input, int off, int len)
+	{
+		checkBounds(input, off, len);
+		checkAbsorbing();
+		sponge.absorb(input, off, len);
+		return this;
+	}
+
+	@Override
+	public byte[] squeeze(int len)
+	{
+		Parameters.checkCondition(len >= 0);
+		byte[] out = new byte[len];
+		squeeze(out, 0, len);
+		return out;
+	}
+
+	@Override
+	public XOF squeeze(byte[] out)
+	{
+		return squeeze(out, 0, out.length);
+	}
+
+	@Override
+	public XOF squeeze(byte[] out, int off, int len)
+	{
+		checkBounds(out, off, len);
+		if (!sponge.isSqueezing()) {
+			sponge.pad(PADDING);
+		}
+		sponge.squeeze(out, off, len);
+		return this;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "SHAKE" + strength;
+	}
+
+	private static void checkBounds(byte[] buf, int off, int len)
+	{
+		if (off < 0 || len < 0 || off > buf.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+	}
+
+	private void checkAbsorbing()
+	{
+		if (sponge.isSqueezing()) {
+			throw new IllegalStateException("Output already squeezed");
+		}
+	}
+}
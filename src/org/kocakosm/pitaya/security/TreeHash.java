@@ -0,0 +1,470 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.io.IO;
+import org.kocakosm.pitaya.util.CannotHappenException;
+import org.kocakosm.pitaya.util.Parameters;
+import org.kocakosm.pitaya.util.Throwables;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Tree (Merkle) hashing mode, allowing large inputs to be hashed in parallel.
+ * The input is split into fixed-size chunks (the last one may be shorter),
+ * which are hashed independently, possibly on several threads; the resulting
+ * chunk hashes are then combined pairwise, level by level, up to a single root
+ * hash. As in RFC 6962, chunk hashes and inner node hashes are computed over
+ * distinct domains ({@code H(0x00 || chunk)} and {@code H(0x01 || left ||
+ * right)}); a node without sibling is promoted unchanged to the next level.
+ * The chunk hashes are part of the result, so that a modified input can later
+ * be re-verified chunk by chunk. Note that the root hash depends on the chunk
+ * size and that it differs from the plain digest of the input. Instances of
+ * this class are thread-safe.
+ *
+ * @author Osman KOCAK
+ */
+public final class TreeHash
+{
+	private static final byte LEAF = 0x00;
+	private static final byte NODE = 0x01;
+
+	private final Algorithm<Digest> algorithm;
+	private final int chunkSize;
+	private final Executor executor;
+	private final ThreadLocal<byte[]> buffers;
+	private final ThreadLocal<Digest> digests;
+
+	/**
+	 * Creates a new {@code TreeHash} that hashes chunks sequentially, on
+	 * the calling thread.
+	 *
+	 * @param algorithm the digest algorithm to use.
+	 * @param chunkSize the chunk size, in bytes.
+	 *
+	 * @throws NullPointerException if {@code algorithm} is {@code null}.
+	 * @throws IllegalArgumentException if {@code chunkSize} is not strictly
+	 *	positive or if the digest algorithm is unknown.
+	 */
+	public TreeHash(Algorithm<Digest> algorithm, int chunkSize)
+	{
+		this(algorithm, chunkSize, null, false);
+	}
+
+	/**
+	 * Creates a new {@code TreeHash} that hashes chunks in parallel, using
+	 * the given {@code Executor}. The calling thread hashes the first chunk
+	 * itself and then waits for the others. When hashing files, each thread
+	 * that hashes chunks keeps a buffer of {@code chunkSize} bytes.
+	 *
+	 * @param algorithm the digest algorithm to use.
+	 * @param chunkSize the chunk size, in bytes.
+	 * @param executor the {@code Executor} to use to hash chunks.
+	 *
+	 * @throws NullPointerException if {@code algorithm} or {@code executor}
+	 *	is {@code null}.
+	 * @throws IllegalArgumentException if {@code chunkSize} is not strictly
+	 *	positive or if the digest algorithm is unknown.
+	 */
+	public TreeHash(Algorithm<Digest> algorithm, int chunkSize,
+		Executor executor)
+	{
+		this(algorithm, chunkSize, executor, true);
+	}
+
+	private TreeHash(final Algorithm<Digest> algorithm, final int chunkSize,
+		Executor executor, boolean parallel)
+	{
+		Parameters.checkCondition(chunkSize > 0);
+		Digest digest = Factory.getDigest(algorithm);
+		if (parallel) {
+			Parameters.checkNotNull(executor);
+		}
+		this.algorithm = algorithm;
+		this.chunkSize = chunkSize;
+		this.executor = executor;
+		this.buffers = new ThreadLocal<byte[]>()
+		{
+			@Override
+			protected byte[] initialValue()
+			{
+				return new byte[chunkSize];
+			}
+		};
+		this.digests = new ThreadLocal<Digest>()
+		{
+			@Override
+			protected Digest initialValue()
+			{
+				return Factory.getDigest(algorithm);
+			}
+		};
+		digests.set(digest);
+	}
+
+	/**
+	 * Returns the chunk size, in bytes.
+	 *
+	 * @return the chunk size.
+	 */
+	public int chunkSize()
+	{
+		return chunkSize;
+	}
+
+	/**
+	 * Computes the hash tree of the given input.
+	 *
+	 * @param input the input to hash.
+	 *
+	 * @return the input's hash tree.
+	 *
+	 * @throws NullPointerException if {@code input} is {@code null}.
+	 */
+	public Tree hash(byte... input)
+	{
+		return hash(input, 0, input.length);
+	}
+
+	/**
+	 * Computes the hash tree of {@code len} bytes of the given input,
+	 * starting at {@code off}.
+	 *
+	 * @param input the input array of bytes.
+	 * @param off the offset to start from in the array of bytes.
+	 * @param len the number of bytes to hash, starting at {@code off}.
+	 *
+	 * @return the input's hash tree.
+	 *
+	 * @throws NullPointerException if {@code input} is {@code null}.
+	 * @throws IndexOutOfBoundsException if {@code off} or {@code len} is
+	 *	negative or if {@code off + len} is greater than
+	 *	{@code input}'s length.
+	 */
+	public Tree hash(final byte[] input, final int off, final int len)
+	{
+		if (off < 0 || len < 0 || off > input.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		try {
+			return tree(execute(chunkCount(len), new ChunkHasher()
+			{
+				@Override
+				public byte[] hash(int index)
+				{
+					int start = index * chunkSize;
+					int n = Math.min(chunkSize, len - start);
+					return hashChunk(input, off + start, n);
+				}
+			}));
+		} catch (IOException ex) {
+			throw new CannotHappenException(ex);
+		}
+	}
+
+	/**
+	 * Computes the hash tree of the content of the given file. Chunks are
+	 * read independently (and possibly concurrently) using positional
+	 * reads.
+	 *
+	 * @param input the file to hash.
+	 *
+	 * @return the file's hash tree.
+	 *
+	 * @throws NullPointerException if {@code input} is {@code null}.
+	 * @throws IOException if {@code input} does not exist, or if it is a
+	 *	directory rather than a regular file, or if it can't be read.
+	 * @throws SecurityException if a security manager exists and denies
+	 *	read access to {@code input}.
+	 */
+	public Tree hash(File input) throws IOException
+	{
+		FileInputStream in = new FileInputStream(input);
+		try {
+			final FileChannel channel = in.getChannel();
+			final long size = channel.size();
+			return tree(execute(chunkCount(size), new ChunkHasher()
+			{
+				@Override
+				public byte[] hash(int index) throws IOException
+				{
+					long start = (long) index * chunkSize;
+					int n = (int) Math.min(chunkSize, size - start);
+					return hashChunk(channel, start, n);
+				}
+			}));
+		} finally {
+			IO.close(in);
+		}
+	}
+
+	/**
+	 * Computes the hash of the given chunk, as it appears in hash trees.
+	 * This allows a single chunk of a modified input to be re-verified
+	 * against a previously computed {@link Tree}.
+	 *
+	 * @param chunk the input array of bytes.
+	 * @param off the offset at which the chunk starts in {@code chunk}.
+	 * @param len the chunk's length.
+	 *
+	 * @return the chunk's hash.
+	 *
+	 * @throws NullPointerException if {@code chunk} is {@code null}.
+	 * @throws IllegalArgumentException if {@code len} is greater than the
+	 *	chunk size.
+	 * @throws IndexOutOfBoundsException if {@code off} or {@code len} is
+	 *	negative or if {@code off + len} is greater than
+	 *	{@code chunk}'s length.
+	 */
+	public byte[] hashChunk(byte[] chunk, int off, int len)
+	{
+		Parameters.checkCondition(len <= chunkSize);
+		if (off < 0 || len < 0 || off > chunk.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		Digest digest = digest();
+		return digest.update(LEAF).update(chunk, off, len).digest();
+	}
+
+	/**
+	 * Combines the given chunk hashes into a root hash.
+	 *
+	 * @param chunkHashes the chunk hashes, in order.
+	 *
+	 * @return the root hash.
+	 *
+	 * @throws NullPointerException if {@code chunkHashes} is {@code null}
+	 *	or if it contains a {@code null} reference.
+	 * @throws IllegalArgumentException if {@code chunkHashes} is empty.
+	 */
+	public byte[] root(List<byte[]> chunkHashes)
+	{
+		Parameters.checkCondition(!chunkHashes.isEmpty());
+		byte[][] level = chunkHashes.toArray(new byte[0][]);
+		for (byte[] hash : level) {
+			Parameters.checkNotNull(hash);
+		}
+		Digest digest = digest();
+		int n = level.length;
+		while (n > 1) {
+			int m = 0;
+			for (int i = 0; i + 1 < n; i += 2) {
+				digest.update(NODE).update(level[i]);
+				level[m++] = digest.digest(level[i + 1]);
+			}
+			if ((n & 1) != 0) {
+				level[m++] = level[n - 1];
+			}
+			n = m;
+		}
+		return level[0].clone();
+	}
+
+	/**
+	 * Returns this instance's digest engine for the current thread. These
+	 * engines aren't shared with {@link Engines}, otherwise hashing a tree
+	 * would reset any engine the caller got from there.
+	 */
+	private Digest digest()
+	{
+		Digest digest = digests.get();
+		digest.reset();
+		return digest;
+	}
+
+	private int chunkCount(long len)
+	{
+		long count = Math.max(1L, (len + chunkSize - 1) / chunkSize);
+		Parameters.checkCondition(count <= Integer.MAX_VALUE,
+			"Too many chunks, use a greater chunk size");
+		return (int) count;
+	}
+
+	private byte[] hashChunk(FileChannel channel, long pos, int len)
+		throws IOException
+	{
+		ByteBuffer buf = ByteBuffer.wrap(buffers.get(), 0, len);
+		while (buf.hasRemaining()) {
+			if (channel.read(buf, pos + buf.position()) < 0) {
+				throw new IOException("Unexpected end of file");
+			}
+		}
+		return hashChunk(buf.array(), 0, len);
+	}
+
+	private Tree tree(byte[][] chunkHashes)
+	{
+		List<byte[]> chunks = Arrays.asList(chunkHashes);
+		return new Tree(chunkHashes, root(chunks));
+	}
+
+	private byte[][] execute(int count, final ChunkHasher hasher)
+		throws IOException
+	{
+		final byte[][] hashes = new byte[count][];
+		if (executor == null || count == 1) {
+			for (int i = 0; i < count; i++) {
+				hashes[i] = hasher.hash(i);
+			}
+			return hashes;
+		}
+		List<FutureTask<byte[]>> tasks;
+		tasks = new ArrayList<FutureTask<byte[]>>(count - 1);
+		try {
+			for (int i = 1; i < count; i++) {
+				final int index = i;
+				FutureTask<byte[]> task;
+				task = new FutureTask<byte[]>(new Callable<byte[]>()
+				{
+					@Override
+					public byte[] call() throws IOException
+					{
+						return hasher.hash(index);
+					}
+				});
+				tasks.add(task);
+				executor.execute(task);
+			}
+			hashes[0] = hasher.hash(0);
+			for (int i = 1; i < count; i++) {
+				hashes[i] = tasks.get(i - 1).get();
+			}
+			return hashes;
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof IOException) {
+				throw (IOException) ex.getCause();
+			}
+			throw Throwables.propagate(ex.getCause());
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw Throwables.propagate(ex);
+		} finally {
+			for (FutureTask<byte[]> task : tasks) {
+				task.cancel(true);
+			}
+		}
+	}
+
+	private interface ChunkHasher
+	{
+		byte[] hash(int index) throws IOException;
+	}
+
+	/**
+	 * A hash tree: the root hash along with the hashes of all the chunks.
+	 * Instances of this class are immutable.
+	 */
+	public static final class Tree
+	{
+		private final byte[][] chunks;
+		private final byte[] root;
+
+		Tree(byte[][] chunks, byte[] root)
+		{
+			this.chunks = chunks;
+			this.root = root;
+		}
+
+		/**
+		 * Returns the root hash.
+		 *
+		 * @return the root hash.
+		 */
+		public byte[] root()
+		{
+			return root.clone();
+		}
+
+		/**
+		 * Returns the number of chunks. An empty input has a single
+		 * (empty) chunk.
+		 *
+		 * @return the number of chunks.
+		 */
+		public int chunkCount()
+		{
+			return chunks.length;
+		}
+
+		/**
+		 * Returns the hash of the chunk at the given index.
+		 *
+		 * @param index the chunk's index.
+		 *
+		 * @return the chunk's hash.
+		 *
+		 * @throws IndexOutOfBoundsException if {@code index} is negative
+		 *	or if it is not lower than {@link #chunkCount()}.
+		 */
+		public byte[] chunkHash(int index)
+		{
+			return chunks[index].clone();
+		}
+
+		/**
+		 * Returns the hashes of all the chunks, in order.
+		 *
+		 * @return the chunk hashes.
+		 */
+		public List<byte[]> chunkHashes()
+		{
+			List<byte[]> hashes = new ArrayList<byte[]>(chunks.length);
+			for (byte[] hash : chunks) {
+				hashes.add(hash.clone());
+			}
+			return Collections.unmodifiableList(hashes);
+		}
+
+		/**
+		 * Returns the indexes of the chunks whose hash differ between
+		 * this tree and the given one, which must have been computed
+		 * with the same algorithm and chunk size. Chunks that only exist
+		 * in one of the trees are considered to differ.
+		 *
+		 * @param tree the tree to compare with this one.
+		 *
+		 * @return the indexes of the differing chunks, in ascending order.
+		 *
+		 * @throws NullPointerException if {@code tree} is {@code null}.
+		 */
+		public int[] diff(Tree tree)
+		{
+			int n = Math.max(chunks.length, tree.chunks.length);
+			int[] indexes = new int[n];
+			int count = 0;
+			for (int i = 0; i < n; i++) {
+				if (i >= chunks.length || i >= tree.chunks.length
+					|| !Arrays.equals(chunks[i], tree.chunks[i]))
+				{
+					indexes[count++] = i;
+				}
+			}
+			return Arrays.copyOf(indexes, count);
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+package org.kocakosm.pitaya.security;
+
+/**
+ * Extendable-output function (XOF) engine. A XOF is a function on bit strings
+ * whose output can be extended to any desired length: once all the input has
+ * been absorbed (through the {@code update} methods), output can be squeezed
+ * out of the engine in as many calls as needed, each call returning the next
+ * bytes of the same (virtually infinite) output stream. Thus, a XOF can be
+ * used both as a digest algorithm with arbitrary output length and as a
+ * deterministic key stream generator.
+ * Implementations of this interface are not meant to be thread-safe.
+ *
+ * @see XOFs
+ *
+ * @author Osman KOCAK
+ */
+public interface XOF
+{
+	/**
+	 * Resets the engine, so that it can absorb new input.
+	 *
+	 * @return this object.
+	 */
+	XOF reset();
+
+	/**
+	 * Returns a copy of this engine, in its current state. The copy and
+	 * the original are independent: the copy can be further updated or
+	 * squeezed without affecting this engine, and vice versa.
+	 *
+	 * @return a copy of this engine.
+	 */
+	XOF copy();
+
+	/**
+	 * Updates the engine using the given byte.
+	 *
+	 * @param input the byte with which to update the engine.
+	 *
+	 * @return this object.
+	 *
+	 * @throws IllegalStateException if output has already been squeezed
+	 *	out of the engine since its last reset.
+	 */
+	XOF update(byte input);
+
+	/**
+	 * Updates the engine using the specified array of bytes.
+	 *
+	 * @param input the array of bytes with which to update the engine.
+	 *
+	 * @return this object.
+	 *
+	 * @throws NullPointerException if {@code input} is {@code null}.
+	 * @throws IllegalStateException if output has already been squeezed
+	 *	out of the engine since its last reset.
+	 */
+	XOF update(byte... input);
+
+	/**
+	 * Updates the engine using the specified number of bytes from the given
+	 * array of bytes, starting at the specified offset.
+	 *
+	 * @param input the array of bytes.
+	 * @param off the offset to start from in the array of bytes.
+	 * @param len the number of bytes to use, starting at offset.
+	 *
+	 * @return this object.
+	 *
+	 * @throws NullPointerException if {@code input} is {@code null}.
+	 * @throws IndexOutOfBoundsException if {@code off} is negative or if
+	 *	{@code off + len} is greater than {@code input}'s length.
+	 * @throws IllegalStateException if output has already been squeezed
+	 *	out of the engine since its last reset.
+	 */
+	XOF update(byte[] input, int off, int len);
+
+	/**
+	 * Returns the next {@code len} bytes of output. The first call to any
+	 * of the {@code squeeze} methods terminates the input: the engine has
+	 * to be reset before it can be updated again.
+	 *
+	 * @param len the number of bytes to squeeze.
+	 *
+	 * @return the next {@code len} bytes of output.
+	 *
+	 * @throws IllegalArgumentException if {@code len} is negative.
+	 */
+	byte[] squeeze(int len);
+
+	/**
+	 * Writes the next {@code out.length} bytes of output into the given
+	 * array. The first call to any of the {@code squeeze} methods
+	 * terminates the input: the engine has to be reset before it can be
+	 * updated again.
+	 *
+	 * @param out the output buffer.
+	 *
+	 * @return this object.
+	 *
+	 * @throws NullPointerException if {@code out} is {@code null}.
+	 */
+	XOF squeeze(byte[] out);
+
+	/**
+	 * Writes the next {@code len} bytes of output into the given array,
+	 * starting at the specified offset. The first call to any of the
+	 * {@code squeeze} methods terminates the input: the engine has to be
+	 * reset before it can be updated again.
+	 *
+	 * @param out the output buffer.
+	 * @param off the offset at which to start writing in {@code out}.
+	 * @param len the number of bytes to squeeze.
+	 *
+	 * @return this object.
+	 *
+	 * @throws NullPointerException if {@code out} is {@code null}.
+	 * @throws IndexOutOfBoundsException if {@code off} or {@code len} is
+	 *	negative or if {@code off + len} is greater than {@code out}'s
+	 *	length.
+	 */
+	XOF squeeze(byte[] out, int off, int len);
+
+	/**
+	 * Returns the name of the XOF algorithm.
+	 *
+	 * @return the name of the XOF algorithm.
+	 */
+	@Override
+	String toString();
+}
@@ -0,0 +1,50 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+package org.kocakosm.pitaya.security;
+
+/**
+ * Some commonly used extendable-output functions. None of the {@link XOF}
+ * instances returned by this class is thread-safe.
+ *
+ * @author Osman KOCAK
+ */
+public final class XOFs
+{
+	/**
+	 * Returns a new SHAKE128 {@link XOF} instance.
+	 *
+	 * @return a new SHAKE128 {@link XOF} instance.
+	 */
+	public static XOF shake128()
+	{
+		return new SHAKE(128);
+	}
+
+	/**
+	 * Returns a new SHAKE256 {@link XOF} instance.
+	 *
+	 * @return a new SHAKE256 {@link XOF} instance.
+	 */
+	public static XOF shake256()
+	{
+		return new SHAKE(256);
+	}
+
+	private XOFs()
+	{
+		/* ... */
+	}
+}
@@ -23,6 +23,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import org.junit.Test;
 
@@ -72,6 +73,32 @@ public final class ConcurrentHashBagTest
 		assertTrue(bag.contains("World"));
 	}
 
+	@Test
+	public void testIntegerArrayContructor()
+	{
+		Bag<Integer> bag = new ConcurrentHashBag<Integer>(3, 7);
+		assertEquals(2, bag.size());
+		assertTrue(bag.contains(3));
+		assertTrue(bag.contains(7));
+		assertEquals(new HashBag<Integer>(3, 7), bag);
+	}
+
+	@Test
+	public void testWithTopTracking()
+	{
+		ConcurrentHashBag<Integer> bag =
+			ConcurrentHashBag.withTopTracking(16, 2);
+		assertTrue(bag.isEmpty());
+		bag.addAll(Arrays.asList(3, 7, 7));
+		assertEquals(Arrays.asList(7, 3), bag.top(2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWithNegativeTopTracking()
+	{
+		ConcurrentHashBag.withTopTracking(16, -1);
+	}
+
 	@Test
 	public void testAdd()
 	{
@@ -114,6 +141,97 @@ public final class ConcurrentHashBagTest
 		assertEquals(bag.count(4L), 1);
 	}
 
+	@Test
+	public void testAddOccurrences()
+	{
+		ConcurrentHashBag<String> bag = new ConcurrentHashBag<String>("Hello");
+		assertEquals(1, bag.add("Hello", 1000000));
+		assertEquals(0, bag.add("World", 3));
+		assertEquals(0, bag.add("Bye", 0));
+		assertEquals(1000001, bag.count("Hello"));
+		assertEquals(3, bag.count("World"));
+		assertFalse(bag.contains("Bye"));
+		assertEquals(1000004, bag.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddNegativeOccurrences()
+	{
+		new ConcurrentHashBag<String>().add("Hello", -1);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testAddNull()
+	{
+		new ConcurrentHashBag<String>().add(null);
+	}
+
+	@Test
+	public void testSetCount()
+	{
+		ConcurrentHashBag<String> bag = new ConcurrentHashBag<String>("Hello", "World");
+		assertEquals(1, bag.setCount("Hello", 5));
+		assertEquals(5, bag.count("Hello"));
+		assertEquals(6, bag.size());
+		assertEquals(0, bag.setCount("Bye", 2));
+		assertEquals(8, bag.size());
+		assertEquals(1, bag.setCount("World", 0));
+		assertFalse(bag.contains("World"));
+		assertEquals(7, bag.size());
+		bag.add("World");
+		assertEquals(1, bag.count("World"));
+	}
+
+	@Test
+	public void testRemoveOccurrences()
+	{
+		ConcurrentHashBag<String> bag = new ConcurrentHashBag<String>("Hello", "Hello", "World");
+		assertEquals(0, bag.remove("Bye", 1));
+		assertEquals(2, bag.remove("Hello", 1));
+		assertEquals(1, bag.count("Hello"));
+		assertEquals(1, bag.remove("World", 5));
+		assertFalse(bag.contains("World"));
+		assertEquals(1, bag.size());
+		assertTrue(bag.addIfAbsent("World"));
+		assertFalse(bag.addIfAbsent("World"));
+	}
+
+	@Test
+	public void testConcurrentUpdates() throws InterruptedException
+	{
+		final ConcurrentHashBag<Integer> bag = new ConcurrentHashBag<Integer>();
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run()
+				{
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < 10000; i++) {
+						bag.add(i % 4);
+						bag.add(4 + i % 4);
+						bag.remove(4 + i % 4);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(80000, bag.size());
+		for (int i = 0; i < 4; i++) {
+			assertEquals(20000, bag.count(i));
+			assertEquals(0, bag.count(4 + i));
+		}
+	}
+
 	@Test
 	public void testClear()
 	{
@@ -155,6 +273,62 @@ public final class ConcurrentHashBagTest
 		assertEquals(2, bag.count("Hello"));
 	}
 
+	@Test
+	public void testTop()
+	{
+		ConcurrentHashBag<String> bag = new ConcurrentHashBag<String>("a", "b", "c");
+		bag.add("b", 10);
+		bag.add("c", 5);
+		assertEquals(Arrays.asList("b", "c"), bag.top(2));
+		assertEquals(Arrays.asList("b", "c", "a"), bag.top(10));
+		assertTrue(bag.top(0).isEmpty());
+	}
+
+	@Test
+	public void testTrackedTop()
+	{
+		ConcurrentHashBag<Integer> bag = ConcurrentHashBag.withTopTracking(16, 3);
+		for (int i = 1; i <= 10; i++) {
+			bag.add(i, i);
+		}
+		assertEquals(Arrays.asList(10, 9, 8), bag.top(3));
+		assertEquals(Arrays.asList(10, 9), bag.top(2));
+		bag.add(1, 100);
+		assertEquals(Arrays.asList(1, 10, 9), bag.top(3));
+		bag.remove(1, 100);
+		bag.setCount(10, 0);
+		assertEquals(Arrays.asList(9, 8, 7), bag.top(3));
+		bag.add(2, 50);
+		assertEquals(Arrays.asList(2, 9, 8), bag.top(3));
+		assertEquals(Arrays.asList(2, 9, 8, 7, 6), bag.top(5));
+	}
+
+	@Test
+	public void testTrackedTopWithConcurrentUpdates() throws InterruptedException
+	{
+		final ConcurrentHashBag<Integer> bag =
+			ConcurrentHashBag.withTopTracking(16, 5);
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run()
+				{
+					for (int i = 0; i < 20; i++) {
+						for (int j = 0; j < 100; j++) {
+							bag.add(j, j);
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(Arrays.asList(99, 98, 97, 96, 95), bag.top(5));
+	}
+
 	@Test
 	public void testIsEmpty()
 	{
@@ -175,6 +349,21 @@ public final class ConcurrentHashBagTest
 		assertTrue(result.containsAll(bag));
 	}
 
+	@Test
+	public void testIteratorRemove()
+	{
+		Bag<Long> bag = new ConcurrentHashBag<Long>(1L, 2L, 1L, 2L, 3L);
+		Iterator<Long> iterator = bag.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next() != 3L) {
+				iterator.remove();
+			}
+		}
+		assertEquals(new HashBag<Long>(3L), bag);
+		assertEquals(1, bag.size());
+		assertFalse(bag.contains(1L));
+	}
+
 	@Test
 	public void testRemove()
 	{
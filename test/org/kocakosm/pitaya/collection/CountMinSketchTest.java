@@ -0,0 +1,199 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * {@link CountMinSketch}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class CountMinSketchTest
+{
+	@Test
+	public void testDimensions()
+	{
+		CountMinSketch<String> sketch = new CountMinSketch<String>(0.001, 0.01);
+		assertEquals(2719, sketch.width());
+		assertEquals(5, sketch.depth());
+		assertTrue(sketch.relativeError() <= 0.001);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidEpsilon()
+	{
+		new CountMinSketch<String>(0, 0.01);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDelta()
+	{
+		new CountMinSketch<String>(0.01, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidWidth()
+	{
+		new CountMinSketch<String>(0, 4);
+	}
+
+	@Test
+	public void testAddAndCount()
+	{
+		CountMinSketch<String> sketch = new CountMinSketch<String>(64, 4);
+		assertTrue(sketch.isEmpty());
+		assertEquals(0, sketch.count("Hello"));
+		assertEquals(1, sketch.add("Hello"));
+		assertEquals(11, sketch.add("Hello", 10));
+		assertEquals(1, sketch.add(null));
+		assertEquals(11, sketch.count("Hello"));
+		assertEquals(1, sketch.count(null));
+		assertEquals(12, sketch.size());
+		assertFalse(sketch.isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddNegativeOccurrences()
+	{
+		new CountMinSketch<String>(64, 4).add("Hello", -1);
+	}
+
+	@Test
+	public void testErrorBound()
+	{
+		CountMinSketch<Integer> sketch = new CountMinSketch<Integer>(0.01, 0.001);
+		int[] counts = new int[10000];
+		Random rnd = new Random(42);
+		for (int i = 0; i < 200000; i++) {
+			int e = (int) Math.min(counts.length - 1,
+				Math.abs(rnd.nextGaussian()) * 1000);
+			counts[e]++;
+			sketch.add(e);
+		}
+		long bound = (long) (0.01 * sketch.size());
+		int violations = 0;
+		for (int e = 0; e < counts.length; e++) {
+			long estimate = sketch.count(e);
+			assertTrue(estimate >= counts[e]);
+			if (estimate - counts[e] > bound) {
+				violations++;
+			}
+		}
+		assertTrue(violations <= 10);
+	}
+
+	@Test
+	public void testClear()
+	{
+		CountMinSketch<String> sketch = new CountMinSketch<String>(64, 4);
+		sketch.add("Hello", 5);
+		sketch.clear();
+		assertTrue(sketch.isEmpty());
+		assertEquals(0, sketch.count("Hello"));
+	}
+
+	@Test
+	public void testAddOverflow()
+	{
+		CountMinSketch<String> sketch = new CountMinSketch<String>(64, 4);
+		sketch.add("Hello", Long.MAX_VALUE - 1);
+		try {
+			sketch.add("World", 2);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals(0, sketch.count("World"));
+			assertEquals(Long.MAX_VALUE - 1, sketch.size());
+		}
+		assertEquals(Long.MAX_VALUE, sketch.add("Hello"));
+	}
+
+	@Test
+	public void testMerge()
+	{
+		CountMinSketch<String> sketch1 = new CountMinSketch<String>(64, 4);
+		CountMinSketch<String> sketch2 = new CountMinSketch<String>(64, 4);
+		sketch1.add("Hello", 3);
+		sketch1.add("World");
+		sketch2.add("Hello", 2);
+		sketch2.add("Bye", 7);
+		sketch1.merge(sketch2);
+		assertEquals(13, sketch1.size());
+		assertTrue(sketch1.count("Hello") >= 5);
+		assertTrue(sketch1.count("World") >= 1);
+		assertTrue(sketch1.count("Bye") >= 7);
+	}
+
+	@Test
+	public void testMergeOverflow()
+	{
+		CountMinSketch<String> sketch1 = new CountMinSketch<String>(64, 4);
+		CountMinSketch<String> sketch2 = new CountMinSketch<String>(64, 4);
+		sketch1.add("Hello", Long.MAX_VALUE);
+		sketch2.add("World");
+		try {
+			sketch1.merge(sketch2);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals(0, sketch1.count("World"));
+			assertEquals(Long.MAX_VALUE, sketch1.size());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeWithDifferentDimensions()
+	{
+		new CountMinSketch<String>(64, 4).merge(
+			new CountMinSketch<String>(64, 5));
+	}
+
+	@Test
+	public void testSerialization()
+	{
+		CountMinSketch<String> sketch = new CountMinSketch<String>(0.1, 0.1);
+		sketch.add("Hello", 3);
+		sketch.add("World");
+		byte[] bytes = sketch.toByteArray();
+		CountMinSketch<String> copy = CountMinSketch.fromByteArray(bytes);
+		assertEquals(sketch, copy);
+		assertEquals(sketch.hashCode(), copy.hashCode());
+		assertEquals(3, copy.count("Hello"));
+		assertEquals(4, copy.size());
+		copy.add("Bye");
+		assertFalse(sketch.equals(copy));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDeserializeTruncated()
+	{
+		byte[] bytes = new CountMinSketch<String>(8, 2).toByteArray();
+		CountMinSketch.fromByteArray(Arrays.copyOf(bytes, 20));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDeserializeBadVersion()
+	{
+		byte[] bytes = new CountMinSketch<String>(8, 2).toByteArray();
+		bytes[0] = 42;
+		CountMinSketch.fromByteArray(bytes);
+	}
+}
@@ -66,6 +66,12 @@ public final class EmptyBagTest
 		assertEquals(0, Bags.emptyBag().count("Hello"));
 	}
 
+	@Test
+	public void testTop()
+	{
+		assertTrue(Bags.emptyBag().top(10).isEmpty());
+	}
+
 	@Test
 	public void testIsEmpty()
 	{
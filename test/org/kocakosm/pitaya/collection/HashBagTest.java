@@ -89,6 +89,59 @@ public final class HashBagTest
 		assertTrue(bag.contains("World"));
 	}
 
+	@Test
+	public void testAddOccurrences()
+	{
+		HashBag<String> bag = new HashBag<String>("Hello");
+		assertEquals(1, bag.add("Hello", 1000000));
+		assertEquals(0, bag.add("World", 3));
+		assertEquals(0, bag.add("Bye", 0));
+		assertEquals(1000001, bag.count("Hello"));
+		assertEquals(3, bag.count("World"));
+		assertFalse(bag.contains("Bye"));
+		assertEquals(1000004, bag.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddNegativeOccurrences()
+	{
+		new HashBag<String>().add("Hello", -1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddTooManyOccurrences()
+	{
+		HashBag<String> bag = new HashBag<String>("Hello");
+		bag.add("Hello", Integer.MAX_VALUE);
+	}
+
+	@Test
+	public void testSetCount()
+	{
+		HashBag<String> bag = new HashBag<String>("Hello", "World");
+		assertEquals(1, bag.setCount("Hello", 5));
+		assertEquals(5, bag.count("Hello"));
+		assertEquals(6, bag.size());
+		assertEquals(0, bag.setCount("Bye", 2));
+		assertEquals(2, bag.count("Bye"));
+		assertEquals(8, bag.size());
+		assertEquals(1, bag.setCount("World", 0));
+		assertFalse(bag.contains("World"));
+		assertEquals(7, bag.size());
+	}
+
+	@Test
+	public void testRemoveOccurrences()
+	{
+		HashBag<String> bag = new HashBag<String>("Hello", "Hello", "World");
+		assertEquals(0, bag.remove("Bye", 1));
+		assertEquals(2, bag.remove("Hello", 1));
+		assertEquals(1, bag.count("Hello"));
+		assertEquals(1, bag.remove("World", 5));
+		assertFalse(bag.contains("World"));
+		assertEquals(1, bag.size());
+	}
+
 	@Test
 	public void testClear()
 	{
@@ -136,6 +189,25 @@ public final class HashBagTest
 		assertEquals(2, bag.count("Hello"));
 	}
 
+	@Test
+	public void testTop()
+	{
+		HashBag<String> bag = new HashBag<String>("a", "b", "c");
+		bag.add("b", 10);
+		bag.add("c", 5);
+		assertEquals(Arrays.asList("b", "c"), bag.top(2));
+		assertEquals(Arrays.asList("b", "c", "a"), bag.top(10));
+		assertTrue(bag.top(0).isEmpty());
+		bag.setCount("a", 20);
+		assertEquals(Arrays.asList("a"), bag.top(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTopWithNegativeK()
+	{
+		new HashBag<String>().top(-1);
+	}
+
 	@Test
 	public void testIsEmpty()
 	{
@@ -156,6 +228,30 @@ public final class HashBagTest
 		assertTrue(result.containsAll(bag));
 	}
 
+	@Test
+	public void testIteratorRemove()
+	{
+		HashBag<Long> bag = new HashBag<Long>(1L, 2L, 1L, 2L, 3L);
+		Iterator<Long> iterator = bag.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next() != 3L) {
+				iterator.remove();
+			}
+		}
+		assertEquals(new HashBag<Long>(3L), bag);
+		assertEquals(1, bag.size());
+		assertFalse(bag.contains(1L));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testIteratorRemoveTwice()
+	{
+		Iterator<Long> iterator = new HashBag<Long>(1L, 1L).iterator();
+		iterator.next();
+		iterator.remove();
+		iterator.remove();
+	}
+
 	@Test
 	public void testRemove()
 	{
@@ -123,6 +123,25 @@ public final class ImmutableBagTest
 		assertEquals(0, bag.count("Bye!!"));
 	}
 
+	@Test
+	public void testTop()
+	{
+		Bag<String> bag = ImmutableBag.of("a", "b", "c", "b", "c", "c");
+		assertEquals(Arrays.asList("c", "b"), bag.top(2));
+		assertEquals(Arrays.asList("c", "b", "a"), bag.top(5));
+		assertTrue(bag.top(0).isEmpty());
+	}
+
+	@Test
+	public void testBuilderDoesNotShareState()
+	{
+		ImmutableBag.Builder<String> builder = new ImmutableBag.Builder<String>();
+		Bag<String> bag = builder.add("a").build();
+		builder.add("a", "b");
+		assertEquals(1, bag.size());
+		assertEquals(Arrays.asList("a"), bag.top(2));
+	}
+
 	@Test
 	public void testIsEmpty()
 	{
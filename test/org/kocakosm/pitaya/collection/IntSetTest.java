@@ -0,0 +1,162 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * {@link IntSet}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class IntSetTest
+{
+	@Test
+	public void testAdd()
+	{
+		IntSet set = new IntSet();
+		assertTrue(set.add(1));
+		assertFalse(set.add(1));
+		assertTrue(set.add(0));
+		assertFalse(set.add(0));
+		assertTrue(set.add(-1));
+		assertEquals(3, set.size());
+		assertTrue(set.containsAll(-1, 0, 1));
+	}
+
+	@Test
+	public void testAddAll()
+	{
+		IntSet set = new IntSet();
+		assertTrue(set.addAll(new int[] {1, 2, 3, 2, 9}, 1, 3));
+		assertFalse(set.addAll(2, 3));
+		assertFalse(set.contains(1));
+		assertFalse(set.contains(9));
+		assertEquals(2, set.size());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testAddAllOutOfBounds()
+	{
+		new IntSet().addAll(new int[4], -1, 2);
+	}
+
+	@Test
+	public void testRemove()
+	{
+		IntSet set = IntSet.of(0, 1, 2);
+		assertFalse(set.remove(5));
+		assertTrue(set.remove(1));
+		assertFalse(set.remove(1));
+		assertTrue(set.remove(0));
+		assertFalse(set.contains(0));
+		assertEquals(1, set.size());
+		assertTrue(set.removeAll(2, 7));
+		assertTrue(set.isEmpty());
+	}
+
+	@Test
+	public void testClear()
+	{
+		IntSet set = IntSet.of(0, 1, 2);
+		set.clear();
+		assertTrue(set.isEmpty());
+		assertFalse(set.contains(0));
+		assertFalse(set.contains(1));
+	}
+
+	@Test
+	public void testToArray()
+	{
+		assertEquals(0, new IntSet().toArray().length);
+		int[] elements = IntSet.of(3, 0, 3, -1).toArray();
+		Arrays.sort(elements);
+		assertArrayEquals(new int[] {-1, 0, 3}, elements);
+	}
+
+	@Test
+	public void testIterator()
+	{
+		assertFalse(new IntSet().iterator().hasNext());
+		IntIterator i = IntSet.of(4, 0, 5).iterator();
+		int sum = 0;
+		int n = 0;
+		while (i.hasNext()) {
+			sum += i.next();
+			n++;
+		}
+		assertEquals(9, sum);
+		assertEquals(3, n);
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testIteratorExhausted()
+	{
+		IntIterator i = IntSet.of(0).iterator();
+		i.next();
+		i.next();
+	}
+
+	@Test
+	public void testAgainstHashSet()
+	{
+		Random rnd = new Random(42);
+		IntSet set = new IntSet();
+		Set<Integer> expected = new HashSet<Integer>();
+		for (int i = 0; i < 200000; i++) {
+			int e = rnd.nextInt(5000) - 2500;
+			if (rnd.nextInt(3) == 0) {
+				assertEquals(expected.remove(e), set.remove(e));
+			} else {
+				assertEquals(expected.add(e), set.add(e));
+			}
+		}
+		assertEquals(expected.size(), set.size());
+		for (int e = -2500; e < 2500; e++) {
+			assertEquals(expected.contains(e), set.contains(e));
+		}
+	}
+
+	@Test
+	public void testEqualsAndHashCode()
+	{
+		IntSet set1 = IntSet.of(1, 2, 3, 0);
+		IntSet set2 = IntSet.of(0, 3, 2, 1);
+		assertTrue(set1.equals(set1));
+		assertTrue(set1.equals(set2));
+		assertTrue(set2.equals(set1));
+		assertEquals(set1.hashCode(), set2.hashCode());
+		set2.remove(0);
+		assertFalse(set1.equals(set2));
+		assertFalse(set1.equals(null));
+	}
+
+	@Test
+	public void testToString()
+	{
+		assertEquals("[]", new IntSet().toString());
+		assertEquals("[0, 7]", IntSet.of(7, 0).toString());
+	}
+}
@@ -0,0 +1,220 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * {@link LongBag}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class LongBagTest
+{
+	@Test
+	public void testAdd()
+	{
+		LongBag bag = new LongBag();
+		assertEquals(0, bag.add(1L << 40));
+		assertEquals(1, bag.add(1L << 40));
+		assertEquals(0, bag.add(0));
+		assertEquals(2, bag.count(1L << 40));
+		assertEquals(1, bag.count(0));
+		assertEquals(3, bag.size());
+		assertEquals(2, bag.distinctCount());
+	}
+
+	@Test
+	public void testAddOccurrences()
+	{
+		LongBag bag = LongBag.of(7);
+		assertEquals(1, bag.add(7, 1000000));
+		assertEquals(0, bag.add(-3, 0));
+		assertEquals(1000001, bag.count(7));
+		assertFalse(bag.contains(-3));
+		assertEquals(1000001, bag.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddNegativeOccurrences()
+	{
+		new LongBag().add(1, -1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddTooManyOccurrences()
+	{
+		LongBag.of(1).add(1, Integer.MAX_VALUE);
+	}
+
+	@Test
+	public void testAddAll()
+	{
+		LongBag bag = new LongBag();
+		bag.addAll(new long[] {1, 2, 3, 2, 9, 1}, 1, 3);
+		assertEquals(0, bag.count(1));
+		assertEquals(2, bag.count(2));
+		assertEquals(1, bag.count(3));
+		assertEquals(0, bag.count(9));
+		assertArrayEquals(new int[] {0, 2, 1, 0}, bag.counts(1, 2, 3, 9));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testAddAllOutOfBounds()
+	{
+		new LongBag().addAll(new long[4], 2, 3);
+	}
+
+	@Test
+	public void testRemove()
+	{
+		LongBag bag = LongBag.of(1, 2, 1);
+		assertEquals(0, bag.remove(5));
+		assertEquals(2, bag.remove(1));
+		assertTrue(bag.contains(1));
+		assertEquals(1, bag.remove(1));
+		assertFalse(bag.contains(1));
+		assertEquals(1, bag.remove(2, 10));
+		assertTrue(bag.isEmpty());
+	}
+
+	@Test
+	public void testRemoveAll()
+	{
+		LongBag bag = LongBag.of(1, 2, 1, 3);
+		assertFalse(bag.removeAll(5, 6));
+		assertTrue(bag.removeAll(1, 2, 5));
+		assertEquals(1, bag.size());
+		assertTrue(bag.contains(3));
+	}
+
+	@Test
+	public void testSetCount()
+	{
+		LongBag bag = LongBag.of(1, 2);
+		assertEquals(1, bag.setCount(1, 5));
+		assertEquals(0, bag.setCount(3, 2));
+		assertEquals(1, bag.setCount(2, 0));
+		assertEquals(5, bag.count(1));
+		assertEquals(2, bag.count(3));
+		assertFalse(bag.contains(2));
+		assertEquals(7, bag.size());
+		assertEquals(2, bag.distinctCount());
+	}
+
+	@Test
+	public void testClear()
+	{
+		LongBag bag = LongBag.of(1, 2, 0);
+		bag.clear();
+		assertTrue(bag.isEmpty());
+		assertEquals(0, bag.distinctCount());
+		assertFalse(bag.contains(0));
+	}
+
+	@Test
+	public void testElements()
+	{
+		long[] elements = LongBag.of(3, 0, 3, -1).elements();
+		Arrays.sort(elements);
+		assertArrayEquals(new long[] {-1, 0, 3}, elements);
+	}
+
+	@Test
+	public void testIterator()
+	{
+		assertFalse(new LongBag().iterator().hasNext());
+		LongIterator i = LongBag.of(4, 0, 4).iterator();
+		long sum = 0;
+		int n = 0;
+		while (i.hasNext()) {
+			sum += i.next();
+			n++;
+		}
+		assertEquals(8, sum);
+		assertEquals(3, n);
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testIteratorExhausted()
+	{
+		LongIterator i = LongBag.of(4).iterator();
+		i.next();
+		i.next();
+	}
+
+	@Test
+	public void testAgainstHashMap()
+	{
+		Random rnd = new Random(42);
+		LongBag bag = new LongBag();
+		Map<Long, Integer> expected = new HashMap<Long, Integer>();
+		long size = 0;
+		for (int i = 0; i < 200000; i++) {
+			long e = (rnd.nextInt(5000) - 2500) * 0x100000001L;
+			Integer count = expected.get(e);
+			int c = count == null ? 0 : count;
+			if (rnd.nextInt(3) == 0) {
+				assertEquals(c, bag.remove(e));
+				if (c > 1) {
+					expected.put(e, c - 1);
+				} else {
+					expected.remove(e);
+				}
+				size -= c > 0 ? 1 : 0;
+			} else {
+				assertEquals(c, bag.add(e));
+				expected.put(e, c + 1);
+				size++;
+			}
+		}
+		assertEquals(size, bag.size());
+		assertEquals(expected.size(), bag.distinctCount());
+		for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+			assertEquals((int) entry.getValue(), bag.count(entry.getKey()));
+		}
+	}
+
+	@Test
+	public void testEqualsAndHashCode()
+	{
+		LongBag bag1 = LongBag.of(1, 2, 3, 1, 2, 3);
+		LongBag bag2 = LongBag.of(3, 1, 2, 3, 1, 2);
+		assertTrue(bag1.equals(bag1));
+		assertTrue(bag1.equals(bag2));
+		assertTrue(bag2.equals(bag1));
+		assertEquals(bag1.hashCode(), bag2.hashCode());
+		bag2.add(3);
+		assertFalse(bag1.equals(bag2));
+		assertFalse(bag1.equals(null));
+	}
+
+	@Test
+	public void testToString()
+	{
+		assertEquals("[]", new LongBag().toString());
+		assertEquals("[7 x 2]", LongBag.of(7, 7).toString());
+	}
+}
@@ -40,6 +40,12 @@ public final class AlgorithmTest
 		assertEquals("Keccak-256", Algorithm.KECCAK256.toString());
 		assertEquals("Keccak-384", Algorithm.KECCAK384.toString());
 		assertEquals("Keccak-512", Algorithm.KECCAK512.toString());
+		assertEquals("SHA3-224", Algorithm.SHA3_224.toString());
+		assertEquals("SHA3-256", Algorithm.SHA3_256.toString());
+		assertEquals("SHA3-384", Algorithm.SHA3_384.toString());
+		assertEquals("SHA3-512", Algorithm.SHA3_512.toString());
+		assertEquals("BLAKE2b-512", Algorithm.BLAKE2B.toString());
+		assertEquals("BLAKE2s-256", Algorithm.BLAKE2S.toString());
 		assertEquals("HMAC-MD2", Algorithm.HMAC_MD2.toString());
 		assertEquals("HMAC-MD4", Algorithm.HMAC_MD4.toString());
 		assertEquals("HMAC-MD5", Algorithm.HMAC_MD5.toString());
@@ -50,5 +56,13 @@ public final class AlgorithmTest
 		assertEquals("HMAC-Keccak-256", Algorithm.HMAC_KECCAK256.toString());
 		assertEquals("HMAC-Keccak-384", Algorithm.HMAC_KECCAK384.toString());
 		assertEquals("HMAC-Keccak-512", Algorithm.HMAC_KECCAK512.toString());
+		assertEquals("HMAC-SHA3-224", Algorithm.HMAC_SHA3_224.toString());
+		assertEquals("HMAC-SHA3-256", Algorithm.HMAC_SHA3_256.toString());
+		assertEquals("HMAC-SHA3-384", Algorithm.HMAC_SHA3_384.toString());
+		assertEquals("HMAC-SHA3-512", Algorithm.HMAC_SHA3_512.toString());
+		assertEquals("HMAC-BLAKE2b-512", Algorithm.HMAC_BLAKE2B.toString());
+		assertEquals("HMAC-BLAKE2s-256", Algorithm.HMAC_BLAKE2S.toString());
+		assertEquals("BLAKE2b-512-MAC", Algorithm.BLAKE2B_MAC.toString());
+		assertEquals("BLAKE2s-256-MAC", Algorithm.BLAKE2S_MAC.toString());
 	}
 }
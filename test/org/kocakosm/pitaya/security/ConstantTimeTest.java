@@ -0,0 +1,120 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * {@link ConstantTime}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class ConstantTimeTest
+{
+	@Test
+	public void testEqualsBytes()
+	{
+		assertTrue(ConstantTime.equals(new byte[0], new byte[0]));
+		assertTrue(ConstantTime.equals(bytes(1, 2, 3), bytes(1, 2, 3)));
+		assertFalse(ConstantTime.equals(bytes(1, 2, 3), bytes(1, 2, 4)));
+		assertFalse(ConstantTime.equals(bytes(0, 2, 3), bytes(1, 2, 3)));
+		assertFalse(ConstantTime.equals(bytes(1, 2, 3), bytes(1, 2)));
+	}
+
+	@Test
+	public void testEqualsByteRanges()
+	{
+		byte[] a = bytes(9, 1, 2, 3, 9);
+		byte[] b = bytes(1, 2, 3);
+		assertTrue(ConstantTime.equals(a, 1, b, 0, 3));
+		assertFalse(ConstantTime.equals(a, 0, b, 0, 3));
+		assertTrue(ConstantTime.equals(a, 5, b, 3, 0));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testEqualsByteRangesOutOfBounds()
+	{
+		ConstantTime.equals(new byte[4], 2, new byte[4], 0, 3);
+	}
+
+	@Test
+	public void testEqualsInts()
+	{
+		assertTrue(ConstantTime.equals(new int[] {1, -2}, new int[] {1, -2}));
+		assertFalse(ConstantTime.equals(new int[] {1, -2}, new int[] {1, 2}));
+		assertFalse(ConstantTime.equals(new int[] {1}, new int[] {1, 2}));
+	}
+
+	@Test
+	public void testEqualsLongs()
+	{
+		assertTrue(ConstantTime.equals(new long[] {1L << 40},
+			new long[] {1L << 40}));
+		assertFalse(ConstantTime.equals(new long[] {1L << 40},
+			new long[] {1L << 41}));
+		assertFalse(ConstantTime.equals(new long[0], new long[1]));
+	}
+
+	@Test
+	public void testXorBytes()
+	{
+		byte[] dest = bytes(0, 0x0F, 0x55, 0);
+		ConstantTime.xor(bytes(0xFF, 0xF0, 0x55, 0xFF), 1, dest, 1, 2);
+		assertArrayEquals(bytes(0, 0xFF, 0, 0), dest);
+	}
+
+	@Test
+	public void testXorInts()
+	{
+		int[] dest = {1, 2, 3};
+		ConstantTime.xor(new int[] {3, 3}, 0, dest, 1, 2);
+		assertArrayEquals(new int[] {1, 1, 0}, dest);
+	}
+
+	@Test
+	public void testXorLongs()
+	{
+		long[] dest = {-1L, 5L};
+		ConstantTime.xor(new long[] {-1L, 4L}, 0, dest, 0, 2);
+		assertArrayEquals(new long[] {0L, 1L}, dest);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testXorOutOfBounds()
+	{
+		ConstantTime.xor(new int[4], 0, new int[4], 2, 3);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testXorWithNegativeLength()
+	{
+		ConstantTime.xor(new byte[4], 0, new byte[4], 0, -1);
+	}
+
+	private static byte[] bytes(int... values)
+	{
+		byte[] bytes = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			bytes[i] = (byte) values[i];
+		}
+		return bytes;
+	}
+}
@@ -19,9 +19,16 @@ package org.kocakosm.pitaya.security;
 import static org.junit.Assert.*;
 
 import org.kocakosm.pitaya.charset.ASCII;
+import org.kocakosm.pitaya.io.Files;
 import org.kocakosm.pitaya.util.Base16;
+import org.kocakosm.pitaya.util.XArrays;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 
 import org.junit.Test;
 
@@ -177,6 +184,119 @@ public final class DigestsTest
 		assertEquals("Keccak-512", keccak512.toString());
 	}
 
+	@Test
+	public void testSHA3_224()
+	{
+		Digest sha3 = Digests.sha3_224();
+		assertThat(EMPTY_STRING).hashedWith(sha3)
+			.isEqualTo("6b4e03423667dbb73b6e15454f0eb1abd4597f9a1b0"
+				+ "78e3f5b5a6bc7");
+		assertThat(PANGRAM).hashedWith(sha3)
+			.isEqualTo("d15dadceaa4d5d7bb3b48f446421d542e08ad888730"
+				+ "5e28d58335795");
+		assertEquals(28, sha3.length());
+		assertEquals("SHA3-224", sha3.toString());
+	}
+
+	@Test
+	public void testSHA3_256()
+	{
+		Digest sha3 = Digests.sha3_256();
+		assertThat(EMPTY_STRING).hashedWith(sha3)
+			.isEqualTo("a7ffc6f8bf1ed76651c14756a061d662f580ff4de43"
+				+ "b49fa82d80a4b80f8434a");
+		assertThat(PANGRAM).hashedWith(sha3)
+			.isEqualTo("69070dda01975c8c120c3aada1b282394e7f032fa9c"
+				+ "f32f4cb2259a0897dfc04");
+		assertEquals(32, sha3.length());
+		assertEquals("SHA3-256", sha3.toString());
+	}
+
+	@Test
+	public void testSHA3_384()
+	{
+		Digest sha3 = Digests.sha3_384();
+		assertThat(EMPTY_STRING).hashedWith(sha3)
+			.isEqualTo("0c63a75b845e4f7d01107d852e4c2485c51a50aaaa9"
+				+ "4fc61995e71bbee983a2ac3713831264adb47fb6bd1e"
+				+ "058d5f004");
+		assertThat(PANGRAM).hashedWith(sha3)
+			.isEqualTo("7063465e08a93bce31cd89d2e3ca8f602498696e253"
+				+ "592ed26f07bf7e703cf328581e1471a7ba7ab119b1a9"
+				+ "ebdf8be41");
+		assertEquals(48, sha3.length());
+		assertEquals("SHA3-384", sha3.toString());
+	}
+
+	@Test
+	public void testSHA3_512()
+	{
+		Digest sha3 = Digests.sha3_512();
+		assertThat(EMPTY_STRING).hashedWith(sha3)
+			.isEqualTo("a69f73cca23a9ac5c8b567dc185a756e97c982164fe"
+				+ "25859e0d1dcc1475c80a615b2123af1f5f94c11e3e94"
+				+ "02c3ac558f500199d95b6d3e301758586281dcd26");
+		assertThat(PANGRAM).hashedWith(sha3)
+			.isEqualTo("01dedd5de4ef14642445ba5f5b97c15e47b9ad93132"
+				+ "6e4b0727cd94cefc44fff23f07bf543139939b49128c"
+				+ "af436dc1bdee54fcb24023a08d9403f9b4bf0d450");
+		assertEquals(64, sha3.length());
+		assertEquals("SHA3-512", sha3.toString());
+	}
+
+	@Test
+	public void testBLAKE2b()
+	{
+		Digest blake2b = Digests.blake2b();
+		assertThat(EMPTY_STRING).hashedWith(blake2b)
+			.isEqualTo("786a02f742015903c6c6fd852552d272912f4740e15"
+				+ "847618a86e217f71f5419d25e1031afee58531389644"
+				+ "4934eb04b903a685b1448b755d56f701afe9be2ce");
+		assertThat(PANGRAM).hashedWith(blake2b)
+			.isEqualTo("a8add4bdddfd93e4877d2746e62817b116364a1fa7b"
+				+ "c148d95090bc7333b3673f82401cf7aa2e4cb1ecd902"
+				+ "96e3f14cb5413f8ed77be73045b13914cdcd6a918");
+		assertArrayEquals(
+			Base16.decode("865939E120E6805438478841AFB739AE4250CF37265"
+				+ "3078A065CDCFFFCA4CAF798E6D462B65D658FC165782"
+				+ "640EDED70963449AE1500FB0F24981D7727E22C41"),
+			blake2b.digest(new byte[128])
+		);
+		assertEquals(64, blake2b.length());
+		assertEquals("BLAKE2b-512", blake2b.toString());
+
+		blake2b = Digests.blake2b(20);
+		assertThat(PANGRAM).hashedWith(blake2b)
+			.isEqualTo("3c523ed102ab45a37d54f5610d5a983162fde84f");
+		assertEquals(20, blake2b.length());
+		assertEquals("BLAKE2b-160", blake2b.toString());
+	}
+
+	@Test
+	public void testBLAKE2s()
+	{
+		Digest blake2s = Digests.blake2s();
+		assertThat(EMPTY_STRING).hashedWith(blake2s)
+			.isEqualTo("69217a3079908094e11121d042354a7c1f55b6482ca"
+				+ "1a51e1b250dfd1ed0eef9");
+		assertThat(PANGRAM).hashedWith(blake2s)
+			.isEqualTo("606beeec743ccbeff6cbcdf5d5302aa855c256c29b8"
+				+ "8c8ed331ea1a6bf3c8812");
+		assertArrayEquals(
+			Base16.decode("AE09DB7CD54F42B490EF09B6BC541AF688E4959BB8C"
+				+ "53F359A6F56E38AB454A3"),
+			blake2s.digest(new byte[64])
+		);
+		assertEquals(32, blake2s.length());
+		assertEquals("BLAKE2s-256", blake2s.toString());
+
+		blake2s = Digests.blake2s(20);
+		assertThat(PANGRAM).hashedWith(blake2s)
+			.isEqualTo("5a604fec9713c369e84b0ed68daed7d7504ef240");
+		assertEquals(20, blake2s.length());
+		assertEquals("BLAKE2s-160", blake2s.toString());
+	}
+
 	@Test
 	public void testDigestInputStream() throws Exception
 	{
@@ -186,6 +306,199 @@ public final class DigestsTest
 			sha1.digest(new ByteArrayInputStream(ASCII.encode(PANGRAM))));
 	}
 
+	@Test
+	public void testMultiBlockInput()
+	{
+		String digits = "1234567890123456789012345678901234567890"
+			+ "1234567890123456789012345678901234567890";
+		assertThat(digits).hashedWith(Digests.md2())
+			.isEqualTo("D5976F79D83D3A0DC9806C3C66F3EFD8");
+		assertThat(digits).hashedWith(Digests.md4())
+			.isEqualTo("E33B4DDC9C38F2199C3E7B164FCC0536");
+	}
+
+	@Test
+	public void testChunkedUpdates()
+	{
+		byte[] input = new byte[1000];
+		for (int i = 0; i < input.length; i++) {
+			input[i] = (byte) (i * 31);
+		}
+		Digest[] digests = {
+			Digests.md2(), Digests.md4(), Digests.blake2b(),
+			Digests.blake2s()
+		};
+		for (Digest digest : digests) {
+			byte[] expected = digest.digest(input);
+			for (int i = 0; i < input.length; i++) {
+				digest.update(input[i]);
+			}
+			assertArrayEquals(expected, digest.digest());
+			int off = 0;
+			for (int len = 1; off < input.length; len += 7) {
+				len = Math.min(len, input.length - off);
+				digest.update(input, off, len);
+				off += len;
+			}
+			assertArrayEquals(expected, digest.digest());
+		}
+	}
+
+	@Test
+	public void testCopy()
+	{
+		Digest[] digests = {
+			Digests.md2(), Digests.md4(), Digests.md5(),
+			Digests.sha256(), Digests.keccak224(), Digests.sha3_256(),
+			Digests.blake2b(), Digests.blake2s()
+		};
+		byte[] prefix = ASCII.encode("The quick brown fox ");
+		byte[] suffix = ASCII.encode("jumps over the lazy dog");
+		for (Digest digest : digests) {
+			byte[] expected = digest.digest(ASCII.encode(PANGRAM));
+			digest.update(prefix);
+			Digest copy = digest.copy();
+			assertEquals(digest.toString(), copy.toString());
+			assertArrayEquals(expected, copy.digest(suffix));
+			assertArrayEquals(expected, digest.digest(suffix));
+			assertArrayEquals(digest.digest(), copy.digest());
+		}
+	}
+
+	@Test
+	public void testDigestByteBuffer()
+	{
+		byte[] data = ASCII.encode("xx" + PANGRAM);
+		ByteBuffer heap = ByteBuffer.wrap(data, 2, data.length - 2);
+		ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+		direct.put(data).position(2);
+		for (ByteBuffer buf : new ByteBuffer[] {heap, direct}) {
+			Digest[] digests = {Digests.md4(), Digests.sha1()};
+			for (Digest digest : digests) {
+				buf.mark();
+				assertArrayEquals(
+					digest.digest(ASCII.encode(PANGRAM)),
+					digest.update(buf).digest());
+				assertFalse(buf.hasRemaining());
+				buf.reset();
+			}
+		}
+	}
+
+	@Test
+	public void testDigestFile() throws Exception
+	{
+		File file = File.createTempFile("pitaya", ".tmp");
+		try {
+			Files.write(file, ASCII.encode(PANGRAM));
+			assertArrayEquals(
+				Base16.decode("1bee69a46ba811185c194762abaeae90"),
+				Digests.md4().update(file).digest());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testDigestEmptyFile() throws Exception
+	{
+		File file = File.createTempFile("pitaya", ".tmp");
+		try {
+			assertArrayEquals(Digests.md4().digest(),
+				Digests.md4().update(file).digest());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testDigestLargeFile() throws Exception
+	{
+		File file = File.createTempFile("pitaya", ".tmp");
+		try {
+			RandomAccessFile out = new RandomAccessFile(file, "rw");
+			try {
+				out.setLength((1L << 26) + 3);
+				out.write(ASCII.encode("abc"));
+				out.seek(1L << 26);
+				out.write(ASCII.encode("xyz"));
+			} finally {
+				out.close();
+			}
+			InputStream in = new FileInputStream(file);
+			try {
+				assertArrayEquals(Digests.md4().digest(in),
+					Digests.md4().update(file).digest());
+			} finally {
+				in.close();
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testDigestIntoBuffer()
+	{
+		assertThat(PANGRAM).hashedInto(Digests.md2())
+			.isEqualTo("03d85a0d629d2c442e987525319fc471");
+		assertThat(PANGRAM).hashedInto(Digests.md4())
+			.isEqualTo("1bee69a46ba811185c194762abaeae90");
+		assertThat(PANGRAM).hashedInto(Digests.sha1())
+			.isEqualTo("2fd4e1c67a2d28fced849ee1bb76e7391b93eb12");
+		assertThat(PANGRAM).hashedInto(Digests.keccak224())
+			.isEqualTo("310aee6b30c47350576ac2873fa89fd190cdc488442"
+				+ "f3ef654cf23fe");
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testDigestIntoTooSmallBuffer()
+	{
+		Digests.keccak256().digest(new byte[32], 1);
+	}
+
+	@Test
+	public void testDigestAll()
+	{
+		Digest md4 = Digests.md4();
+		byte[][] messages = {
+			ASCII.encode(EMPTY_STRING), ASCII.encode(PANGRAM)
+		};
+		byte[] out = new byte[34];
+		assertEquals(32, Digests.digestAll(md4, messages, out, 2));
+		assertArrayEquals(Base16.decode("0000"
+			+ "31d6cfe0d16ae931b73c59d7e0c089c0"
+			+ "1bee69a46ba811185c194762abaeae90"), out);
+	}
+
+	@Test
+	public void testDigestAllWithOffsets()
+	{
+		Digest md2 = Digests.md2();
+		byte[] input = ASCII.encode("abc" + PANGRAM);
+		int[] offsets = {3, 3, input.length};
+		byte[] out = new byte[32];
+		assertEquals(32, Digests.digestAll(md2, input, offsets, out, 0));
+		assertArrayEquals(Base16.decode(
+			"8350e5a3e24c153df2275c9f80692773"
+			+ "03d85a0d629d2c442e987525319fc471"), out);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testDigestAllWithTooSmallOutput()
+	{
+		byte[][] messages = {ASCII.encode(PANGRAM)};
+		Digests.digestAll(Digests.md5(), messages, new byte[16], 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDigestAllWithUnorderedOffsets()
+	{
+		int[] offsets = {2, 1};
+		Digests.digestAll(Digests.md5(), new byte[4], offsets,
+			new byte[16], 0);
+	}
+
 	private static Input assertThat(String input)
 	{
 		return new Input(input);
@@ -204,6 +517,15 @@ public final class DigestsTest
 		{
 			return new Result(digest.digest(data));
 		}
+
+		Result hashedInto(Digest digest)
+		{
+			byte[] out = new byte[digest.length() + 2];
+			assertEquals(digest.length(), digest.update(data).digest(out, 1));
+			assertEquals(0, out[0]);
+			assertEquals(0, out[out.length - 1]);
+			return new Result(XArrays.copyOf(out, 1, digest.length()));
+		}
 	}
 
 	private static final class Result
@@ -0,0 +1,101 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import static org.junit.Assert.*;
+
+import org.kocakosm.pitaya.charset.ASCII;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+/**
+ * {@link Engines}' unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class EnginesTest
+{
+	@Test
+	public void testDigest()
+	{
+		Digest sha1 = Engines.digest(Algorithm.SHA1);
+		assertEquals("SHA1", sha1.toString());
+		sha1.update(ascii("garbage"));
+		assertSame(sha1, Engines.digest(Algorithm.SHA1));
+		assertArrayEquals(Digests.sha1().digest(), sha1.digest());
+		assertNotSame(sha1, Engines.digest(Algorithm.MD5));
+	}
+
+	@Test
+	public void testDigestIsThreadLocal() throws Exception
+	{
+		final Digest md4 = Engines.digest(Algorithm.MD4);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Digest other = executor.submit(new Callable<Digest>()
+			{
+				@Override
+				public Digest call()
+				{
+					return Engines.digest(Algorithm.MD4);
+				}
+			}).get();
+			assertNotSame(md4, other);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testMAC()
+	{
+		MAC hmac = Engines.mac(Algorithm.HMAC_SHA1, ascii("key"));
+		hmac.update(ascii("garbage"));
+		assertSame(hmac, Engines.mac(Algorithm.HMAC_SHA1, ascii("key")));
+		assertArrayEquals(HMAC.sha1(ascii("key")).mac(), hmac.mac());
+		MAC other = Engines.mac(Algorithm.HMAC_SHA1, ascii("other"));
+		assertNotSame(hmac, other);
+		assertArrayEquals(HMAC.sha1(ascii("other")).mac(), other.mac());
+	}
+
+	@Test
+	public void testClear()
+	{
+		Digest sha1 = Engines.digest(Algorithm.SHA1);
+		MAC hmac = Engines.mac(Algorithm.HMAC_SHA1, ascii("key"));
+		Engines.clear();
+		assertNotSame(sha1, Engines.digest(Algorithm.SHA1));
+		MAC other = Engines.mac(Algorithm.HMAC_SHA1, ascii("key"));
+		assertNotSame(hmac, other);
+		assertArrayEquals(HMAC.sha1(ascii("key")).mac(), other.mac());
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testMACWithNullKey()
+	{
+		Engines.mac(Algorithm.HMAC_SHA1, null);
+	}
+
+	private byte[] ascii(String str)
+	{
+		return ASCII.encode(str);
+	}
+}
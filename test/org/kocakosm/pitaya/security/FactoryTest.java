@@ -41,6 +41,12 @@ public final class FactoryTest
 		assertEquals(KECCAK256, Factory.getDigest(KECCAK256));
 		assertEquals(KECCAK384, Factory.getDigest(KECCAK384));
 		assertEquals(KECCAK512, Factory.getDigest(KECCAK512));
+		assertEquals(SHA3_224, Factory.getDigest(SHA3_224));
+		assertEquals(SHA3_256, Factory.getDigest(SHA3_256));
+		assertEquals(SHA3_384, Factory.getDigest(SHA3_384));
+		assertEquals(SHA3_512, Factory.getDigest(SHA3_512));
+		assertEquals(BLAKE2B, Factory.getDigest(BLAKE2B));
+		assertEquals(BLAKE2S, Factory.getDigest(BLAKE2S));
 	}
 
 	@Test
@@ -57,6 +63,14 @@ public final class FactoryTest
 		assertEquals(HMAC_KECCAK256, Factory.getMAC(HMAC_KECCAK256, key));
 		assertEquals(HMAC_KECCAK384, Factory.getMAC(HMAC_KECCAK384, key));
 		assertEquals(HMAC_KECCAK512, Factory.getMAC(HMAC_KECCAK512, key));
+		assertEquals(HMAC_SHA3_224, Factory.getMAC(HMAC_SHA3_224, key));
+		assertEquals(HMAC_SHA3_256, Factory.getMAC(HMAC_SHA3_256, key));
+		assertEquals(HMAC_SHA3_384, Factory.getMAC(HMAC_SHA3_384, key));
+		assertEquals(HMAC_SHA3_512, Factory.getMAC(HMAC_SHA3_512, key));
+		assertEquals(HMAC_BLAKE2B, Factory.getMAC(HMAC_BLAKE2B, key));
+		assertEquals(HMAC_BLAKE2S, Factory.getMAC(HMAC_BLAKE2S, key));
+		assertEquals(BLAKE2B_MAC, Factory.getMAC(BLAKE2B_MAC, key));
+		assertEquals(BLAKE2S_MAC, Factory.getMAC(BLAKE2S_MAC, key));
 	}
 
 	private void assertEquals(Algorithm algo, Object o)
@@ -17,11 +17,15 @@
 package org.kocakosm.pitaya.security;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 
 import org.kocakosm.pitaya.charset.ASCII;
+import org.kocakosm.pitaya.io.Files;
 import org.kocakosm.pitaya.util.Base16;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
 
 import org.junit.Test;
 
@@ -207,6 +211,114 @@ public final class HMACTest
 		);
 	}
 
+	@Test
+	public void testSHA3_224()
+	{
+		MAC hmac = HMAC.sha3_224(ascii(EMPTY_STRING));
+		assertArrayEquals(
+			hex("1b9044e0d5bb4ef944bc00f1b26c483ac3e222f4640935d089"
+				+ "a49083"),
+			hmac.mac(ascii(EMPTY_STRING))
+		);
+		hmac = HMAC.sha3_224(ascii("key"));
+		assertArrayEquals(
+			hex("ff6fa8447ce10fb1efdccfe62caf8b640fe46c4fb1007912bf"
+				+ "85100f"),
+			hmac.mac(ascii(PANGRAM))
+		);
+	}
+
+	@Test
+	public void testSHA3_256()
+	{
+		MAC hmac = HMAC.sha3_256(ascii(EMPTY_STRING));
+		assertArrayEquals(
+			hex("e841c164e5b4f10c9f3985587962af72fd607a951196fc92fb"
+				+ "3a5251941784ea"),
+			hmac.mac(ascii(EMPTY_STRING))
+		);
+		hmac = HMAC.sha3_256(ascii("key"));
+		assertArrayEquals(
+			hex("8c6e0683409427f8931711b10ca92a506eb1fafa48fadd66d7"
+				+ "6126f47ac2c333"),
+			hmac.mac(ascii(PANGRAM))
+		);
+	}
+
+	@Test
+	public void testSHA3_384()
+	{
+		MAC hmac = HMAC.sha3_384(ascii(EMPTY_STRING));
+		assertArrayEquals(
+			hex("adca89f07bbfbeaf58880c1572379ea2416568fd3b66542bd4"
+				+ "2599c57c4567e6ae086299ea216c6f3e7aef90b6191d"
+				+ "24"),
+			hmac.mac(ascii(EMPTY_STRING))
+		);
+		hmac = HMAC.sha3_384(ascii("key"));
+		assertArrayEquals(
+			hex("aa739ad9fcdf9be4a04f06680ade7a1bd1e01a0af64accb043"
+				+ "66234cf9f6934a0f8589772f857681fcde8acc256091"
+				+ "a2"),
+			hmac.mac(ascii(PANGRAM))
+		);
+	}
+
+	@Test
+	public void testSHA3_512()
+	{
+		MAC hmac = HMAC.sha3_512(ascii(EMPTY_STRING));
+		assertArrayEquals(
+			hex("cbcf45540782d4bc7387fbbf7d30b3681d6d66cc435cafd825"
+				+ "46b0fce96b367ea79662918436fba442e81a01d0f959"
+				+ "2dfcd30f7a7a8f1475693d30be4150ca84"),
+			hmac.mac(ascii(EMPTY_STRING))
+		);
+		hmac = HMAC.sha3_512(ascii("key"));
+		assertArrayEquals(
+			hex("237a35049c40b3ef5ddd960b3dc893d8284953b9a4756611b1"
+				+ "b61bffcf53edd979f93547db714b06ef0a692062c609"
+				+ "b70208ab8d4a280ceee40ed8100f293063"),
+			hmac.mac(ascii(PANGRAM))
+		);
+	}
+
+	@Test
+	public void testBLAKE2b()
+	{
+		MAC hmac = HMAC.blake2b(ascii(EMPTY_STRING));
+		assertArrayEquals(
+			hex("198cd2006f66ff83fbbd913f78aca2251caf4f19fe9475aade"
+				+ "8cf2091b99a68466775177424f58286886cbae822964"
+				+ "4cec747237d4b721735485e17372fdf59c"),
+			hmac.mac(ascii(EMPTY_STRING))
+		);
+		hmac = HMAC.blake2b(ascii("key"));
+		assertArrayEquals(
+			hex("92294f92c0dfb9b00ec9ae8bd94d7e7d8a036b885a499f149d"
+				+ "fe2fd2199394aaaf6b8894a1730cccb2cd050f9bcf50"
+				+ "62a38b51b0dab33207f8ef35ae2c9df51b"),
+			hmac.mac(ascii(PANGRAM))
+		);
+	}
+
+	@Test
+	public void testBLAKE2s()
+	{
+		MAC hmac = HMAC.blake2s(ascii(EMPTY_STRING));
+		assertArrayEquals(
+			hex("eaf4bb25938f4d20e72656bbbc7a9bf63c0c18537333c35bdb"
+				+ "67db1402661acd"),
+			hmac.mac(ascii(EMPTY_STRING))
+		);
+		hmac = HMAC.blake2s(ascii("key"));
+		assertArrayEquals(
+			hex("f93215bb90d4af4c3061cd932fb169fb8bb8a91d0b4022baea"
+				+ "1271e1323cd9a0"),
+			hmac.mac(ascii(PANGRAM))
+		);
+	}
+
 	@Test
 	public void testMacInputStream() throws Exception
 	{
@@ -216,6 +328,65 @@ public final class HMACTest
 			hmac.mac(new ByteArrayInputStream(ascii(PANGRAM))));
 	}
 
+	@Test
+	public void testMacReuse()
+	{
+		MAC[] hmacs = {
+			HMAC.md2(ascii("key")), HMAC.md4(ascii("key")),
+			HMAC.sha256(ascii("key")), HMAC.keccak256(ascii("key"))
+		};
+		for (MAC hmac : hmacs) {
+			byte[] expected = hmac.mac(ascii(PANGRAM));
+			assertArrayEquals(expected, hmac.mac(ascii(PANGRAM)));
+			hmac.update(ascii("garbage")).reset();
+			assertArrayEquals(expected, hmac.mac(ascii(PANGRAM)));
+		}
+	}
+
+	@Test
+	public void testMacByteBuffer()
+	{
+		MAC hmac = HMAC.sha1(ascii("key"));
+		ByteBuffer buf = ByteBuffer.allocateDirect(64);
+		buf.put(ascii(PANGRAM)).flip();
+		assertArrayEquals(
+			hex("de7c9b85b8b78aa6bc8a7a36f70a90701c9db4d9"),
+			hmac.update(buf).mac());
+	}
+
+	@Test
+	public void testMacFile() throws Exception
+	{
+		File file = File.createTempFile("pitaya", ".tmp");
+		try {
+			Files.write(file, ascii(PANGRAM));
+			MAC hmac = HMAC.sha1(ascii("key"));
+			assertArrayEquals(
+				hex("de7c9b85b8b78aa6bc8a7a36f70a90701c9db4d9"),
+				hmac.update(file).mac());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testMacIntoBuffer()
+	{
+		MAC hmac = HMAC.sha1(ascii("key"));
+		byte[] out = new byte[22];
+		hmac.update(ascii(PANGRAM));
+		assertEquals(20, hmac.mac(out, 1));
+		assertArrayEquals(
+			hex("00de7c9b85b8b78aa6bc8a7a36f70a90701c9db4d900"),
+			out);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testMacIntoTooSmallBuffer()
+	{
+		HMAC.md5(ascii("key")).mac(new byte[16], 1);
+	}
+
 	private byte[] hex(String hex)
 	{
 		return Base16.decode(hex);
@@ -17,10 +17,18 @@
 package org.kocakosm.pitaya.security;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.kocakosm.pitaya.charset.ASCII;
 import org.kocakosm.pitaya.util.Base16;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.junit.Test;
 
 /**
@@ -50,6 +58,52 @@ public final class KDFsTest
 		);
 	}
 
+	@Test
+	public void testPBKDF2WithSHA256()
+	{
+		KDF pbkdf2 = KDFs.pbkdf2(Algorithm.HMAC_SHA256, 4096, 40);
+		assertArrayEquals(
+			hex("C5E478D59288C841AA530DB6845C4C8D962893A001CE4E11A4"
+				+ "963873AA98134AF7AD98C1B458CE3F"),
+			pbkdf2.deriveKey(ascii("password"), ascii("salt"))
+		);
+		pbkdf2 = KDFs.pbkdf2(Algorithm.HMAC_SHA256, 3, 20);
+		assertArrayEquals(
+			hex("C8ACA9DE2516685FFAF8B4CB6F7DA454E75AD112"),
+			pbkdf2.deriveKey(new byte[200], ascii("salt"))
+		);
+	}
+
+	@Test
+	public void testPBKDF2WithSHA512()
+	{
+		KDF pbkdf2 = KDFs.pbkdf2(Algorithm.HMAC_SHA512, 4096, 80);
+		assertArrayEquals(
+			hex("D197B1B33DB0143E018B12F3D1D1479E6CDEBDCC97C5C0F87F"
+				+ "6902E072F457B5143F30602641B3D55CD335988CB36B"
+				+ "84376060ECD532E039B742A239434AF2D5D6883F0BE4"
+				+ "C24D363B638F4C2F8D9175"),
+			pbkdf2.deriveKey(ascii("password"), ascii("salt"))
+		);
+		pbkdf2 = KDFs.pbkdf2(Algorithm.HMAC_SHA512, 3, 20);
+		assertArrayEquals(
+			hex("EFE6791EE1274B8788C08E21E5D4A1B8D6626F59"),
+			pbkdf2.deriveKey(new byte[200], ascii("salt"))
+		);
+	}
+
+	@Test
+	public void testPBKDF2WithBLAKE2b()
+	{
+		KDF pbkdf2 = KDFs.pbkdf2(Algorithm.HMAC_BLAKE2B, 1000, 64);
+		assertArrayEquals(
+			hex("BEA9C4F32EA86AA9965157F6EAA2C5E8D8E0362EA12E3AF854"
+				+ "D1D5DB62B276A953A99E467A931A307CA6C8561BA58F"
+				+ "833455DCDCF8352A89948088C3EF621681"),
+			pbkdf2.deriveKey(ascii("password"), ascii("salt"))
+		);
+	}
+
 	@Test
 	public void testHKDF()
 	{
@@ -60,6 +114,99 @@ public final class KDFsTest
 		);
 	}
 
+	@Test
+	public void testHKDFWithSHA256()
+	{
+		byte[] ikm = hex("0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B");
+		KDF hkdf = KDFs.hkdf(Algorithm.HMAC_SHA256,
+			hex("F0F1F2F3F4F5F6F7F8F9"), 42);
+		assertArrayEquals(
+			hex("3CB25F25FAACD57A90434F64D0362F2A2D2D0A90CF1A5A4C5D"
+				+ "B02D56ECC4C5BF34007208D5B887185865"),
+			hkdf.deriveKey(ikm, hex("000102030405060708090A0B0C"))
+		);
+	}
+
+	@Test
+	public void testHKDFExtract()
+	{
+		HKDFKey prk = KDFs.hkdfExtract(Algorithm.HMAC_SHA1,
+			ascii("password"), ascii("salt"));
+		assertArrayEquals(
+			hex("DB8E037B0757A7AD231AD2CEFFFAD365CAD45C4F"),
+			prk.expand(ascii("info"), 20)
+		);
+		assertEquals(255 * 20, prk.maxLength());
+	}
+
+	@Test
+	public void testHKDFExtractWithoutSalt()
+	{
+		HKDFKey prk = KDFs.hkdfExtract(Algorithm.HMAC_SHA256,
+			hex("0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B0B"), null);
+		assertArrayEquals(
+			hex("8DA4E775A563C18F715F802A063C5A31B8A11F5C5EE1879EC3"
+				+ "454E5F3C738D2D9D201395FAA4B61A96C8"),
+			prk.expand(null, 42)
+		);
+	}
+
+	@Test
+	public void testHKDFExpandManySubkeys()
+	{
+		HKDFKey prk = KDFs.hkdfExtract(Algorithm.HMAC_SHA256,
+			ascii("password"), ascii("salt"));
+		for (String label : new String[] {"enc", "mac", "iv"}) {
+			KDF hkdf = KDFs.hkdf(Algorithm.HMAC_SHA256,
+				ascii(label), 50);
+			assertArrayEquals(
+				hkdf.deriveKey(ascii("password"), ascii("salt")),
+				prk.expand(ascii(label), 50)
+			);
+		}
+	}
+
+	@Test
+	public void testHKDFExpandIntoBuffer()
+	{
+		HKDFKey prk = KDFs.hkdfExtract(Algorithm.HMAC_SHA256,
+			ascii("password"), ascii("salt"));
+		byte[] expected = prk.expand(ascii("info"), 70);
+		byte[] out = new byte[74];
+		assertEquals(70, prk.expand(ascii("info"), out, 2, 70));
+		byte[] actual = new byte[70];
+		System.arraycopy(out, 2, actual, 0, 70);
+		assertArrayEquals(expected, actual);
+		assertEquals(0, out[0] | out[1] | out[72] | out[73]);
+	}
+
+	@Test
+	public void testHKDFExpandToStream() throws IOException
+	{
+		HKDFKey prk = KDFs.hkdfExtract(Algorithm.HMAC_SHA256,
+			ascii("password"), ascii("salt"));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		prk.expand(ascii("info"), 70, out);
+		assertArrayEquals(prk.expand(ascii("info"), 70),
+			out.toByteArray());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHKDFExpandTooLong()
+	{
+		HKDFKey prk = KDFs.hkdfExtract(Algorithm.HMAC_SHA1,
+			ascii("password"), ascii("salt"));
+		prk.expand(ascii("info"), 255 * 20 + 1);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testHKDFExpandOutOfBounds()
+	{
+		HKDFKey prk = KDFs.hkdfExtract(Algorithm.HMAC_SHA1,
+			ascii("password"), ascii("salt"));
+		prk.expand(ascii("info"), new byte[10], 5, 6);
+	}
+
 	@Test
 	public void testSCrypt()
 	{
@@ -68,6 +215,56 @@ public final class KDFsTest
 			hex("567C46E015DFCC5F2A14096DC1A851E5196C06EF"),
 			scrypt.deriveKey(ascii("password"), ascii("salt"))
 		);
+		scrypt = KDFs.scrypt(8, 1024, 16, 64);
+		assertArrayEquals(
+			hex("FDBABE1C9D3472007856E7190D01E9FE7C6AD7CBC8237830E7"
+				+ "7376634B3731622EAF30D92E22A3886FF109279D9830"
+				+ "DAC727AFB94A83EE6D8360CBDFA2CC0640"),
+			scrypt.deriveKey(ascii("password"), ascii("NaCl"))
+		);
+	}
+
+	@Test
+	public void testSCryptEngineReuse()
+	{
+		SCrypt.Engine engine = new SCrypt.Engine(8, 1024);
+		assertTrue(engine.fits(8, 512));
+		assertTrue(engine.fits(8, 1024));
+		assertFalse(engine.fits(8, 2048));
+		assertFalse(engine.fits(4, 512));
+		SCrypt scrypt = new SCrypt(8, 512, 16, 20);
+		assertArrayEquals(
+			hex("567C46E015DFCC5F2A14096DC1A851E5196C06EF"),
+			scrypt.deriveKey(ascii("password"), ascii("salt"), engine)
+		);
+		scrypt = new SCrypt(8, 1024, 16, 64);
+		assertArrayEquals(
+			hex("FDBABE1C9D3472007856E7190D01E9FE7C6AD7CBC8237830E7"
+				+ "7376634B3731622EAF30D92E22A3886FF109279D9830"
+				+ "DAC727AFB94A83EE6D8360CBDFA2CC0640"),
+			scrypt.deriveKey(ascii("password"), ascii("NaCl"), engine)
+		);
+	}
+
+	@Test
+	public void testParallelSCrypt()
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			KDF scrypt = KDFs.scrypt(8, 512, 16, 20, executor);
+			assertArrayEquals(
+				hex("567C46E015DFCC5F2A14096DC1A851E5196C06EF"),
+				scrypt.deriveKey(ascii("password"), ascii("salt"))
+			);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testParallelSCryptWithNullExecutor()
+	{
+		KDFs.scrypt(8, 512, 16, 20, null);
 	}
 
 	private byte[] hex(String hex)
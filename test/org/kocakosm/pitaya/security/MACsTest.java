@@ -0,0 +1,96 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import static org.junit.Assert.*;
+
+import org.kocakosm.pitaya.charset.ASCII;
+import org.kocakosm.pitaya.util.Base16;
+
+import org.junit.Test;
+
+/**
+ * {@link MACs}' unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class MACsTest
+{
+	private static final String PANGRAM;
+	static {
+		PANGRAM = "The quick brown fox jumps over the lazy dog";
+	}
+
+	@Test
+	public void testBLAKE2b()
+	{
+		MAC mac = MACs.blake2b(ascii("key"));
+		byte[] expected = hex("66F642208454BF2E066DAC9EAB68FAE0146BB544C1D46E1F42"
+			+ "7008F068A45D872CD0C1FC23E7BA82A95D084AADF5E4"
+			+ "AF9EDAF761FB6CED9E485A28C59A3F714C");
+		assertArrayEquals(expected, mac.mac(ascii(PANGRAM)));
+		assertArrayEquals(expected, mac.mac(ascii(PANGRAM)));
+		assertEquals(64, mac.length());
+		assertEquals("BLAKE2b-512-MAC", mac.toString());
+		assertArrayEquals(Digests.blake2b().digest(ascii(PANGRAM)),
+			MACs.blake2b().mac(ascii(PANGRAM)));
+	}
+
+	@Test
+	public void testBLAKE2s()
+	{
+		MAC mac = MACs.blake2s(ascii("key"));
+		byte[] expected = hex("EEC94D00B8C9D214636ADFAD587BC9C75F271D7A64D9639EF2"
+			+ "E959F94DA468E6");
+		assertArrayEquals(expected, mac.mac(ascii(PANGRAM)));
+		mac.update(ascii("garbage")).reset();
+		assertArrayEquals(expected, mac.mac(ascii(PANGRAM)));
+		assertEquals(32, mac.length());
+		assertEquals("BLAKE2s-256-MAC", mac.toString());
+	}
+
+	@Test
+	public void testTruncatedOutput()
+	{
+		MAC mac = MACs.blake2b(16, ascii("key"));
+		assertEquals(16, mac.length());
+		assertEquals(16, mac.mac(ascii(PANGRAM)).length);
+		assertEquals("BLAKE2b-128-MAC", mac.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBLAKE2bKeyTooLong()
+	{
+		MACs.blake2b(new byte[65]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBLAKE2sKeyTooLong()
+	{
+		MACs.blake2s(new byte[33]);
+	}
+
+	private byte[] hex(String hex)
+	{
+		return Base16.decode(hex);
+	}
+
+	private byte[] ascii(String str)
+	{
+		return ASCII.encode(str);
+	}
+}
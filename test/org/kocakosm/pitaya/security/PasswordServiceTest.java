@@ -0,0 +1,137 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+/**
+ * {@link PasswordService}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class PasswordServiceTest
+{
+	@Test
+	public void testHashAndVerify() throws Exception
+	{
+		PasswordService service = new PasswordService(2, 8);
+		try {
+			List<Future<byte[]>> hashes = new ArrayList<Future<byte[]>>();
+			for (int i = 0; i < 4; i++) {
+				hashes.add(service.hash("password" + i));
+			}
+			for (int i = 0; i < 4; i++) {
+				byte[] hash = hashes.get(i).get();
+				assertTrue(Passwords.verify("password" + i, hash));
+				assertTrue(service.verify("password" + i, hash).get());
+				assertFalse(service.verify("Password" + i, hash).get());
+			}
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	@Test
+	public void testCompatibilityWithPasswords() throws Exception
+	{
+		PasswordService service = new PasswordService(1, 1);
+		try {
+			byte[] hash = Passwords.hash("password");
+			assertTrue(service.verify("password", hash).get());
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	@Test
+	public void testVerifyAndRehash() throws Exception
+	{
+		SCryptParameters params = SCryptParameters.of(8, 1 << 15, 1);
+		PasswordService service = new PasswordService(1, 1, params);
+		try {
+			byte[] hash = Passwords.hash("password");
+			Passwords.Verification v = service.verifyAndRehash(
+				"password", hash).get();
+			assertTrue(v.matches());
+			assertTrue(v.rehashed());
+			assertFalse(Passwords.needsRehash(v.hash(), params));
+			v = service.verifyAndRehash("password", v.hash()).get();
+			assertTrue(v.matches());
+			assertFalse(v.rehashed());
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	@Test
+	public void testVerifyWeakerHash() throws Exception
+	{
+		SCryptParameters params = SCryptParameters.of(8, 1 << 15, 1);
+		PasswordService service = new PasswordService(1, 1, params);
+		try {
+			byte[] hash = Passwords.hash("password");
+			assertTrue(service.verify("password", hash).get());
+			assertFalse(service.verify("Password", hash).get());
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	@Test
+	public void testVerifyStrongerHash() throws Exception
+	{
+		PasswordService service = new PasswordService(1, 1);
+		try {
+			byte[] hash = Passwords.hash("password",
+				SCryptParameters.of(8, 1 << 15, 1));
+			service.verify("password", hash).get();
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalArgumentException);
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	@Test(expected = RejectedExecutionException.class)
+	public void testShutdown()
+	{
+		PasswordService service = new PasswordService(1, 1);
+		service.shutdown();
+		service.hash("password");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidConcurrency()
+	{
+		new PasswordService(0, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOutOfBoundsParameters()
+	{
+		new PasswordService(1, 1, SCryptParameters.of(8, 1 << 24, 1));
+	}
+}
@@ -19,6 +19,7 @@ package org.kocakosm.pitaya.security;
 import static org.junit.Assert.*;
 
 import org.kocakosm.pitaya.charset.ASCII;
+import org.kocakosm.pitaya.time.Duration;
 
 import org.junit.Test;
 
@@ -52,4 +53,128 @@ public final class PasswordsTest
 
 		assertFalse(Passwords.verify("Password", new byte[0]));
 	}
+
+	@Test
+	public void testHashWithParameters()
+	{
+		String password = "password";
+		SCryptParameters params = SCryptParameters.of(8, 1 << 15, 2);
+		byte[] hash = Passwords.hash(password, params);
+		assertTrue(Passwords.verify(password, hash, params));
+		assertFalse(Passwords.verify("Password", hash, params));
+		assertTrue(Passwords.verify(password, hash,
+			SCryptParameters.of(8, 1 << 16, 1)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testVerifyHashStrongerThanDefaults()
+	{
+		byte[] hash = Passwords.hash("password",
+			SCryptParameters.of(8, 1 << 15, 1));
+		Passwords.verify("password", hash);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testVerifyHashRequiringMoreMemoryThanBound()
+	{
+		byte[] hash = Passwords.hash("password",
+			SCryptParameters.of(8, 1 << 15, 1));
+		Passwords.verify("password", hash,
+			SCryptParameters.of(8, 1 << 14, 2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testVerifyForgedHash()
+	{
+		byte[] hash = Passwords.hash("password");
+		hash[hash.length - 3] = 20;
+		hash[hash.length - 1] = 16;
+		Passwords.verify("password", hash);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testVerifyWithUnsupportedBound()
+	{
+		Passwords.verify("password", Passwords.hash("password"),
+			SCryptParameters.of(8, 1 << 24, 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHashWithUnsupportedParameters()
+	{
+		Passwords.hash("password", SCryptParameters.of(8, 1 << 10, 1));
+	}
+
+	@Test
+	public void testCalibrate()
+	{
+		assertEquals(SCryptParameters.of(8, 1 << 14, 1),
+			Passwords.calibrate(Duration.ONE_MILLISECOND, 1 << 24));
+		SCryptParameters params = Passwords.calibrate(
+			Duration.ONE_SECOND, 1 << 25);
+		assertEquals(8, params.r());
+		assertTrue(params.n() >= 1 << 14 && params.n() <= 1 << 15);
+		assertTrue(params.p() >= 1 && params.p() <= 16);
+		assertTrue(params.memory() <= 1 << 25);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCalibrateWithTooLittleMemory()
+	{
+		Passwords.calibrate(Duration.ONE_SECOND, 1 << 20);
+	}
+
+	@Test
+	public void testNeedsRehash()
+	{
+		SCryptParameters defaults = SCryptParameters.of(8, 1 << 14, 1);
+		SCryptParameters stronger = SCryptParameters.of(8, 1 << 15, 1);
+		byte[] hash = Passwords.hash("password");
+		assertFalse(Passwords.needsRehash(hash, defaults));
+		assertTrue(Passwords.needsRehash(hash, stronger));
+		assertTrue(Passwords.needsRehash(new byte[0], defaults));
+		hash[hash.length - 1] = 0;
+		assertTrue(Passwords.needsRehash(hash, defaults));
+	}
+
+	@Test
+	public void testNeedsRehashDoesNotDowngrade()
+	{
+		SCryptParameters defaults = SCryptParameters.of(8, 1 << 14, 1);
+		byte[] hash = Passwords.hash("password",
+			SCryptParameters.of(8, 1 << 15, 1));
+		assertFalse(Passwords.needsRehash(hash, defaults));
+		assertTrue(Passwords.needsRehash(hash,
+			SCryptParameters.of(8, 1 << 14, 4)));
+
+		Passwords.Verification v = Passwords.verifyAndRehash("password",
+			hash, SCryptParameters.of(8, 1 << 15, 1));
+		assertTrue(v.matches());
+		assertFalse(v.rehashed());
+		assertArrayEquals(hash, v.hash());
+	}
+
+	@Test
+	public void testVerifyAndRehash()
+	{
+		SCryptParameters params = SCryptParameters.of(8, 1 << 15, 1);
+		byte[] hash = Passwords.hash("password");
+
+		Passwords.Verification v = Passwords.verifyAndRehash("Password",
+			hash, params);
+		assertFalse(v.matches());
+		assertFalse(v.rehashed());
+		assertArrayEquals(hash, v.hash());
+
+		v = Passwords.verifyAndRehash("password", hash);
+		assertTrue(v.matches());
+		assertFalse(v.rehashed());
+		assertArrayEquals(hash, v.hash());
+
+		v = Passwords.verifyAndRehash("password", hash, params);
+		assertTrue(v.matches());
+		assertTrue(v.rehashed());
+		assertFalse(Passwords.needsRehash(v.hash(), params));
+		assertTrue(Passwords.verify("password", v.hash(), params));
+	}
 }
@@ -0,0 +1,70 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * {@link SCryptParameters}' unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class SCryptParametersTest
+{
+	@Test
+	public void testAccessors()
+	{
+		SCryptParameters params = SCryptParameters.of(8, 1024, 2);
+		assertEquals(8, params.r());
+		assertEquals(1024, params.n());
+		assertEquals(2, params.p());
+		assertEquals(1024L * 1024L, params.memory());
+	}
+
+	@Test
+	public void testEqualsAndHashCode()
+	{
+		SCryptParameters params = SCryptParameters.of(8, 1024, 2);
+		assertEquals(params, SCryptParameters.of(8, 1024, 2));
+		assertEquals(params.hashCode(),
+			SCryptParameters.of(8, 1024, 2).hashCode());
+		assertFalse(params.equals(SCryptParameters.of(8, 2048, 2)));
+		assertFalse(params.equals(SCryptParameters.of(4, 1024, 2)));
+		assertFalse(params.equals(SCryptParameters.of(8, 1024, 1)));
+		assertFalse(params.equals(null));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonPowerOfTwoN()
+	{
+		SCryptParameters.of(8, 1000, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonPositiveR()
+	{
+		SCryptParameters.of(0, 1024, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonPositiveP()
+	{
+		SCryptParameters.of(8, 1024, 0);
+	}
+}
@@ -0,0 +1,155 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+package org.kocakosm.pitaya.security;
+
+import static org.junit.Assert.*;
+
+import org.kocakosm.pitaya.io.Files;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+/**
+ * {@link TreeHash}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class TreeHashTest
+{
+	private static final byte[] DATA = new byte[100000];
+	static {
+		new Random(42).nextBytes(DATA);
+	}
+
+	@Test
+	public void testSingleChunk()
+	{
+		TreeHash tree = new TreeHash(Algorithm.SHA256, 1024);
+		byte[] input = Arrays.copyOf(DATA, 1000);
+		byte[] leaf = Digests.sha256().update((byte) 0).digest(input);
+		TreeHash.Tree result = tree.hash(input);
+		assertEquals(1, result.chunkCount());
+		assertArrayEquals(leaf, result.root());
+		assertArrayEquals(leaf, result.chunkHash(0));
+	}
+
+	@Test
+	public void testDoesNotDisturbCallerEngines()
+	{
+		Digest engine = Engines.digest(Algorithm.SHA256);
+		engine.update(DATA, 0, 500);
+		new TreeHash(Algorithm.SHA256, 1024).hash(DATA);
+		assertArrayEquals(Digests.sha256().digest(Arrays.copyOf(DATA, 1000)),
+			engine.digest(Arrays.copyOfRange(DATA, 500, 1000)));
+	}
+
+	@Test
+	public void testEmptyInput()
+	{
+		TreeHash tree = new TreeHash(Algorithm.SHA256, 1024);
+		TreeHash.Tree result = tree.hash(new byte[0]);
+		assertEquals(1, result.chunkCount());
+		assertArrayEquals(Digests.sha256().digest((byte) 0), result.root());
+	}
+
+	@Test
+	public void testRoot()
+	{
+		TreeHash tree = new TreeHash(Algorithm.SHA256, 10);
+		byte[] input = Arrays.copyOf(DATA, 25);
+		Digest sha256 = Digests.sha256();
+		byte[] l0 = sha256.update((byte) 0).digest(input, 0, 10);
+		byte[] l1 = sha256.update((byte) 0).digest(input, 10, 10);
+		byte[] l2 = sha256.update((byte) 0).digest(input, 20, 5);
+		byte[] n01 = sha256.update((byte) 1).update(l0).digest(l1);
+		byte[] root = sha256.update((byte) 1).update(n01).digest(l2);
+		TreeHash.Tree result = tree.hash(input);
+		assertEquals(3, result.chunkCount());
+		assertArrayEquals(root, result.root());
+		assertArrayEquals(root, tree.root(result.chunkHashes()));
+		assertArrayEquals(l2, result.chunkHash(2));
+	}
+
+	@Test
+	public void testParallelHash() throws Exception
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			TreeHash sequential = new TreeHash(Algorithm.BLAKE2B, 4096);
+			TreeHash parallel = new TreeHash(Algorithm.BLAKE2B, 4096,
+				executor);
+			TreeHash.Tree expected = sequential.hash(DATA);
+			TreeHash.Tree actual = parallel.hash(DATA);
+			assertEquals(25, actual.chunkCount());
+			assertArrayEquals(expected.root(), actual.root());
+			assertEquals(0, expected.diff(actual).length);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testHashFile() throws Exception
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		File file = File.createTempFile("pitaya", ".tmp");
+		try {
+			Files.write(file, DATA);
+			TreeHash tree = new TreeHash(Algorithm.SHA1, 3000, executor);
+			assertArrayEquals(tree.hash(DATA).root(),
+				tree.hash(file).root());
+		} finally {
+			file.delete();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testIncrementalVerification()
+	{
+		TreeHash tree = new TreeHash(Algorithm.SHA256, 1000);
+		TreeHash.Tree original = tree.hash(DATA);
+		byte[] modified = DATA.clone();
+		modified[4321]++;
+		modified[98765]++;
+		TreeHash.Tree result = tree.hash(modified);
+		assertArrayEquals(new int[] {4, 98}, original.diff(result));
+		assertFalse(Arrays.equals(original.root(), result.root()));
+		assertArrayEquals(result.chunkHash(4),
+			tree.hashChunk(modified, 4000, 1000));
+		assertArrayEquals(original.chunkHash(5),
+			tree.hashChunk(modified, 5000, 1000));
+		TreeHash.Tree shorter = tree.hash(DATA, 0, 50000);
+		assertEquals(50, original.diff(shorter).length);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidChunkSize()
+	{
+		new TreeHash(Algorithm.SHA256, 0);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testNullExecutor()
+	{
+		new TreeHash(Algorithm.SHA256, 1024, null);
+	}
+}
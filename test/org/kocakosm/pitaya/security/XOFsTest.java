@@ -0,0 +1,145 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2014 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import static org.junit.Assert.*;
+
+import org.kocakosm.pitaya.charset.ASCII;
+import org.kocakosm.pitaya.util.Base16;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * {@link XOFs}' unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class XOFsTest
+{
+	private static final String PANGRAM;
+	private static final String EMPTY_STRING;
+	static {
+		PANGRAM = "The quick brown fox jumps over the lazy dog";
+		EMPTY_STRING = "";
+	}
+
+	@Test
+	public void testSHAKE128()
+	{
+		XOF shake128 = XOFs.shake128();
+		assertArrayEquals(
+			hex("7F9C2BA4E88F827D616045507605853ED73B8093F6EFBC88EB"
+				+ "1A6EACFA66EF26"),
+			shake128.update(ascii(EMPTY_STRING)).squeeze(32)
+		);
+		assertArrayEquals(
+			hex("F4202E3C5852F9182A0430FD8144F0A74B95E7417ECAE17DB0"
+				+ "F8CFEED0E3E66E"),
+			shake128.reset().update(ascii(PANGRAM)).squeeze(32)
+		);
+		assertEquals("SHAKE128", shake128.toString());
+	}
+
+	@Test
+	public void testSHAKE256()
+	{
+		XOF shake256 = XOFs.shake256();
+		assertArrayEquals(
+			hex("46B9DD2B0BA88D13233B3FEB743EEB243FCD52EA62B81B82B5"
+				+ "0C27646ED5762FD75DC4DDD8C0F200CB05019D67B592"
+				+ "F6FC821C49479AB48640292EACB3B7C4BE"),
+			shake256.update(ascii(EMPTY_STRING)).squeeze(64)
+		);
+		assertArrayEquals(
+			hex("2F671343D9B2E1604DC9DCF0753E5FE15C7C64A0D283CBBF72"
+				+ "2D411A0E36F6CA1D01D1369A23539CD80F7C054B6E5D"
+				+ "AF9C962CAD5B8ED5BD11998B40D5734442"),
+			shake256.reset().update(ascii(PANGRAM)).squeeze(64)
+		);
+		assertEquals("SHAKE256", shake256.toString());
+	}
+
+	@Test
+	public void testStreamingSqueeze()
+	{
+		XOF[] xofs = {XOFs.shake128(), XOFs.shake256()};
+		for (XOF xof : xofs) {
+			byte[] expected = xof.update(ascii(PANGRAM)).squeeze(1000);
+			xof.reset().update(ascii(PANGRAM));
+			byte[] actual = new byte[1000];
+			int off = 0;
+			for (int len = 0; off < actual.length; len += 13) {
+				len = Math.min(len, actual.length - off);
+				xof.squeeze(actual, off, len);
+				off += len;
+			}
+			assertArrayEquals(expected, actual);
+		}
+	}
+
+	@Test
+	public void testChunkedUpdates()
+	{
+		byte[] input = new byte[1000];
+		Arrays.fill(input, (byte) 0xA3);
+		XOF xof = XOFs.shake128();
+		byte[] expected = xof.update(input).squeeze(64);
+		xof.reset();
+		for (int i = 0; i < input.length; i += 37) {
+			xof.update(input, i, Math.min(37, input.length - i));
+		}
+		assertArrayEquals(expected, xof.squeeze(64));
+	}
+
+	@Test
+	public void testCopy()
+	{
+		XOF xof = XOFs.shake256().update(ascii("The quick brown fox "));
+		XOF copy = xof.copy();
+		byte[] expected = XOFs.shake256().update(ascii(PANGRAM))
+			.squeeze(200);
+		byte[] suffix = ascii("jumps over the lazy dog");
+		assertArrayEquals(expected, copy.update(suffix).squeeze(200));
+		assertArrayEquals(expected, xof.update(suffix).squeeze(200));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUpdateAfterSqueeze()
+	{
+		XOF xof = XOFs.shake128();
+		xof.squeeze(16);
+		xof.update((byte) 0);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testSqueezeOutOfBounds()
+	{
+		XOFs.shake128().squeeze(new byte[16], 8, 16);
+	}
+
+	private byte[] hex(String hex)
+	{
+		return Base16.decode(hex);
+	}
+
+	private byte[] ascii(String str)
+	{
+		return ASCII.encode(str);
+	}
+}